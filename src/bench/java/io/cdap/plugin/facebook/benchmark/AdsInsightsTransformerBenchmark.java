@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.benchmark;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.AdsInsights;
+import com.facebook.ads.sdk.InsightsResult;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.facebook.source.common.AdsInsightsTransformer;
+import io.cdap.plugin.facebook.source.common.InsightsTransformPlan;
+import io.cdap.plugin.facebook.source.common.InsightsType;
+import io.cdap.plugin.facebook.source.common.RecordTracer;
+import io.cdap.plugin.facebook.source.common.SchemaHelper;
+import io.cdap.plugin.facebook.source.common.config.SourceConfigHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures transformation of insights rows to records, for rows of different shapes. Each invocation transforms
+ * a page of distinct rows, so throughput is reported per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdsInsightsTransformerBenchmark {
+  private static final int ROWS = 100;
+  private static final String OBJECT_ID = "act_1";
+  private static final List<String> FLAT_FIELDS = Arrays.asList(
+    "account_id", "campaign_id", "adset_id", "ad_id", "ad_name", "date_start", "date_stop", "impressions", "reach",
+    "clicks", "spend", "cpc", "cpm", "ctr", "frequency");
+  private static final List<String> ACTION_TYPES = Arrays.asList(
+    "link_click", "post_engagement", "page_engagement", "video_view", "like", "comment", "post", "landing_page_view");
+  private static final String WIDE_BREAKDOWN = "publisher_platform, platform_position, impression_device *";
+
+  /**
+   * Shape of transformed rows: plain metrics, metrics with actions arrays, metrics with actions arrays and wide
+   * breakdowns, or Page insights.
+   */
+  @Param({"flat", "actions", "breakdowns", "page"})
+  public String shape;
+
+  @Param({"false", "true"})
+  public boolean typed;
+
+  private InsightsTransformPlan plan;
+  private Schema schema;
+  private List<InsightsType> rows;
+
+  @Setup
+  public void setup() {
+    APIContext context = new APIContext("token");
+    rows = new ArrayList<>(ROWS);
+    if ("page".equals(shape)) {
+      schema = SchemaHelper.buildInsightsResultSchema(Arrays.asList("page_impressions"));
+      for (int i = 0; i < ROWS; i++) {
+        rows.add(withObjectId(new InsightsType(InsightsResult.loadJSON(pageRow(i), context, null))));
+      }
+    } else {
+      List<String> fields = new ArrayList<>(FLAT_FIELDS);
+      if (!"flat".equals(shape)) {
+        fields.add("actions");
+        fields.add("action_values");
+      }
+      boolean breakdowns = "breakdowns".equals(shape);
+      schema = SchemaHelper.buildAdsInsightsSchema(
+        fields, breakdowns ? SourceConfigHelper.parseBreakdowns(WIDE_BREAKDOWN) : null, typed);
+      for (int i = 0; i < ROWS; i++) {
+        String json = adsRow(i, !"flat".equals(shape), breakdowns);
+        rows.add(withObjectId(new InsightsType(AdsInsights.loadJSON(json, context, null))));
+      }
+    }
+    schema = SchemaHelper.addObjectIdField(schema, "object_id");
+    plan = InsightsTransformPlan.compile(schema);
+  }
+
+  /**
+   * Transforms rows by a plan compiled once, as sources do.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void transformWithPlan(Blackhole blackhole) {
+    for (InsightsType row : rows) {
+      blackhole.consume(AdsInsightsTransformer.transform(row, plan, "object_id", RecordTracer.DISABLED));
+    }
+  }
+
+  /**
+   * Transforms rows by schema, compiling the plan for every row.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void transformWithSchema(Blackhole blackhole) {
+    for (InsightsType row : rows) {
+      blackhole.consume(AdsInsightsTransformer.transform(row, schema, "object_id"));
+    }
+  }
+
+  private static InsightsType withObjectId(InsightsType insights) {
+    insights.objectId = OBJECT_ID;
+    return insights;
+  }
+
+  private static String adsRow(int i, boolean actions, boolean breakdowns) {
+    StringBuilder json = new StringBuilder("{")
+      .append("\"account_id\":\"1\",\"campaign_id\":\"").append(1000 + i % 10)
+      .append("\",\"adset_id\":\"").append(2000 + i % 20)
+      .append("\",\"ad_id\":\"").append(3000 + i)
+      .append("\",\"ad_name\":\"Ad ").append(i)
+      .append("\",\"date_start\":\"2020-01-").append(String.format("%02d", 1 + i % 28))
+      .append("\",\"date_stop\":\"2020-01-").append(String.format("%02d", 1 + i % 28))
+      .append("\",\"impressions\":\"").append(10000 + i * 37)
+      .append("\",\"reach\":\"").append(8000 + i * 29)
+      .append("\",\"clicks\":\"").append(100 + i)
+      .append("\",\"spend\":\"").append(25 + i).append(".37")
+      .append("\",\"cpc\":\"0.").append(250000 + i)
+      .append("\",\"cpm\":\"2.").append(530000 + i)
+      .append("\",\"ctr\":\"1.").append(120000 + i)
+      .append("\",\"frequency\":\"1.").append(250000 + i).append('"');
+    if (actions) {
+      json.append(",\"actions\":").append(actionsArray(i, 1))
+        .append(",\"action_values\":").append(actionsArray(i, 3));
+    }
+    if (breakdowns) {
+      json.append(",\"publisher_platform\":\"").append(i % 2 == 0 ? "facebook" : "instagram")
+        .append("\",\"platform_position\":\"").append(i % 3 == 0 ? "feed" : "story")
+        .append("\",\"impression_device\":\"").append(i % 5 == 0 ? "desktop" : "iphone").append('"');
+    }
+    return json.append('}').toString();
+  }
+
+  private static String actionsArray(int i, int multiplier) {
+    StringBuilder json = new StringBuilder("[");
+    for (int j = 0; j < ACTION_TYPES.size(); j++) {
+      if (j > 0) {
+        json.append(',');
+      }
+      long value = (long) (i + j + 1) * multiplier;
+      json.append("{\"action_type\":\"").append(ACTION_TYPES.get(j))
+        .append("\",\"value\":\"").append(value)
+        .append("\",\"1d_click\":\"").append(value / 2)
+        .append("\",\"7d_view\":\"").append(value / 3).append("\"}");
+    }
+    return json.append(']').toString();
+  }
+
+  private static String pageRow(int i) {
+    return "{\"name\":\"page_impressions\",\"period\":\"day\",\"values\":["
+      + "{\"value\":" + (1000 + i) + ",\"end_time\":\"2020-01-01T08:00:00+0000\"},"
+      + "{\"value\":" + (1100 + i) + ",\"end_time\":\"2020-01-02T08:00:00+0000\"}],"
+      + "\"title\":\"Daily Total Impressions\",\"id\":\"1/insights/page_impressions/day\"}";
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.benchmark;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.facebook.source.common.SchemaHelper;
+import io.cdap.plugin.facebook.source.common.config.Breakdowns;
+import io.cdap.plugin.facebook.source.common.config.SourceConfigHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building of output schema for different numbers of selected fields and breakdowns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaHelperBenchmark {
+  private static final List<String> FEW_FIELDS = Arrays.asList("ad_id", "date_start", "impressions", "clicks");
+  private static final List<String> MANY_FIELDS = Arrays.asList(
+    "account_id", "account_name", "campaign_id", "campaign_name", "adset_id", "adset_name", "ad_id", "ad_name",
+    "date_start", "date_stop", "impressions", "reach", "frequency", "clicks", "unique_clicks", "spend", "cpc", "cpm",
+    "cpp", "ctr", "unique_ctr", "actions", "action_values", "unique_actions", "cost_per_action_type",
+    "video_p25_watched_actions", "video_p50_watched_actions", "video_p75_watched_actions",
+    "video_p100_watched_actions");
+
+  /**
+   * Selected fields: a few plain fields, or many fields including actions arrays.
+   */
+  @Param({"few", "many"})
+  public String fields;
+
+  /**
+   * Selected breakdown, as shown in the plugin configuration.
+   */
+  @Param({"none", "age, gender *", "publisher_platform, platform_position, impression_device *"})
+  public String breakdown;
+
+  @Param({"false", "true"})
+  public boolean typed;
+
+  private List<String> selectedFields;
+  private Breakdowns breakdowns;
+
+  @Setup
+  public void setup() {
+    selectedFields = "few".equals(fields) ? FEW_FIELDS : MANY_FIELDS;
+    breakdowns = "none".equals(breakdown) ? null : SourceConfigHelper.parseBreakdowns(breakdown);
+  }
+
+  @Benchmark
+  public Schema buildAdsInsightsSchema() {
+    return SchemaHelper.buildAdsInsightsSchema(selectedFields, breakdowns, typed);
+  }
+}
@@ -28,16 +28,27 @@ import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.api.batch.BatchSourceContext;
 import io.cdap.plugin.common.IdUtils;
 import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.facebook.source.common.AdsInsightsTransformer;
+import io.cdap.plugin.facebook.source.common.InsightsTransformPlan;
 import io.cdap.plugin.facebook.source.common.InsightsType;
+import io.cdap.plugin.facebook.source.common.RecordTracer;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Plugin returns records from Facebook Insights API.
@@ -46,9 +57,17 @@ import java.util.stream.Collectors;
 @Name(FacebookBatchSource.NAME)
 @Description("Reads data from Facebook Insights API.")
 public class FacebookBatchSource extends BatchSource<NullWritable, InsightsType, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(FacebookBatchSource.class);
   public static final String NAME = "FacebookAds";
+  // number of records, after which metrics accumulated by readers are emitted
+  private static final int METRICS_EMIT_RECORDS = 1000;
 
   private final FacebookBatchSourceConfig config;
+  private InsightsTransformPlan transformPlan;
+  private RecordTracer tracer;
+  private StageMetrics metrics;
+  private long transformNanos;
+  private int transformedRecords;
 
   public FacebookBatchSource(FacebookBatchSourceConfig config) {
     this.config = config;
@@ -62,8 +81,13 @@ public class FacebookBatchSource extends BatchSource<NullWritable, InsightsType,
   }
 
   @Override
-  public void prepareRun(BatchSourceContext batchSourceContext) {
+  public void prepareRun(BatchSourceContext batchSourceContext) throws IOException {
     validateConfiguration(batchSourceContext.getFailureCollector());
+    WatermarkStore watermarks = createWatermarkStore();
+    if (watermarks != null) {
+      // watermarks staged by a run, that did not finish, are not valid
+      watermarks.abort();
+    }
     LineageRecorder lineageRecorder = new LineageRecorder(batchSourceContext, config.referenceName);
     lineageRecorder.createExternalDataset(config.getSchema());
     lineageRecorder.recordRead("Read", "Reading Facebook Insights",
@@ -74,9 +98,68 @@ public class FacebookBatchSource extends BatchSource<NullWritable, InsightsType,
     batchSourceContext.setInput(Input.of(config.referenceName, new FacebookInputFormatProvider(config)));
   }
 
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    try {
+      WatermarkStore watermarks = createWatermarkStore();
+      if (watermarks == null) {
+        return;
+      }
+      if (succeeded) {
+        watermarks.commit();
+      } else {
+        watermarks.abort();
+      }
+    } catch (IOException e) {
+      // the next run reads the same days again
+      LOG.warn("Failed to update watermarks in '{}'.", config.getWatermarkPath(), e);
+    }
+  }
+
+  @Override
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    transformPlan = InsightsTransformPlan.compile(config.getSchema());
+    tracer = new RecordTracer(config.getTraceSampleRate(), config.getTraceObjectIds());
+    metrics = context.getMetrics();
+  }
+
   @Override
   public void transform(KeyValue<NullWritable, InsightsType> input, Emitter<StructuredRecord> emitter) {
-    emitter.emit(AdsInsightsTransformer.transform(input.getValue(), config.getSchema()));
+    long startNanos = System.nanoTime();
+    StructuredRecord record = AdsInsightsTransformer.transform(input.getValue(), transformPlan,
+                                                               config.getObjectIdField(), tracer);
+    transformNanos += System.nanoTime() - startNanos;
+    emitter.emit(record);
+    if (++transformedRecords >= METRICS_EMIT_RECORDS) {
+      emitMetrics();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (metrics != null) {
+      emitMetrics();
+    }
+    super.destroy();
+  }
+
+  private void emitMetrics() {
+    metrics.count(ReaderMetrics.TRANSFORM_TIME_US, (int) TimeUnit.NANOSECONDS.toMicros(transformNanos));
+    transformNanos = 0;
+    transformedRecords = 0;
+    ReaderMetrics.getInstance().emit(metrics);
+  }
+
+  @Nullable
+  private WatermarkStore createWatermarkStore() throws IOException {
+    String watermarkPath = config.getWatermarkPath();
+    // replayed runs read recorded splits, so they neither stage nor commit watermarks
+    if (watermarkPath == null || config.isReplaying()) {
+      return null;
+    }
+    return new WatermarkStore(watermarkPath, new Configuration());
   }
 
   private void validateConfiguration(FailureCollector failureCollector) {
@@ -22,6 +22,13 @@ import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.config.SourceConfigHelper;
+import io.cdap.plugin.facebook.source.common.http.HttpTransports;
+import io.cdap.plugin.facebook.source.common.http.ThrottleController;
+import io.cdap.plugin.facebook.source.common.requests.BatchPageSource;
+
+import java.time.LocalDate;
 
 import javax.annotation.Nullable;
 
@@ -31,6 +38,49 @@ import javax.annotation.Nullable;
 public class FacebookBatchSourceConfig extends BaseSourceConfig {
   public static final String PROPERTY_SORTING = "sorting";
   public static final String PROPERTY_SORT_DIRECTION = "sortDirection";
+  public static final String PROPERTY_TIME_SLICE_DAYS = "timeSliceDays";
+  public static final String PROPERTY_CHILD_OBJECT_TYPE = "childObjectType";
+  public static final String PROPERTY_MAX_SPLITS = "maxSplits";
+  public static final String PROPERTY_TARGET_SPLIT_ROWS = "targetSplitRows";
+  public static final String PROPERTY_PLANNING_CACHE_TTL = "planningCacheTtl";
+  public static final String PROPERTY_USAGE_THRESHOLD = "usageThreshold";
+  public static final String PROPERTY_MAX_RETRIES = "maxRetries";
+  public static final String PROPERTY_BATCH_SIZE = "batchSize";
+  public static final String PROPERTY_PREFETCH_PAGES = "prefetchPages";
+  public static final String PROPERTY_REPORT_MODE = "reportMode";
+  public static final String PROPERTY_MAX_RUNNING_REPORTS = "maxRunningReports";
+  public static final String PROPERTY_MAX_REPORT_WAIT = "maxReportWait";
+  public static final String PROPERTY_WATERMARK_PATH = "watermarkPath";
+  public static final String PROPERTY_RESTATEMENT_DAYS = "restatementDays";
+  public static final String PROPERTY_CACHE_PATH = "cachePath";
+  public static final String PROPERTY_CACHE_MAX_SIZE = "cacheMaxSize";
+  public static final String PROPERTY_CACHE_TTL = "cacheTtl";
+  public static final String PROPERTY_ATTRIBUTION_DAYS = "attributionDays";
+  public static final String PROPERTY_HTTP_TRANSPORT = "httpTransport";
+  public static final String PROPERTY_CONNECT_TIMEOUT = "connectTimeout";
+  public static final String PROPERTY_READ_TIMEOUT = "readTimeout";
+  public static final String PROPERTY_INSIGHTS_CLIENT = "insightsClient";
+  public static final String PROPERTY_ARCHIVE_MODE = "archiveMode";
+  public static final String PROPERTY_ARCHIVE_PATH = "archivePath";
+  public static final String REPORT_MODE_SYNC = "sync";
+  public static final String REPORT_MODE_ASYNC = "async";
+  public static final String INSIGHTS_CLIENT_SDK = "sdk";
+  public static final String INSIGHTS_CLIENT_DIRECT = "direct";
+  public static final String ARCHIVE_MODE_NONE = "none";
+  public static final String ARCHIVE_MODE_RECORD = "record";
+  public static final String ARCHIVE_MODE_REPLAY = "replay";
+  public static final int DEFAULT_MAX_SPLITS = 100;
+  public static final int DEFAULT_MAX_RUNNING_REPORTS = 5;
+  public static final int DEFAULT_MAX_REPORT_WAIT = 60;
+  public static final int DEFAULT_PREFETCH_PAGES = 1;
+  public static final int DEFAULT_BATCH_SIZE = 1;
+  public static final int DEFAULT_USAGE_THRESHOLD = ThrottleController.DEFAULT_USAGE_THRESHOLD;
+  public static final int DEFAULT_MAX_RETRIES = 5;
+  public static final int DEFAULT_PLANNING_CACHE_TTL = 60;
+  public static final int DEFAULT_RESTATEMENT_DAYS = 3;
+  public static final int DEFAULT_CACHE_MAX_SIZE = 1024;
+  public static final int DEFAULT_CACHE_TTL = 90;
+  public static final int DEFAULT_ATTRIBUTION_DAYS = 28;
 
   @Name(PROPERTY_SORTING)
   @Description("Field name to sort results by.")
@@ -44,6 +94,172 @@ public class FacebookBatchSourceConfig extends BaseSourceConfig {
   @Macro
   protected String sortDirection;
 
+  @Name(PROPERTY_TIME_SLICE_DAYS)
+  @Description("Number of days read by a single split. If set, time range is divided into slices of this size, "
+    + "which are read in parallel. Results are aggregated per slice.")
+  @Nullable
+  @Macro
+  protected Integer timeSliceDays;
+
+  @Name(PROPERTY_CHILD_OBJECT_TYPE)
+  @Description("Type of child objects to divide the read by. Child objects with insights are listed up front "
+    + "and spread across splits in balanced groups.")
+  @Nullable
+  @Macro
+  protected String childObjectType;
+
+  @Name(PROPERTY_MAX_SPLITS)
+  @Description("Maximum number of splits to divide the read into.")
+  @Nullable
+  @Macro
+  protected Integer maxSplits;
+
+  @Name(PROPERTY_TARGET_SPLIT_ROWS)
+  @Description("Estimated number of rows to read by a single split. If set, size of every split is estimated "
+    + "up front, groups of child objects are merged or subdivided to this size and largest splits are read first. "
+    + "Requires splitting by child objects.")
+  @Nullable
+  @Macro
+  protected Integer targetSplitRows;
+
+  @Name(PROPERTY_USAGE_THRESHOLD)
+  @Description("Percentage of rate limit usage reported by Graph API, above which requests are slowed down, so that "
+    + "parallel splits approach the limit gradually instead of hitting it. Set to 100 to only wait when the limit "
+    + "is reached.")
+  @Nullable
+  @Macro
+  protected Integer usageThreshold;
+
+  @Name(PROPERTY_MAX_RETRIES)
+  @Description("Maximum number of retries of a page, that failed with a transient error. Failed page is read again "
+    + "from the cursor of the last page read, with exponentially growing delay between retries.")
+  @Nullable
+  @Macro
+  protected Integer maxRetries;
+
+  @Name(PROPERTY_BATCH_SIZE)
+  @Description("Maximum number of insights requests packed into a single Graph API batch request. If the read is "
+    + "planned into more splits than the maximum number of splits, several splits are read together by batch "
+    + "requests. Set to 1 to disable batching.")
+  @Nullable
+  @Macro
+  protected Integer batchSize;
+
+  @Name(PROPERTY_PREFETCH_PAGES)
+  @Description("Number of pages read ahead on a background thread, while the current page is processed. "
+    + "Set to 0 to read pages only when needed.")
+  @Nullable
+  @Macro
+  protected Integer prefetchPages;
+
+  @Name(PROPERTY_REPORT_MODE)
+  @Description("How insights are read. 'sync' reads insights directly, 'async' submits report runs and reads their "
+    + "results once completed, which is suitable for large reports, that time out when read directly.")
+  @Nullable
+  @Macro
+  protected String reportMode;
+
+  @Name(PROPERTY_MAX_RUNNING_REPORTS)
+  @Description("Maximum number of report runs in flight at the same time for the same access token, per executor.")
+  @Nullable
+  @Macro
+  protected Integer maxRunningReports;
+
+  @Name(PROPERTY_MAX_REPORT_WAIT)
+  @Description("Maximum number of minutes to wait for a report run to complete, before the read fails.")
+  @Nullable
+  @Macro
+  protected Integer maxReportWait;
+
+  @Name(PROPERTY_PLANNING_CACHE_TTL)
+  @Description("Number of minutes ad accounts discovered for a business and estimated split sizes are cached for "
+    + "on local disk. Set to 0 to repeat planning requests on every run.")
+  @Nullable
+  @Macro
+  protected Integer planningCacheTtl;
+
+  @Name(PROPERTY_WATERMARK_PATH)
+  @Description("Directory to keep the last day read for every object between runs. If set, every run reads only "
+    + "days after the last day read by the previous successful run, along with the restatement window. Insights "
+    + "are read as a row per day, rows of restated days replace rows emitted for them by earlier runs.")
+  @Nullable
+  @Macro
+  protected String watermarkPath;
+
+  @Name(PROPERTY_RESTATEMENT_DAYS)
+  @Description("Number of days up to the last day read, that are read again by the next incremental run, so that "
+    + "late attribution updates are picked up.")
+  @Nullable
+  @Macro
+  protected Integer restatementDays;
+
+  @Name(PROPERTY_CACHE_PATH)
+  @Description("Directory to cache insights of finalized days in. Insights of days older than the attribution "
+    + "window are read from Graph API once and then served from the cache. Insights are cached by day, so days per "
+    + "split must be 1 or watermark path must be set.")
+  @Nullable
+  @Macro
+  protected String cachePath;
+
+  @Name(PROPERTY_CACHE_MAX_SIZE)
+  @Description("Maximum total size of cached insights in megabytes. Least recently used entries are evicted first.")
+  @Nullable
+  @Macro
+  protected Integer cacheMaxSize;
+
+  @Name(PROPERTY_CACHE_TTL)
+  @Description("Number of days cached insights are kept for.")
+  @Nullable
+  @Macro
+  protected Integer cacheTtl;
+
+  @Name(PROPERTY_ATTRIBUTION_DAYS)
+  @Description("Number of days insights may still change for, as conversions are attributed to them. Only older "
+    + "days are cached.")
+  @Nullable
+  @Macro
+  protected Integer attributionDays;
+
+  @Name(PROPERTY_HTTP_TRANSPORT)
+  @Description("Transport to send Graph API requests by. 'pooled' reuses keep-alive connections shared by all "
+    + "readers in the JVM and requests compressed responses, 'sdk' opens a connection per request.")
+  @Nullable
+  @Macro
+  protected String httpTransport;
+
+  @Name(PROPERTY_CONNECT_TIMEOUT)
+  @Description("Number of seconds to wait for connection to Graph API. Used by pooled transport.")
+  @Nullable
+  @Macro
+  protected Integer connectTimeout;
+
+  @Name(PROPERTY_READ_TIMEOUT)
+  @Description("Number of seconds to wait for Graph API response. Used by pooled transport.")
+  @Nullable
+  @Macro
+  protected Integer readTimeout;
+
+  @Name(PROPERTY_INSIGHTS_CLIENT)
+  @Description("Client to read insights by. 'sdk' reads pages into objects of facebook-java-business-sdk, 'direct' "
+    + "decodes pages into records while reading the response. Direct client always uses pooled transport and reads "
+    + "requests of a split one after another.")
+  @Nullable
+  @Macro
+  protected String insightsClient;
+
+  @Name(PROPERTY_ARCHIVE_MODE)
+  @Description("Whether to archive insights responses. 'record' writes pages read from Graph API to the archive "
+    + "path, 'replay' reads pages recorded there before instead of sending requests.")
+  @Nullable
+  @Macro
+  protected String archiveMode;
+
+  @Name(PROPERTY_ARCHIVE_PATH)
+  @Description("Directory to record insights responses to or replay them from.")
+  @Nullable
+  @Macro
+  protected String archivePath;
+
   public FacebookBatchSourceConfig(String referenceName) {
     super(referenceName);
   }
@@ -52,6 +268,31 @@ public class FacebookBatchSourceConfig extends BaseSourceConfig {
     super(builder.referenceName);
     this.sorting = builder.sorting;
     this.sortDirection = builder.sortDirection;
+    this.timeSliceDays = builder.timeSliceDays;
+    this.childObjectType = builder.childObjectType;
+    this.maxSplits = builder.maxSplits;
+    this.targetSplitRows = builder.targetSplitRows;
+    this.usageThreshold = builder.usageThreshold;
+    this.maxRetries = builder.maxRetries;
+    this.batchSize = builder.batchSize;
+    this.prefetchPages = builder.prefetchPages;
+    this.reportMode = builder.reportMode;
+    this.maxRunningReports = builder.maxRunningReports;
+    this.maxReportWait = builder.maxReportWait;
+    this.businessId = builder.businessId;
+    this.planningCacheTtl = builder.planningCacheTtl;
+    this.watermarkPath = builder.watermarkPath;
+    this.restatementDays = builder.restatementDays;
+    this.cachePath = builder.cachePath;
+    this.cacheMaxSize = builder.cacheMaxSize;
+    this.cacheTtl = builder.cacheTtl;
+    this.attributionDays = builder.attributionDays;
+    this.httpTransport = builder.httpTransport;
+    this.connectTimeout = builder.connectTimeout;
+    this.readTimeout = builder.readTimeout;
+    this.insightsClient = builder.insightsClient;
+    this.archiveMode = builder.archiveMode;
+    this.archivePath = builder.archivePath;
     this.accessToken = builder.accessToken;
     this.objectType = builder.objectType;
     this.adId = builder.adId;
@@ -66,6 +307,10 @@ public class FacebookBatchSourceConfig extends BaseSourceConfig {
     this.datePreset = builder.datePreset;
     this.breakdown = builder.breakdown;
     this.additionalBreakdown = builder.additionalBreakdown;
+    this.objectIdField = builder.objectIdField;
+    this.typedFields = builder.typedFields;
+    this.traceSampleRate = builder.traceSampleRate;
+    this.traceObjectIds = builder.traceObjectIds;
   }
 
   public static Builder builder() {
@@ -85,11 +330,205 @@ public class FacebookBatchSourceConfig extends BaseSourceConfig {
     }
   }
 
+  /**
+   * Returns number of days per split.
+   * @return The number of days or null if time range should not be split
+   */
+  @Nullable
+  public Integer getTimeSliceDays() {
+    return timeSliceDays;
+  }
+
+  /**
+   * Returns type of child objects to divide the read by.
+   * @return The instance of ObjectType or null if read should not be divided by child objects
+   */
+  @Nullable
+  public ObjectType getChildObjectType() {
+    if (!Strings.isNullOrEmpty(childObjectType) && !"none".equals(childObjectType)) {
+      return ObjectType.fromString(childObjectType);
+    } else {
+      return null;
+    }
+  }
+
+  public int getMaxSplits() {
+    return maxSplits == null ? DEFAULT_MAX_SPLITS : maxSplits;
+  }
+
+  /**
+   * Returns estimated number of rows per split.
+   * @return The number of rows or null if split sizes should not be estimated
+   */
+  @Nullable
+  public Integer getTargetSplitRows() {
+    return targetSplitRows;
+  }
+
+  public int getUsageThreshold() {
+    return usageThreshold == null ? DEFAULT_USAGE_THRESHOLD : usageThreshold;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries == null ? DEFAULT_MAX_RETRIES : maxRetries;
+  }
+
+  public int getBatchSize() {
+    return batchSize == null ? DEFAULT_BATCH_SIZE : batchSize;
+  }
+
+  public int getPrefetchPages() {
+    return prefetchPages == null ? DEFAULT_PREFETCH_PAGES : prefetchPages;
+  }
+
+  /**
+   * Returns whether insights should be read by asynchronous report runs.
+   */
+  public boolean isAsyncReportMode() {
+    return REPORT_MODE_ASYNC.equals(reportMode);
+  }
+
+  public int getMaxRunningReports() {
+    return maxRunningReports == null ? DEFAULT_MAX_RUNNING_REPORTS : maxRunningReports;
+  }
+
+  public int getMaxReportWait() {
+    return maxReportWait == null ? DEFAULT_MAX_REPORT_WAIT : maxReportWait;
+  }
+
+  public int getPlanningCacheTtl() {
+    return planningCacheTtl == null ? DEFAULT_PLANNING_CACHE_TTL : planningCacheTtl;
+  }
+
+  /**
+   * Returns directory to keep watermarks of incremental reads in.
+   * @return The path or null if every run reads the whole time range
+   */
+  @Nullable
+  public String getWatermarkPath() {
+    return Strings.isNullOrEmpty(watermarkPath) ? null : watermarkPath;
+  }
+
+  /**
+   * Returns whether insights are read as a row per day. Incremental reads restate days read before, so every day
+   * has its own row, which replaces the row emitted by the previous run.
+   */
+  @Override
+  public boolean isDailyRows() {
+    return getWatermarkPath() != null;
+  }
+
+  public int getRestatementDays() {
+    return restatementDays == null ? DEFAULT_RESTATEMENT_DAYS : restatementDays;
+  }
+
+  /**
+   * Returns directory to cache insights of finalized days in.
+   * @return The path or null if insights are not cached
+   */
+  @Nullable
+  public String getCachePath() {
+    return Strings.isNullOrEmpty(cachePath) ? null : cachePath;
+  }
+
+  public int getCacheMaxSize() {
+    return cacheMaxSize == null ? DEFAULT_CACHE_MAX_SIZE : cacheMaxSize;
+  }
+
+  public int getCacheTtl() {
+    return cacheTtl == null ? DEFAULT_CACHE_TTL : cacheTtl;
+  }
+
+  public int getAttributionDays() {
+    return attributionDays == null ? DEFAULT_ATTRIBUTION_DAYS : attributionDays;
+  }
+
+  public String getHttpTransport() {
+    return Strings.isNullOrEmpty(httpTransport) ? HttpTransports.POOLED : httpTransport;
+  }
+
+  public int getConnectTimeout() {
+    return connectTimeout == null ? HttpTransports.DEFAULT_CONNECT_TIMEOUT : connectTimeout;
+  }
+
+  public int getReadTimeout() {
+    return readTimeout == null ? HttpTransports.DEFAULT_READ_TIMEOUT : readTimeout;
+  }
+
+  public boolean isDirectClient() {
+    return INSIGHTS_CLIENT_DIRECT.equals(insightsClient);
+  }
+
+  /**
+   * Returns whether pages read from Graph API should be recorded into the archive.
+   */
+  public boolean isRecording() {
+    return ARCHIVE_MODE_RECORD.equals(archiveMode);
+  }
+
+  /**
+   * Returns whether pages should be replayed from the archive instead of reading them from Graph API.
+   */
+  public boolean isReplaying() {
+    return ARCHIVE_MODE_REPLAY.equals(archiveMode);
+  }
+
+  /**
+   * Returns directory to record insights responses to or replay them from.
+   * @return The path or null if not set
+   */
+  @Nullable
+  public String getArchivePath() {
+    return Strings.isNullOrEmpty(archivePath) ? null : archivePath;
+  }
+
   @Override
   public void validate(FailureCollector failureCollector) {
     super.validate(failureCollector);
 
     validateSorting(failureCollector);
+    validateTimeSlicing(failureCollector);
+    validateChildSplitting(failureCollector);
+    validateReportMode(failureCollector);
+    validateIncremental(failureCollector);
+    validateCache(failureCollector);
+    validateTransport(failureCollector);
+    validateInsightsClient(failureCollector);
+    validateArchive(failureCollector);
+
+    if (!containsMacro(PROPERTY_USAGE_THRESHOLD) && usageThreshold != null
+      && (usageThreshold < 1 || usageThreshold > 100)) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid usage threshold", usageThreshold),
+                    "Set percentage between 1 and 100.")
+        .withConfigProperty(PROPERTY_USAGE_THRESHOLD);
+    }
+    if (!containsMacro(PROPERTY_MAX_RETRIES) && maxRetries != null && maxRetries < 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid number of retries", maxRetries),
+                    "Set non-negative number of retries.")
+        .withConfigProperty(PROPERTY_MAX_RETRIES);
+    }
+    if (!containsMacro(PROPERTY_BATCH_SIZE) && batchSize != null
+      && (batchSize < 1 || batchSize > BatchPageSource.MAX_BATCH_SIZE)) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid batch size", batchSize),
+                    String.format("Set number of requests between 1 and %d.", BatchPageSource.MAX_BATCH_SIZE))
+        .withConfigProperty(PROPERTY_BATCH_SIZE);
+    }
+    if (!containsMacro(PROPERTY_PREFETCH_PAGES) && prefetchPages != null && prefetchPages < 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid number of prefetched pages", prefetchPages),
+                    "Set non-negative number of pages.")
+        .withConfigProperty(PROPERTY_PREFETCH_PAGES);
+    }
+
+    if (!containsMacro(PROPERTY_PLANNING_CACHE_TTL) && planningCacheTtl != null && planningCacheTtl < 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid cache TTL", planningCacheTtl),
+                    "Set non-negative number of minutes.")
+        .withConfigProperty(PROPERTY_PLANNING_CACHE_TTL);
+    }
   }
 
   void validateSorting(FailureCollector failureCollector) {
@@ -107,6 +546,266 @@ public class FacebookBatchSourceConfig extends BaseSourceConfig {
     }
   }
 
+  void validateTimeSlicing(FailureCollector failureCollector) {
+    if (containsMacro(PROPERTY_TIME_SLICE_DAYS) || timeSliceDays == null) {
+      return;
+    }
+    if (timeSliceDays <= 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid number of days per split", timeSliceDays),
+                    "Set positive number of days or leave empty to read time range by a single split.")
+        .withConfigProperty(PROPERTY_TIME_SLICE_DAYS);
+    }
+    if (!containsMacro(PROPERTY_OBJECT_TYPE) && getObjectType() == ObjectType.Page) {
+      failureCollector
+        .addFailure("Page insights can't be split by time range.", "Leave number of days per split empty.")
+        .withConfigProperty(PROPERTY_TIME_SLICE_DAYS);
+    }
+    if (!containsMacro(PROPERTY_DATE_PRESET) && SourceConfigHelper.isValidDatePreset(getDatePreset())
+      && SourceConfigHelper.resolveDatePreset(getDatePreset(), LocalDate.now()) == null) {
+      failureCollector
+        .addFailure(String.format("'%s' time range can't be split.", getDatePreset()),
+                    "Choose time range with fixed dates or leave number of days per split empty.")
+        .withConfigProperty(PROPERTY_TIME_SLICE_DAYS);
+    }
+  }
+
+  void validateIncremental(FailureCollector failureCollector) {
+    if (!containsMacro(PROPERTY_RESTATEMENT_DAYS) && restatementDays != null && restatementDays < 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid number of restatement days", restatementDays),
+                    "Set non-negative number of days.")
+        .withConfigProperty(PROPERTY_RESTATEMENT_DAYS);
+    }
+    if (containsMacro(PROPERTY_WATERMARK_PATH) || Strings.isNullOrEmpty(watermarkPath)) {
+      return;
+    }
+    if (!containsMacro(PROPERTY_OBJECT_TYPE) && getObjectType() == ObjectType.Page) {
+      failureCollector
+        .addFailure("Page insights can't be read incrementally.", "Leave watermark path empty.")
+        .withConfigProperty(PROPERTY_WATERMARK_PATH);
+    }
+    if (!containsMacro(PROPERTY_DATE_PRESET) && SourceConfigHelper.isValidDatePreset(getDatePreset())
+      && SourceConfigHelper.resolveDatePreset(getDatePreset(), LocalDate.now()) == null) {
+      failureCollector
+        .addFailure(String.format("'%s' time range can't be read incrementally.", getDatePreset()),
+                    "Choose time range with fixed dates or leave watermark path empty.")
+        .withConfigProperty(PROPERTY_WATERMARK_PATH);
+    }
+  }
+
+  void validateCache(FailureCollector failureCollector) {
+    if (!containsMacro(PROPERTY_CACHE_PATH) && !Strings.isNullOrEmpty(cachePath)
+      && !containsMacro(PROPERTY_TIME_SLICE_DAYS) && !containsMacro(PROPERTY_WATERMARK_PATH)) {
+      // insights are cached by day, so only reads returning a row per day are cached
+      boolean dailySlices = Integer.valueOf(1).equals(timeSliceDays);
+      if (!dailySlices && !isDailyRows()) {
+        failureCollector
+          .addFailure("Only insights read by day can be cached.",
+                      "Set days per split to 1, set watermark path or remove cache path.")
+          .withConfigProperty(PROPERTY_CACHE_PATH);
+      } else if (!dailySlices && !containsMacro(PROPERTY_SORTING) && !Strings.isNullOrEmpty(sorting)) {
+        // cached days are read one after another, so rows of a split would come out of order
+        failureCollector
+          .addFailure("Sorted insights of several days per split can't be cached.",
+                      "Set days per split to 1, remove sorting or remove cache path.")
+          .withConfigProperty(PROPERTY_CACHE_PATH);
+      }
+    }
+    if (!containsMacro(PROPERTY_CACHE_MAX_SIZE) && cacheMaxSize != null && cacheMaxSize < 1) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid cache size", cacheMaxSize), "Set positive number of megabytes.")
+        .withConfigProperty(PROPERTY_CACHE_MAX_SIZE);
+    }
+    if (!containsMacro(PROPERTY_CACHE_TTL) && cacheTtl != null && cacheTtl < 1) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid cache TTL", cacheTtl), "Set positive number of days.")
+        .withConfigProperty(PROPERTY_CACHE_TTL);
+    }
+    if (!containsMacro(PROPERTY_ATTRIBUTION_DAYS) && attributionDays != null && attributionDays < 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid number of attribution days", attributionDays),
+                    "Set non-negative number of days.")
+        .withConfigProperty(PROPERTY_ATTRIBUTION_DAYS);
+    }
+  }
+
+  void validateTransport(FailureCollector failureCollector) {
+    if (!containsMacro(PROPERTY_HTTP_TRANSPORT) && !Strings.isNullOrEmpty(httpTransport)
+      && !HttpTransports.POOLED.equals(httpTransport) && !HttpTransports.SDK.equals(httpTransport)) {
+      failureCollector
+        .addFailure(String.format("'%s' is invalid transport.", httpTransport),
+                    String.format("Choose '%s' or '%s'.", HttpTransports.POOLED, HttpTransports.SDK))
+        .withConfigProperty(PROPERTY_HTTP_TRANSPORT);
+    }
+    if (!containsMacro(PROPERTY_CONNECT_TIMEOUT) && connectTimeout != null && connectTimeout < 1) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid connect timeout", connectTimeout), "Set positive number of seconds.")
+        .withConfigProperty(PROPERTY_CONNECT_TIMEOUT);
+    }
+    if (!containsMacro(PROPERTY_READ_TIMEOUT) && readTimeout != null && readTimeout < 1) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid read timeout", readTimeout), "Set positive number of seconds.")
+        .withConfigProperty(PROPERTY_READ_TIMEOUT);
+    }
+  }
+
+  void validateInsightsClient(FailureCollector failureCollector) {
+    if (containsMacro(PROPERTY_INSIGHTS_CLIENT) || Strings.isNullOrEmpty(insightsClient)) {
+      return;
+    }
+    if (!INSIGHTS_CLIENT_SDK.equals(insightsClient) && !INSIGHTS_CLIENT_DIRECT.equals(insightsClient)) {
+      failureCollector
+        .addFailure(String.format("'%s' is invalid insights client.", insightsClient),
+                    String.format("Choose '%s' or '%s'.", INSIGHTS_CLIENT_SDK, INSIGHTS_CLIENT_DIRECT))
+        .withConfigProperty(PROPERTY_INSIGHTS_CLIENT);
+      return;
+    }
+    if (!isDirectClient()) {
+      return;
+    }
+    if (!containsMacro(PROPERTY_OBJECT_TYPE) && getObjectType() == ObjectType.Page) {
+      failureCollector
+        .addFailure("Page insights can't be read by direct client.",
+                    String.format("Choose '%s' client.", INSIGHTS_CLIENT_SDK))
+        .withConfigProperty(PROPERTY_INSIGHTS_CLIENT);
+    }
+    if (!containsMacro(PROPERTY_REPORT_MODE) && isAsyncReportMode()) {
+      failureCollector
+        .addFailure("Asynchronous report runs can't be read by direct client.", "Choose 'sync' report mode.")
+        .withConfigProperty(PROPERTY_REPORT_MODE);
+    }
+    if (!containsMacro(PROPERTY_CACHE_PATH) && !Strings.isNullOrEmpty(cachePath)) {
+      failureCollector
+        .addFailure("Pages read by direct client can't be cached.", "Remove cache path.")
+        .withConfigProperty(PROPERTY_CACHE_PATH);
+    }
+  }
+
+  void validateArchive(FailureCollector failureCollector) {
+    if (containsMacro(PROPERTY_ARCHIVE_MODE) || Strings.isNullOrEmpty(archiveMode)
+      || ARCHIVE_MODE_NONE.equals(archiveMode)) {
+      return;
+    }
+    if (!isRecording() && !isReplaying()) {
+      failureCollector
+        .addFailure(String.format("'%s' is invalid archive mode.", archiveMode),
+                    String.format("Choose '%s', '%s' or '%s'.", ARCHIVE_MODE_NONE, ARCHIVE_MODE_RECORD,
+                                  ARCHIVE_MODE_REPLAY))
+        .withConfigProperty(PROPERTY_ARCHIVE_MODE);
+      return;
+    }
+    if (!containsMacro(PROPERTY_ARCHIVE_PATH) && Strings.isNullOrEmpty(archivePath)) {
+      failureCollector
+        .addFailure("Archive path is not set.", "Set directory to keep archived responses in.")
+        .withConfigProperty(PROPERTY_ARCHIVE_PATH);
+    }
+    if (!containsMacro(PROPERTY_OBJECT_TYPE) && getObjectType() == ObjectType.Page) {
+      failureCollector
+        .addFailure("Page insights can't be archived.", String.format("Choose '%s' archive mode.", ARCHIVE_MODE_NONE))
+        .withConfigProperty(PROPERTY_ARCHIVE_MODE);
+    }
+    if (!containsMacro(PROPERTY_INSIGHTS_CLIENT) && isDirectClient()) {
+      failureCollector
+        .addFailure("Pages read by direct client can't be archived.",
+                    String.format("Choose '%s' client.", INSIGHTS_CLIENT_SDK))
+        .withConfigProperty(PROPERTY_INSIGHTS_CLIENT);
+    }
+  }
+
+  void validateReportMode(FailureCollector failureCollector) {
+    if (!containsMacro(PROPERTY_REPORT_MODE) && !Strings.isNullOrEmpty(reportMode)
+      && !REPORT_MODE_SYNC.equals(reportMode) && !REPORT_MODE_ASYNC.equals(reportMode)) {
+      failureCollector
+        .addFailure(String.format("'%s' is invalid report mode.", reportMode),
+                    String.format("Choose '%s' or '%s'.", REPORT_MODE_SYNC, REPORT_MODE_ASYNC))
+        .withConfigProperty(PROPERTY_REPORT_MODE);
+    }
+    if (!containsMacro(PROPERTY_REPORT_MODE) && !containsMacro(PROPERTY_OBJECT_TYPE) && isAsyncReportMode()
+      && getObjectType() == ObjectType.Page) {
+      failureCollector
+        .addFailure("Page insights can't be read by asynchronous report runs.", "Choose 'sync' report mode.")
+        .withConfigProperty(PROPERTY_REPORT_MODE);
+    }
+    if (!containsMacro(PROPERTY_REPORT_MODE) && !containsMacro(PROPERTY_BATCH_SIZE) && isAsyncReportMode()
+      && getBatchSize() > 1) {
+      failureCollector
+        .addFailure("Asynchronous report runs can't be read by batch requests.", "Set batch size to 1.")
+        .withConfigProperty(PROPERTY_BATCH_SIZE);
+    }
+    if (!containsMacro(PROPERTY_MAX_RUNNING_REPORTS) && maxRunningReports != null && maxRunningReports <= 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid maximum number of running reports", maxRunningReports),
+                    "Set positive number of reports.")
+        .withConfigProperty(PROPERTY_MAX_RUNNING_REPORTS);
+    }
+    if (!containsMacro(PROPERTY_MAX_REPORT_WAIT) && maxReportWait != null && maxReportWait <= 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid maximum report wait", maxReportWait),
+                    "Set positive number of minutes.")
+        .withConfigProperty(PROPERTY_MAX_REPORT_WAIT);
+    }
+  }
+
+  void validateChildSplitting(FailureCollector failureCollector) {
+    if (!containsMacro(PROPERTY_MAX_SPLITS) && maxSplits != null && maxSplits <= 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid maximum number of splits", maxSplits),
+                    "Set positive number of splits.")
+        .withConfigProperty(PROPERTY_MAX_SPLITS);
+    }
+    if (!containsMacro(PROPERTY_TARGET_SPLIT_ROWS) && targetSplitRows != null && targetSplitRows <= 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid number of rows per split", targetSplitRows),
+                    "Set positive number of rows.")
+        .withConfigProperty(PROPERTY_TARGET_SPLIT_ROWS);
+    }
+    if (!containsMacro(PROPERTY_TARGET_SPLIT_ROWS) && targetSplitRows != null
+      && !containsMacro(PROPERTY_CHILD_OBJECT_TYPE) && Strings.isNullOrEmpty(childObjectType)) {
+      // only groups of child objects are sized, time slices and objects are read by a split each regardless
+      failureCollector
+        .addFailure("Rows per split can only be targeted by splitting by child objects.",
+                    "Set type of child objects or remove target rows per split.")
+        .withConfigProperty(PROPERTY_TARGET_SPLIT_ROWS);
+    }
+    if (containsMacro(PROPERTY_CHILD_OBJECT_TYPE) || containsMacro(PROPERTY_OBJECT_TYPE)) {
+      return;
+    }
+
+    ObjectType childType;
+    try {
+      childType = getChildObjectType();
+    } catch (IllegalArgumentException ex) {
+      failureCollector
+        .addFailure(ex.getMessage(), "Choose one of 'Campaign', 'Ad Set' or 'Ad'.")
+        .withConfigProperty(PROPERTY_CHILD_OBJECT_TYPE);
+      return;
+    }
+    if (childType == null) {
+      return;
+    }
+    if (!getObjectType().isParentOf(childType)) {
+      failureCollector
+        .addFailure(String.format("'%s' objects don't belong to '%s'.", childType, getObjectType()),
+                    "Choose type of child objects, which are lower in hierarchy than the object type.")
+        .withConfigProperty(PROPERTY_CHILD_OBJECT_TYPE);
+    } else if (!containsMacro(PROPERTY_LEVEL)) {
+      // grouping children by splits changes aggregation of levels above child level
+      boolean validLevel;
+      try {
+        validLevel = !"default".equals(level) && !ObjectType.fromLevel(level).isParentOf(childType);
+      } catch (IllegalArgumentException ex) {
+        validLevel = false;
+      }
+      if (!validLevel) {
+        failureCollector
+          .addFailure(String.format("Level '%s' aggregates insights above '%s' objects.", level, childType),
+                      String.format("Set level to '%s' or lower.", childType.getLevel()))
+          .withConfigProperty(PROPERTY_LEVEL);
+      }
+    }
+  }
+
   /**
    * Builds configuration instance.
    */
@@ -128,6 +827,35 @@ public class FacebookBatchSourceConfig extends BaseSourceConfig {
     private String datePreset;
     private String breakdown;
     private String additionalBreakdown;
+    private String objectIdField;
+    private Boolean typedFields;
+    private Integer traceSampleRate;
+    private String traceObjectIds;
+    private Integer timeSliceDays;
+    private String childObjectType;
+    private Integer maxSplits;
+    private Integer targetSplitRows;
+    private Integer usageThreshold;
+    private Integer maxRetries;
+    private Integer batchSize;
+    private Integer prefetchPages;
+    private String reportMode;
+    private Integer maxRunningReports;
+    private Integer maxReportWait;
+    private String businessId;
+    private Integer planningCacheTtl;
+    private String watermarkPath;
+    private Integer restatementDays;
+    private String cachePath;
+    private Integer cacheMaxSize;
+    private Integer cacheTtl;
+    private Integer attributionDays;
+    private String httpTransport;
+    private Integer connectTimeout;
+    private Integer readTimeout;
+    private String insightsClient;
+    private String archiveMode;
+    private String archivePath;
 
     private Builder() {
 
@@ -218,6 +946,151 @@ public class FacebookBatchSourceConfig extends BaseSourceConfig {
       return this;
     }
 
+    public Builder setObjectIdField(String objectIdField) {
+      this.objectIdField = objectIdField;
+      return this;
+    }
+
+    public Builder setTypedFields(Boolean typedFields) {
+      this.typedFields = typedFields;
+      return this;
+    }
+
+    public Builder setTraceSampleRate(Integer traceSampleRate) {
+      this.traceSampleRate = traceSampleRate;
+      return this;
+    }
+
+    public Builder setTraceObjectIds(String traceObjectIds) {
+      this.traceObjectIds = traceObjectIds;
+      return this;
+    }
+
+    public Builder setTimeSliceDays(Integer timeSliceDays) {
+      this.timeSliceDays = timeSliceDays;
+      return this;
+    }
+
+    public Builder setChildObjectType(String childObjectType) {
+      this.childObjectType = childObjectType;
+      return this;
+    }
+
+    public Builder setMaxSplits(Integer maxSplits) {
+      this.maxSplits = maxSplits;
+      return this;
+    }
+
+    public Builder setBusinessId(String businessId) {
+      this.businessId = businessId;
+      return this;
+    }
+
+    public Builder setTargetSplitRows(Integer targetSplitRows) {
+      this.targetSplitRows = targetSplitRows;
+      return this;
+    }
+
+    public Builder setUsageThreshold(Integer usageThreshold) {
+      this.usageThreshold = usageThreshold;
+      return this;
+    }
+
+    public Builder setMaxRetries(Integer maxRetries) {
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    public Builder setBatchSize(Integer batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    public Builder setPrefetchPages(Integer prefetchPages) {
+      this.prefetchPages = prefetchPages;
+      return this;
+    }
+
+    public Builder setReportMode(String reportMode) {
+      this.reportMode = reportMode;
+      return this;
+    }
+
+    public Builder setMaxRunningReports(Integer maxRunningReports) {
+      this.maxRunningReports = maxRunningReports;
+      return this;
+    }
+
+    public Builder setMaxReportWait(Integer maxReportWait) {
+      this.maxReportWait = maxReportWait;
+      return this;
+    }
+
+    public Builder setPlanningCacheTtl(Integer planningCacheTtl) {
+      this.planningCacheTtl = planningCacheTtl;
+      return this;
+    }
+
+    public Builder setWatermarkPath(String watermarkPath) {
+      this.watermarkPath = watermarkPath;
+      return this;
+    }
+
+    public Builder setRestatementDays(Integer restatementDays) {
+      this.restatementDays = restatementDays;
+      return this;
+    }
+
+    public Builder setCachePath(String cachePath) {
+      this.cachePath = cachePath;
+      return this;
+    }
+
+    public Builder setCacheMaxSize(Integer cacheMaxSize) {
+      this.cacheMaxSize = cacheMaxSize;
+      return this;
+    }
+
+    public Builder setCacheTtl(Integer cacheTtl) {
+      this.cacheTtl = cacheTtl;
+      return this;
+    }
+
+    public Builder setAttributionDays(Integer attributionDays) {
+      this.attributionDays = attributionDays;
+      return this;
+    }
+
+    public Builder setHttpTransport(String httpTransport) {
+      this.httpTransport = httpTransport;
+      return this;
+    }
+
+    public Builder setConnectTimeout(Integer connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    public Builder setReadTimeout(Integer readTimeout) {
+      this.readTimeout = readTimeout;
+      return this;
+    }
+
+    public Builder setInsightsClient(String insightsClient) {
+      this.insightsClient = insightsClient;
+      return this;
+    }
+
+    public Builder setArchiveMode(String archiveMode) {
+      this.archiveMode = archiveMode;
+      return this;
+    }
+
+    public Builder setArchivePath(String archivePath) {
+      this.archivePath = archivePath;
+      return this;
+    }
+
     public FacebookBatchSourceConfig build() {
       return new FacebookBatchSourceConfig(this);
     }
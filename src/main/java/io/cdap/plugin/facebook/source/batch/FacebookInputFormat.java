@@ -16,27 +16,72 @@
 
 package io.cdap.plugin.facebook.source.batch;
 
+import com.facebook.ads.sdk.APIException;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.cdap.plugin.facebook.source.common.InsightsArchive;
+import io.cdap.plugin.facebook.source.common.InsightsPageCache;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
- * InputFormat for mapreduce job, which provides a single split of data.
+ * InputFormat for mapreduce job, which provides splits planned by {@link FacebookSplitPlanner}, or splits recorded
+ * into {@link InsightsArchive} when responses are replayed.
  */
 public class FacebookInputFormat extends InputFormat {
+  private static final Gson gson = new GsonBuilder().create();
 
   @Override
-  public List<InputSplit> getSplits(JobContext jobContext) {
-    /**
-     * TODO - Modify to Implement optimal split logic.
-     * JIRA - https://issues.cask.co/browse/PLUGIN-371
-     */
-    return Collections.singletonList(new FacebookSplit());
+  public List<InputSplit> getSplits(JobContext jobContext) throws IOException {
+    Configuration conf = jobContext.getConfiguration();
+    String configJson = conf.get(FacebookInputFormatProvider.PROPERTY_CONFIG_JSON);
+    FacebookBatchSourceConfig fbConfig = gson.fromJson(configJson, FacebookBatchSourceConfig.class);
+    if (fbConfig.isReplaying()) {
+      return getRecordedSplits(fbConfig, conf);
+    }
+
+    try {
+      String cachePath = fbConfig.getCachePath();
+      if (cachePath != null) {
+        new InsightsPageCache(cachePath, conf, fbConfig.getCacheMaxSize(), fbConfig.getCacheTtl()).evict();
+      }
+      String watermarkPath = fbConfig.getWatermarkPath();
+      WatermarkStore watermarks = watermarkPath == null ? null : new WatermarkStore(watermarkPath, conf);
+      return new ArrayList<>(new FacebookSplitPlanner(fbConfig, watermarks).plan());
+    } catch (APIException e) {
+      throw new IOException("Failed to plan splits: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns splits recorded by a run of the same query. Splits are not planned again, since planning sends requests
+   * to Graph API and may split differently.
+   */
+  private static List<InputSplit> getRecordedSplits(FacebookBatchSourceConfig fbConfig, Configuration conf)
+    throws IOException {
+    InsightsArchive archive = new InsightsArchive(fbConfig.getArchivePath(), conf);
+    List<InputSplit> splits = new ArrayList<>();
+    for (Map.Entry<String, List<InsightsScope>> entry : archive.list().entrySet()) {
+      List<InsightsScope> scopes = entry.getValue();
+      if (entry.getKey().equals(InsightsArchive.createKey(fbConfig, scopes, fbConfig.getSorting()))) {
+        splits.add(new FacebookSplit(scopes, 0));
+      }
+    }
+    if (splits.isEmpty()) {
+      throw new IOException(String.format("No responses to the configured query are recorded in '%s'.",
+                                          fbConfig.getArchivePath()));
+    }
+    return splits;
   }
 
   @Override
@@ -17,15 +17,38 @@
 package io.cdap.plugin.facebook.source.batch;
 
 import com.facebook.ads.sdk.APIException;
-import com.facebook.ads.sdk.APINodeList;
 import com.facebook.ads.sdk.AdsInsights;
 import com.facebook.ads.sdk.InsightsResult;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.facebook.source.common.InsightsArchive;
+import io.cdap.plugin.facebook.source.common.InsightsJsonDecoder;
+import io.cdap.plugin.facebook.source.common.InsightsPageCache;
 import io.cdap.plugin.facebook.source.common.InsightsType;
+import io.cdap.plugin.facebook.source.common.http.HttpTransports;
+import io.cdap.plugin.facebook.source.common.http.PooledRequestExecutor;
+import io.cdap.plugin.facebook.source.common.http.RetryPolicy;
+import io.cdap.plugin.facebook.source.common.http.ThrottlingRequestExecutor;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
+import io.cdap.plugin.facebook.source.common.requests.AdReportRunRequestWrapper;
+import io.cdap.plugin.facebook.source.common.requests.BatchPageSource;
+import io.cdap.plugin.facebook.source.common.requests.BatchableInsightsRequest;
+import io.cdap.plugin.facebook.source.common.requests.CachedPageSource;
+import io.cdap.plugin.facebook.source.common.requests.CachingPageSource;
+import io.cdap.plugin.facebook.source.common.requests.DirectInsightsRequest;
+import io.cdap.plugin.facebook.source.common.requests.DirectRecordSource;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPage;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPageSource;
 import io.cdap.plugin.facebook.source.common.requests.InsightsRequest;
 import io.cdap.plugin.facebook.source.common.requests.InsightsRequestFactory;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import io.cdap.plugin.facebook.source.common.requests.PrefetchingPageSource;
+import io.cdap.plugin.facebook.source.common.requests.RecordingPageSource;
+import io.cdap.plugin.facebook.source.common.requests.ReplayedPageSource;
+import io.cdap.plugin.facebook.source.common.requests.RequestPageSource;
+import io.cdap.plugin.facebook.source.common.requests.SequentialPageSource;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -33,7 +56,16 @@ import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * RecordReader implementation, which reads {@link AdsInsights} instances from Facebook Insights using
@@ -41,28 +73,165 @@ import java.util.Iterator;
  */
 public class FacebookRecordReader extends RecordReader<NullWritable, InsightsType> {
   private static final Gson gson = new GsonBuilder().create();
-  private APINodeList<?> currentPage;
-  private Iterator<?> currentPageIterator;
+  private InsightsPageSource pages;
+  private DirectRecordSource directRecords;
+  private Iterator<?> currentPageIterator = Collections.emptyIterator();
   private InsightsType currentInsight;
+  private String objectId;
+  private ReadProgress progress;
 
   @Override
   public void initialize(InputSplit inputSplit, TaskAttemptContext taskAttemptContext) throws IOException {
     Configuration conf = taskAttemptContext.getConfiguration();
     String configJson = conf.get(FacebookInputFormatProvider.PROPERTY_CONFIG_JSON);
     FacebookBatchSourceConfig fbConfig = gson.fromJson(configJson, FacebookBatchSourceConfig.class);
+    FacebookSplit split = (FacebookSplit) inputSplit;
+    List<InsightsScope> scopes = split.getScopes();
+    progress = new ReadProgress(scopes, split.getLength());
+    InsightsArchive archive = fbConfig.isRecording() || fbConfig.isReplaying()
+      ? new InsightsArchive(fbConfig.getArchivePath(), conf)
+      : null;
+    String archiveKey = archive == null ? null : InsightsArchive.createKey(fbConfig, scopes, fbConfig.getSorting());
+    if (fbConfig.isReplaying()) {
+      // replayed splits send no requests, so there is nothing to throttle
+      pages = new ReplayedPageSource(archive.replay(archiveKey),
+                                     InsightsRequestFactory.createContext(fbConfig.getAccessToken()));
+      prefetch(fbConfig);
+      return;
+    }
+    ThrottlingRequestExecutor.install(fbConfig.getUsageThreshold(), HttpTransports.get(
+      fbConfig.getHttpTransport(), fbConfig.getConnectTimeout(), fbConfig.getReadTimeout()));
+    RetryPolicy retryPolicy = new RetryPolicy(fbConfig.getMaxRetries());
+    if (fbConfig.isDirectClient()) {
+      initializeDirect(fbConfig, scopes, retryPolicy);
+      return;
+    }
+    InsightsPageCache cache = fbConfig.getCachePath() == null ? null
+      : new InsightsPageCache(fbConfig.getCachePath(), conf, fbConfig.getCacheMaxSize(), fbConfig.getCacheTtl());
+
+    List<InsightsPageSource> sources = new ArrayList<>();
+    List<InsightsScope> notCached = new ArrayList<>();
+    for (InsightsScope scope : scopes) {
+      List<String> cachedPages = isCacheable(fbConfig, cache, scope) ? getCachedPages(fbConfig, cache, scope) : null;
+      if (cachedPages != null) {
+        sources.add(new CachedPageSource(scope.getObjectId(), cachedPages,
+                                         InsightsRequestFactory.createContext(fbConfig.getAccessToken())));
+      } else {
+        notCached.add(scope);
+      }
+    }
+
+    InsightsPageSource source = null;
+    if (notCached.size() == 1) {
+      InsightsScope scope = notCached.get(0);
+      source = new RequestPageSource(scope.getObjectId(), createRequest(fbConfig, scope), retryPolicy);
+    } else if (!notCached.isEmpty()) {
+      // several small scopes are packed into a split to read them by batch requests
+      BatchPageSource batchPages = new BatchPageSource(fbConfig.getAccessToken(), retryPolicy);
+      for (InsightsScope scope : notCached) {
+        batchPages.add(scope.getObjectId(), createBatchableRequest(fbConfig, scope));
+      }
+      source = batchPages;
+    }
+    if (source != null) {
+      Map<String, Map<LocalDate, String>> cacheKeys = getCacheKeys(fbConfig, cache, notCached);
+      sources.add(cacheKeys.isEmpty() ? source : new CachingPageSource(source, cache, cacheKeys));
+    }
+    pages = sources.size() == 1 ? sources.get(0) : new SequentialPageSource(sources);
+    if (fbConfig.isRecording()) {
+      pages = new RecordingPageSource(pages, archive.record(archiveKey, scopes));
+    }
+    prefetch(fbConfig);
+  }
 
-    try {
-      InsightsRequest request = InsightsRequestFactory.createRequest(fbConfig);
+  private void prefetch(FacebookBatchSourceConfig fbConfig) {
+    if (fbConfig.getPrefetchPages() > 0) {
+      pages = new PrefetchingPageSource(pages, fbConfig.getPrefetchPages());
+    }
+  }
 
+  private void initializeDirect(FacebookBatchSourceConfig fbConfig, List<InsightsScope> scopes,
+                                RetryPolicy retryPolicy) {
+    PooledRequestExecutor executor = PooledRequestExecutor.getInstance(fbConfig.getConnectTimeout(),
+                                                                       fbConfig.getReadTimeout());
+    directRecords = new DirectRecordSource(executor, retryPolicy,
+                                           new InsightsJsonDecoder(fbConfig.getSchema(), fbConfig.getObjectIdField()));
+    for (InsightsScope scope : scopes) {
+      DirectInsightsRequest request = InsightsRequestFactory.createDirectRequest(fbConfig, scope);
       if (fbConfig.getSorting() != null) {
         request.setParam("sort", fbConfig.getSorting());
       }
+      directRecords.add(scope.getObjectId(), request);
+    }
+  }
 
-      currentPage = request.execute();
-      currentPageIterator = currentPage.iterator();
-    } catch (APIException e) {
-      throw new IOException(e.getMessage(), e);
+  /**
+   * Returns pages of all days of given scope in order of days or null if some day is not cached.
+   */
+  @Nullable
+  private static List<String> getCachedPages(FacebookBatchSourceConfig fbConfig, InsightsPageCache cache,
+                                             InsightsScope scope) {
+    List<String> pages = new ArrayList<>();
+    for (String key : InsightsPageCache.createDayKeys(fbConfig, scope, fbConfig.getSorting()).values()) {
+      List<String> dayPages = cache.get(key);
+      if (dayPages == null) {
+        return null;
+      }
+      pages.addAll(dayPages);
     }
+    return pages;
+  }
+
+  /**
+   * Returns cache keys of days of cacheable scopes by ids of their objects. Pages are told apart only by object id,
+   * so scopes sharing an object are not cached.
+   */
+  private static Map<String, Map<LocalDate, String>> getCacheKeys(FacebookBatchSourceConfig fbConfig,
+                                                                  @Nullable InsightsPageCache cache,
+                                                                  List<InsightsScope> scopes) {
+    Map<String, Map<LocalDate, String>> keys = new HashMap<>();
+    Set<String> sharedObjectIds = new HashSet<>();
+    for (InsightsScope scope : scopes) {
+      if (!isCacheable(fbConfig, cache, scope)) {
+        continue;
+      }
+      Map<LocalDate, String> dayKeys = InsightsPageCache.createDayKeys(fbConfig, scope, fbConfig.getSorting());
+      if (keys.put(scope.getObjectId(), dayKeys) != null) {
+        sharedObjectIds.add(scope.getObjectId());
+      }
+    }
+    keys.keySet().removeAll(sharedObjectIds);
+    return keys;
+  }
+
+  private static boolean isCacheable(FacebookBatchSourceConfig fbConfig, @Nullable InsightsPageCache cache,
+                                     InsightsScope scope) {
+    return cache != null && InsightsPageCache.isFinalized(scope, fbConfig.getAttributionDays());
+  }
+
+  private InsightsRequest createRequest(FacebookBatchSourceConfig fbConfig, InsightsScope scope) {
+    InsightsRequest request = fbConfig.isAsyncReportMode()
+      ? InsightsRequestFactory.createAsyncRequest(fbConfig, scope, fbConfig.getMaxRunningReports(),
+                                                  fbConfig.getMaxReportWait())
+      : InsightsRequestFactory.createRequest(fbConfig, scope);
+    if (request instanceof AdReportRunRequestWrapper) {
+      progress.addReportRun((AdReportRunRequestWrapper) request);
+    }
+
+    if (fbConfig.getSorting() != null) {
+      request.setParam("sort", fbConfig.getSorting());
+    }
+    return request;
+  }
+
+  private static BatchableInsightsRequest createBatchableRequest(FacebookBatchSourceConfig fbConfig,
+                                                                 InsightsScope scope) {
+    // validation rejects batching of report runs, so scopes read by batches are read by synchronous requests
+    BatchableInsightsRequest request = InsightsRequestFactory.createRequest(fbConfig, scope);
+    if (fbConfig.getSorting() != null) {
+      request.setParam("sort", fbConfig.getSorting());
+    }
+    return request;
   }
 
   @Override
@@ -70,26 +239,46 @@ public class FacebookRecordReader extends RecordReader<NullWritable, InsightsTyp
     if (!currentPageIterator.hasNext()) {
       try {
         // switch page
-        APINodeList<?> nextPage = currentPage.nextPage();
+        if (directRecords != null) {
+          List<StructuredRecord> records = directRecords.nextPage();
+          if (records != null) {
+            ReaderMetrics.getInstance().pageRead(records.size());
+            objectId = directRecords.getLastObjectId();
+            progress.pageRead(objectId, directRecords.isLastPageOfScope());
+            currentPageIterator = records.iterator();
+            return nextKeyValue();
+          }
+          progress.finished();
+          return false;
+        }
+        InsightsPage nextPage = pages.next();
         if (nextPage != null) {
-          currentPage = nextPage;
-          currentPageIterator = currentPage.iterator();
+          ReaderMetrics.getInstance().pageRead(nextPage.getRows().size());
+          objectId = nextPage.getObjectId();
+          progress.pageRead(objectId, nextPage.isLast());
+          currentPageIterator = nextPage.getRows().iterator();
           return nextKeyValue();
         }
       } catch (APIException e) {
         throw new IOException(e.getMessage(), e);
       }
+      progress.finished();
       return false;
     } else {
       Object currentObject = currentPageIterator.next();
 
-      if (currentObject instanceof AdsInsights) {
+      if (currentObject instanceof StructuredRecord) {
+        StructuredRecord record = (StructuredRecord) currentObject;
+        currentInsight = new InsightsType(record);
+      } else if (currentObject instanceof AdsInsights) {
         currentInsight = new InsightsType((AdsInsights) currentObject);
       } else if (currentObject instanceof InsightsResult) {
         currentInsight = new InsightsType((InsightsResult) currentObject);
       } else {
         throw new IOException("Invalid insight type");
       }
+      currentInsight.objectId = objectId;
+      progress.rowRead();
 
       return true;
     }
@@ -107,11 +296,13 @@ public class FacebookRecordReader extends RecordReader<NullWritable, InsightsTyp
 
   @Override
   public float getProgress() {
-    return 0;
+    return progress == null ? 0 : progress.get();
   }
 
   @Override
   public void close() {
-
+    if (pages != null) {
+      pages.close();
+    }
   }
 }
@@ -16,34 +16,132 @@
 
 package io.cdap.plugin.facebook.source.batch;
 
+import com.google.common.collect.ImmutableList;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.InputSplit;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * A no-op split.
+ * A split, which reads insights in one or several {@link InsightsScope}s. Several scopes are read together by batch
+ * requests.
  */
 public class FacebookSplit extends InputSplit implements Writable {
+  private List<InsightsScope> scopes;
+  private long estimatedRows;
+
   public FacebookSplit() {
   }
 
+  public FacebookSplit(InsightsScope scope) {
+    this(scope, 0);
+  }
+
+  /**
+   * Constructor for FacebookSplit object.
+   * @param scope The scope to read insights in
+   * @param estimatedRows The estimated number of rows in the scope, 0 if unknown
+   */
+  public FacebookSplit(InsightsScope scope, long estimatedRows) {
+    this(Collections.singletonList(scope), estimatedRows);
+  }
+
+  /**
+   * Constructor for FacebookSplit object.
+   * @param scopes The scopes to read insights in
+   * @param estimatedRows The estimated number of rows in all scopes, 0 if unknown
+   */
+  public FacebookSplit(List<InsightsScope> scopes, long estimatedRows) {
+    this.scopes = ImmutableList.copyOf(scopes);
+    this.estimatedRows = estimatedRows;
+  }
+
+  public List<InsightsScope> getScopes() {
+    return scopes;
+  }
+
   @Override
-  public void readFields(DataInput dataInput) {
+  public void readFields(DataInput dataInput) throws IOException {
+    int scopeCount = dataInput.readInt();
+    List<InsightsScope> scopes = new ArrayList<>(scopeCount);
+    for (int i = 0; i < scopeCount; i++) {
+      scopes.add(readScope(dataInput));
+    }
+    this.scopes = scopes;
+    estimatedRows = dataInput.readLong();
   }
 
   @Override
-  public void write(DataOutput dataOutput) {
+  public void write(DataOutput dataOutput) throws IOException {
+    dataOutput.writeInt(scopes.size());
+    for (InsightsScope scope : scopes) {
+      writeScope(dataOutput, scope);
+    }
+    dataOutput.writeLong(estimatedRows);
+  }
+
+  private static InsightsScope readScope(DataInput dataInput) throws IOException {
+    String objectId = dataInput.readUTF();
+    TimeRange timeRange = null;
+    if (dataInput.readBoolean()) {
+      timeRange = new TimeRange(LocalDate.parse(dataInput.readUTF()), LocalDate.parse(dataInput.readUTF()));
+    }
+    ObjectType childType = null;
+    List<String> childIds = Collections.emptyList();
+    if (dataInput.readBoolean()) {
+      childType = ObjectType.valueOf(dataInput.readUTF());
+      int childCount = dataInput.readInt();
+      childIds = new ArrayList<>(childCount);
+      for (int i = 0; i < childCount; i++) {
+        childIds.add(dataInput.readUTF());
+      }
+    }
+    return new InsightsScope(objectId, timeRange, childType, childIds);
+  }
+
+  private static void writeScope(DataOutput dataOutput, InsightsScope scope) throws IOException {
+    dataOutput.writeUTF(scope.getObjectId());
+    TimeRange timeRange = scope.getTimeRange();
+    dataOutput.writeBoolean(timeRange != null);
+    if (timeRange != null) {
+      dataOutput.writeUTF(timeRange.getSince().toString());
+      dataOutput.writeUTF(timeRange.getUntil().toString());
+    }
+    ObjectType childType = scope.getChildType();
+    dataOutput.writeBoolean(childType != null);
+    if (childType != null) {
+      dataOutput.writeUTF(childType.name());
+      dataOutput.writeInt(scope.getChildIds().size());
+      for (String childId : scope.getChildIds()) {
+        dataOutput.writeUTF(childId);
+      }
+    }
   }
 
+  /**
+   * Returns estimated number of rows read by this split. Frameworks use the length to schedule larger splits first.
+   */
   @Override
   public long getLength() {
-    return 0;
+    return estimatedRows;
   }
 
   @Override
   public String[] getLocations() {
     return new String[0];
   }
+
+  @Override
+  public String toString() {
+    return "FacebookSplit{scopes=" + scopes + ", estimatedRows=" + estimatedRows + "}";
+  }
 }
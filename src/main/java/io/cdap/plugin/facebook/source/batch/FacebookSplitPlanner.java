@@ -0,0 +1,351 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import com.facebook.ads.sdk.APIException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import io.cdap.plugin.facebook.source.common.LocalFileCache;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.config.SourceConfigHelper;
+import io.cdap.plugin.facebook.source.common.http.HttpTransports;
+import io.cdap.plugin.facebook.source.common.http.ThrottlingRequestExecutor;
+import io.cdap.plugin.facebook.source.common.requests.AdAccountDiscovery;
+import io.cdap.plugin.facebook.source.common.requests.GraphObjectLookup;
+import io.cdap.plugin.facebook.source.common.requests.InsightsRequestFactory;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Divides read of Facebook Insights into splits, that can be read independently.
+ */
+public class FacebookSplitPlanner {
+  private static final Logger LOG = LoggerFactory.getLogger(FacebookSplitPlanner.class);
+
+  private final FacebookBatchSourceConfig config;
+  private final LocalFileCache planningCache;
+  @Nullable
+  private final SplitSizeEstimator estimator;
+  @Nullable
+  private final WatermarkStore watermarks;
+
+  /**
+   * Constructor for FacebookSplitPlanner object.
+   * @param config The source configuration
+   * @param watermarks The store of last days read by previous runs, null if the whole time range is read
+   */
+  public FacebookSplitPlanner(FacebookBatchSourceConfig config, @Nullable WatermarkStore watermarks) {
+    this.config = config;
+    this.watermarks = watermarks;
+    this.planningCache = LocalFileCache.inTempDir(config.getPlanningCacheTtl());
+    this.estimator = config.getTargetSplitRows() == null ? null : new SplitSizeEstimator(config, planningCache);
+  }
+
+  /**
+   * Returns splits for configured read. Every configured object is read by its own splits. Time range is divided
+   * into slices of configured number of days, slices are aligned to days in the time zone of the ad account. Each
+   * slice is further divided by groups of child objects, if configured. If target number of rows per split is
+   * configured, groups of child objects are sized to it and splits are ordered by estimated size, largest first.
+   * Scopes beyond maximum number of splits are packed together to be read by batch requests, if enabled.
+   * If watermarks are kept, only days after the last day read by the previous run and the restatement window
+   * before it are read, and the last day of this run is staged as the new watermark.
+   */
+  public List<FacebookSplit> plan() throws APIException, IOException {
+    ThrottlingRequestExecutor.install(config.getUsageThreshold(), HttpTransports.get(
+      config.getHttpTransport(), config.getConnectTimeout(), config.getReadTimeout()));
+    List<String> objectIds = getObjectIds();
+    List<InsightsScope> scopes = new ArrayList<>();
+    for (String objectId : objectIds) {
+      scopes.addAll(planTimeSlices(objectId));
+    }
+    ObjectType childType = config.getChildObjectType();
+    if (childType != null) {
+      scopes = planChildren(scopes, childType);
+    }
+    List<List<InsightsScope>> scopeGroups = packForBatching(scopes);
+    LOG.debug("Read of {} objects divided into {} scopes, read by {} splits.", objectIds.size(), scopes.size(),
+              scopeGroups.size());
+
+    List<FacebookSplit> splits = new ArrayList<>(scopeGroups.size());
+    for (List<InsightsScope> scopeGroup : scopeGroups) {
+      long estimatedRows = 0;
+      if (estimator != null) {
+        for (InsightsScope scope : scopeGroup) {
+          estimatedRows += estimator.estimate(scope);
+        }
+      }
+      splits.add(new FacebookSplit(scopeGroup, estimatedRows));
+    }
+    if (estimator != null) {
+      // largest splits first, so they don't end up as stragglers at the end of the read
+      splits.sort(Comparator.comparingLong(FacebookSplit::getLength).reversed());
+    }
+    return splits;
+  }
+
+  /**
+   * Packs scopes into groups read by a single split. If there are more scopes than maximum number of splits and
+   * batching is enabled, consecutive scopes are packed together to be read by batch requests, otherwise every
+   * scope is read by its own split.
+   */
+  private List<List<InsightsScope>> packForBatching(List<InsightsScope> scopes) {
+    int maxSplits = config.getMaxSplits();
+    if (config.getBatchSize() <= 1 || scopes.size() <= maxSplits) {
+      return scopes.stream()
+        .map(Collections::singletonList)
+        .collect(Collectors.toList());
+    }
+    int scopesPerSplit = Math.min(config.getBatchSize(), (scopes.size() + maxSplits - 1) / maxSplits);
+    return Lists.partition(scopes, scopesPerSplit);
+  }
+
+  private List<String> getObjectIds() throws APIException {
+    if (config.getObjectType() != ObjectType.Business) {
+      return config.getObjectIds();
+    }
+    // accounts are discovered at planning time, so new accounts are read without changes to the pipeline
+    AdAccountDiscovery discovery = new AdAccountDiscovery(config.getAccessToken(), planningCache);
+    return discovery.discover(config.getObjectIds());
+  }
+
+  private List<InsightsScope> planTimeSlices(String objectId) throws APIException, IOException {
+    InsightsScope objectScope = InsightsScope.forObject(objectId);
+    Integer timeSliceDays = config.getTimeSliceDays();
+    if ((timeSliceDays == null && watermarks == null) || config.getObjectType() == ObjectType.Page) {
+      return Collections.singletonList(objectScope);
+    }
+
+    TimeRange timeRange = resolveTimeRange(objectId);
+    if (timeRange == null) {
+      LOG.info("Time range '{}' can't be split, reading it by a single split.", config.getDatePreset());
+      return Collections.singletonList(objectScope);
+    }
+    if (watermarks != null) {
+      LocalDate watermark = watermarks.get(objectId);
+      TimeRange increment = increment(timeRange, watermark, config.getRestatementDays());
+      if (watermark == null || watermark.isBefore(timeRange.getUntil())) {
+        watermarks.stage(objectId, timeRange.getUntil());
+      }
+      if (increment == null) {
+        LOG.info("Insights of '{}' are read up to {}, nothing to read.", objectId, watermark);
+        return Collections.emptyList();
+      }
+      LOG.debug("Reading insights of '{}' for {}, watermark is {}.", objectId, increment, watermark);
+      timeRange = increment;
+    }
+    if (timeSliceDays == null) {
+      return Collections.singletonList(objectScope.withTimeRange(timeRange));
+    }
+
+    return timeRange.slice(timeSliceDays).stream()
+      .map(objectScope::withTimeRange)
+      .collect(Collectors.toList());
+  }
+
+  private List<InsightsScope> planChildren(List<InsightsScope> scopes, ObjectType childType) throws APIException {
+    if (scopes.isEmpty()) {
+      // all objects are read up to their watermarks
+      return scopes;
+    }
+    Map<String, List<InsightsScope>> scopesByObject = scopes.stream()
+      .collect(Collectors.groupingBy(InsightsScope::getObjectId, LinkedHashMap::new, Collectors.toList()));
+    int maxGroups = Math.max(1, config.getMaxSplits() / scopes.size());
+
+    List<InsightsScope> result = new ArrayList<>();
+    for (Map.Entry<String, List<InsightsScope>> entry : scopesByObject.entrySet()) {
+      List<InsightsScope> objectScopes = entry.getValue();
+      // children are listed once for the whole time range, every slice reads the same groups
+      InsightsScope wholeRange = InsightsScope.forObject(entry.getKey());
+      if (objectScopes.get(0).getTimeRange() != null) {
+        TimeRange firstSlice = objectScopes.get(0).getTimeRange();
+        TimeRange lastSlice = objectScopes.get(objectScopes.size() - 1).getTimeRange();
+        wholeRange = wholeRange.withTimeRange(new TimeRange(firstSlice.getSince(), lastSlice.getUntil()));
+      }
+      List<String> childIds = GraphObjectLookup.listChildIds(config, childType, wholeRange);
+      if (childIds.isEmpty()) {
+        LOG.info("No {} objects with insights found for '{}', reading without dividing by child objects.",
+                 childType, entry.getKey());
+        result.addAll(objectScopes);
+        continue;
+      }
+
+      List<List<String>> groups = estimator == null
+        ? partition(childIds, maxGroups)
+        : balance(objectScopes.get(0), childType, childIds, maxGroups, config.getTargetSplitRows());
+      if (groups.size() == 1) {
+        // a single group holds all children, so reading the whole object returns the same rows without a filter
+        result.addAll(objectScopes);
+        continue;
+      }
+      groups = capFilterSize(groups);
+      LOG.debug("Dividing {} {} objects of '{}' into {} groups for each of {} time slices.",
+                childIds.size(), childType, entry.getKey(), groups.size(), objectScopes.size());
+      for (InsightsScope scope : objectScopes) {
+        for (List<String> group : groups) {
+          result.add(scope.withChildren(childType, group));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Divides groups with more ids than a single filter allows, even if the number of splits is exceeded.
+   */
+  static List<List<String>> capFilterSize(List<List<String>> groups) {
+    List<List<String>> result = new ArrayList<>();
+    for (List<String> group : groups) {
+      int maxIds = InsightsRequestFactory.MAX_FILTER_IDS;
+      result.addAll(group.size() <= maxIds ? Collections.singletonList(group)
+                      : partition(group, (group.size() + maxIds - 1) / maxIds));
+    }
+    return result;
+  }
+
+  /**
+   * Groups child objects, so that estimated number of rows of every group is close to the target. Groups above the
+   * target are subdivided while the number of groups allows it, groups below the target are merged. Rows are
+   * estimated for the time range of given scope, since every time slice reads the same groups.
+   */
+  private List<List<String>> balance(InsightsScope objectScope, ObjectType childType, List<String> childIds,
+                                     int maxGroups, long targetRows) throws APIException {
+    long totalRows = estimator.estimate(objectScope.withChildren(childType, childIds));
+    int groupCount = (int) Math.min(maxGroups, Math.max(1, (totalRows + targetRows - 1) / targetRows));
+
+    Deque<List<String>> pending = new ArrayDeque<>(partition(childIds, groupCount));
+    List<ChildGroup> groups = new ArrayList<>();
+    while (!pending.isEmpty()) {
+      List<String> ids = pending.poll();
+      long rows = estimator.estimate(objectScope.withChildren(childType, ids));
+      if (rows > targetRows && ids.size() > 1 && groups.size() + pending.size() + 2 <= maxGroups) {
+        pending.addAll(partition(ids, 2));
+      } else {
+        groups.add(new ChildGroup(ids, rows));
+      }
+    }
+
+    List<List<String>> result = new ArrayList<>();
+    for (ChildGroup group : merge(groups, targetRows)) {
+      estimator.remember(objectScope.withChildren(childType, group.ids), group.rows);
+      result.add(group.ids);
+    }
+    LOG.debug("Estimated {} rows for {} {} objects of '{}', grouped into {} groups.", totalRows, childIds.size(),
+              childType, objectScope.getObjectId(), result.size());
+    return result;
+  }
+
+  /**
+   * Merges groups, which are smaller than the target, into as few groups not exceeding the target as possible.
+   * Groups are placed into the first group they fit into, largest first.
+   */
+  static List<ChildGroup> merge(List<ChildGroup> groups, long targetRows) {
+    List<ChildGroup> sorted = new ArrayList<>(groups);
+    sorted.sort(Comparator.comparingLong((ChildGroup group) -> group.rows).reversed());
+    List<ChildGroup> merged = new ArrayList<>();
+    for (ChildGroup group : sorted) {
+      int index = 0;
+      while (index < merged.size() && merged.get(index).rows + group.rows > targetRows) {
+        index++;
+      }
+      if (index < merged.size()) {
+        merged.set(index, merged.get(index).plus(group));
+      } else {
+        merged.add(group);
+      }
+    }
+    return merged;
+  }
+
+  @Nullable
+  private TimeRange resolveTimeRange(String objectId) throws APIException {
+    ZoneId timezone = GraphObjectLookup.fetchAccountTimezone(config.getObjectType().getInsightsObjectType(),
+                                                             objectId, config.getAccessToken());
+    return SourceConfigHelper.resolveDatePreset(config.getDatePreset(), LocalDate.now(timezone));
+  }
+
+  /**
+   * Returns part of given time range, that is left to read after given watermark. Restatement window of given
+   * number of days up to the watermark is read again, since insights of these days may still change.
+   *
+   * @param timeRange The configured time range
+   * @param watermark The last day read by the previous run or null if object was never read
+   * @param restatementDays The number of days to read again
+   * @return The time range to read or null if there is nothing to read
+   */
+  @Nullable
+  static TimeRange increment(TimeRange timeRange, @Nullable LocalDate watermark, int restatementDays) {
+    if (watermark == null) {
+      return timeRange;
+    }
+    LocalDate since = watermark.plusDays(1).minusDays(restatementDays);
+    if (since.isBefore(timeRange.getSince())) {
+      since = timeRange.getSince();
+    }
+    return since.isAfter(timeRange.getUntil()) ? null : new TimeRange(since, timeRange.getUntil());
+  }
+
+  /**
+   * Spreads ids across given number of groups, so sizes of groups differ at most by one.
+   */
+  static List<List<String>> partition(List<String> ids, int groupCount) {
+    Preconditions.checkArgument(groupCount > 0, "Number of groups must be positive");
+    int count = Math.min(groupCount, ids.size());
+    List<List<String>> groups = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      groups.add(new ArrayList<>());
+    }
+    for (int i = 0; i < ids.size(); i++) {
+      groups.get(i % count).add(ids.get(i));
+    }
+    return groups;
+  }
+
+  /**
+   * Group of child object ids with estimated number of rows.
+   */
+  static class ChildGroup {
+    final List<String> ids;
+    final long rows;
+
+    ChildGroup(List<String> ids, long rows) {
+      this.ids = ids;
+      this.rows = rows;
+    }
+
+    ChildGroup plus(ChildGroup other) {
+      List<String> ids = new ArrayList<>(this.ids);
+      ids.addAll(other.ids);
+      return new ChildGroup(ids, rows + other.rows);
+    }
+  }
+}
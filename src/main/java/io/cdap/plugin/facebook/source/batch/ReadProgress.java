@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import io.cdap.plugin.facebook.source.common.requests.AdReportRunRequestWrapper;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Estimates progress of reading a split from pages and rows received so far. If the split has estimated number of
+ * rows, progress is the fraction of them received. Otherwise it is the fraction of scopes of the split, which are
+ * read to their last page, while scopes with pages received, but not finished, count as half read. Splits read by
+ * asynchronous report runs spend half of their progress waiting for runs to complete.
+ * <p>
+ * Progress only grows and stays below 1 until the read is finished. It may be read by a thread other than the one
+ * reading rows.
+ */
+class ReadProgress {
+  private static final float MAX_UNFINISHED_PROGRESS = 0.99f;
+  private static final float REPORT_RUN_SHARE = 0.5f;
+  private static final float OPEN_SCOPE_SHARE = 0.5f;
+
+  private final long estimatedRows;
+  private final int scopeCount;
+  private final List<AdReportRunRequestWrapper> reportRuns = new CopyOnWriteArrayList<>();
+  // objects with pages received, whose last page is not received yet
+  private final Set<String> openObjects = new HashSet<>();
+  private volatile long rows;
+  private volatile int finishedScopes;
+  private volatile int openScopes;
+  private volatile boolean finished;
+  private volatile float lastProgress;
+
+  /**
+   * Constructor for ReadProgress object.
+   * @param scopes The scopes of the split
+   * @param estimatedRows The estimated number of rows of the split, 0 if unknown
+   */
+  ReadProgress(List<InsightsScope> scopes, long estimatedRows) {
+    this.estimatedRows = estimatedRows;
+    this.scopeCount = scopes.size();
+  }
+
+  /**
+   * Adds report run, which reads one of the scopes.
+   */
+  void addReportRun(AdReportRunRequestWrapper reportRun) {
+    reportRuns.add(reportRun);
+  }
+
+  /**
+   * Records a page received.
+   *
+   * @param objectId The id of the object the page was read for
+   * @param last Whether the page is the last page of its scope
+   */
+  void pageRead(String objectId, boolean last) {
+    if (last) {
+      openObjects.remove(objectId);
+      finishedScopes = Math.min(scopeCount, finishedScopes + 1);
+    } else {
+      openObjects.add(objectId);
+    }
+    openScopes = openObjects.size();
+  }
+
+  /**
+   * Records a row received.
+   */
+  void rowRead() {
+    rows++;
+  }
+
+  /**
+   * Records that all rows of the split are read.
+   */
+  void finished() {
+    finished = true;
+  }
+
+  float get() {
+    if (finished) {
+      return 1;
+    }
+    float rowsProgress;
+    if (estimatedRows > 0) {
+      rowsProgress = (float) rows / estimatedRows;
+    } else {
+      rowsProgress = scopeCount > 0 ? (finishedScopes + OPEN_SCOPE_SHARE * openScopes) / scopeCount : 0;
+    }
+    float progress = rowsProgress;
+    if (!reportRuns.isEmpty()) {
+      long percent = 0;
+      for (AdReportRunRequestWrapper reportRun : reportRuns) {
+        percent += reportRun.getPercentCompletion();
+      }
+      float reportRunProgress = (float) percent / (100 * scopeCount);
+      progress = REPORT_RUN_SHARE * reportRunProgress + (1 - REPORT_RUN_SHARE) * rowsProgress;
+    }
+    progress = Math.min(MAX_UNFINISHED_PROGRESS, Math.max(lastProgress, progress));
+    lastProgress = progress;
+    return progress;
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.AdsInsights;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.plugin.facebook.source.common.LocalFileCache;
+import io.cdap.plugin.facebook.source.common.config.Breakdowns;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.requests.GraphObjectLookup;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates number of rows read by a single {@link InsightsScope}.
+ *
+ * Each object of configured level produces a row per breakdown value, per day if rows are read by day, or a single
+ * row for the whole time range of the scope otherwise. Number of objects is probed with a single request per scope
+ * and cached, so that repeated runs and time slices of the same objects don't repeat probes. Number of breakdown
+ * values is taken from typical values of every breakdown, since it can't be probed up front.
+ */
+class SplitSizeEstimator {
+  // typical number of values of breakdowns, e.g. age ranges or hours of a day
+  private static final Map<String, Integer> BREAKDOWN_VALUES = ImmutableMap.<String, Integer>builder()
+    .put("age", 7)
+    .put("gender", 3)
+    .put("country", 50)
+    .put("region", 100)
+    .put("dma", 210)
+    .put("impression_device", 10)
+    .put("device_platform", 2)
+    .put("publisher_platform", 4)
+    .put("platform_position", 15)
+    .put("frequency_value", 20)
+    .put("hourly_stats_aggregated_by_advertiser_time_zone", 24)
+    .put("hourly_stats_aggregated_by_audience_time_zone", 24)
+    .build();
+  private static final int DEFAULT_BREAKDOWN_VALUES = 10;
+
+  private final FacebookBatchSourceConfig config;
+  private final LocalFileCache cache;
+  private final Map<InsightsScope, Long> objectCounts = new HashMap<>();
+
+  SplitSizeEstimator(FacebookBatchSourceConfig config, LocalFileCache cache) {
+    this.config = config;
+    this.cache = cache;
+  }
+
+  /**
+   * Returns estimated number of rows of given scope.
+   */
+  long estimate(InsightsScope scope) throws APIException {
+    ObjectType objectType = config.getObjectType().getInsightsObjectType();
+    if (objectType == ObjectType.Page) {
+      // page insights return a row per metric
+      return config.getMetrics().size();
+    }
+    return countObjects(objectType, scope) * getRowsPerObject(scope);
+  }
+
+  /**
+   * Remembers number of rows of given scope, which is known without probing, e.g. sum of disjoint merged scopes.
+   */
+  void remember(InsightsScope scope, long rows) {
+    objectCounts.put(scope.withTimeRange(null), rows / getRowsPerObject(scope));
+  }
+
+  private long countObjects(ObjectType objectType, InsightsScope scope) throws APIException {
+    // time range doesn't change number of objects, slices of the same objects share the count
+    InsightsScope objectsScope = scope.withTimeRange(null);
+    Long count = objectCounts.get(objectsScope);
+    if (count == null) {
+      String cacheKey = getCacheKey(objectsScope);
+      count = cache.get(cacheKey, Long.class);
+      if (count == null) {
+        count = GraphObjectLookup.countObjects(objectType, getLevelType(objectType), objectsScope,
+                                               config.getAccessToken());
+        cache.put(cacheKey, count);
+      }
+      objectCounts.put(objectsScope, count);
+    }
+    return count;
+  }
+
+  /**
+   * Returns number of rows every object produces in given scope.
+   */
+  long getRowsPerObject(InsightsScope scope) {
+    long rows = 1;
+    if (config.isDailyRows() && scope.getTimeRange() != null) {
+      rows *= scope.getTimeRange().getDays();
+    }
+    Breakdowns breakdowns = config.getBreakdown();
+    if (breakdowns != null) {
+      for (AdsInsights.EnumBreakdowns breakdown : breakdowns.getBreakdowns()) {
+        rows *= BREAKDOWN_VALUES.getOrDefault(breakdown.toString(), DEFAULT_BREAKDOWN_VALUES);
+      }
+    }
+    return rows;
+  }
+
+  private ObjectType getLevelType(ObjectType objectType) {
+    String level = config.getLevel();
+    if (Strings.isNullOrEmpty(level) || "default".equals(level)) {
+      return objectType;
+    }
+    return ObjectType.fromLevel(level);
+  }
+
+  private String getCacheKey(InsightsScope scope) {
+    // token is part of the key, since different tokens may have access to different objects
+    return Joiner.on(':').useForNull("").join("rows", config.getLevel(), scope.getObjectId(), scope.getChildType(),
+                                              Joiner.on(',').join(scope.getChildIds()), config.getAccessToken());
+  }
+}
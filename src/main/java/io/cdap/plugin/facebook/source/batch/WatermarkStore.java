@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the last day read for every object between runs in a directory of any Hadoop file system. Watermarks of
+ * a run are staged while splits are planned and become visible to the next runs only when the run succeeds.
+ */
+public class WatermarkStore {
+  private static final String PENDING_DIR = "_pending";
+
+  private final FileSystem fileSystem;
+  private final Path dir;
+  private final Path pendingDir;
+
+  /**
+   * Constructor for WatermarkStore object.
+   * @param path The directory to keep watermarks in
+   * @param conf The Hadoop configuration to access the file system by
+   */
+  public WatermarkStore(String path, Configuration conf) throws IOException {
+    this.dir = new Path(path);
+    this.pendingDir = new Path(dir, PENDING_DIR);
+    this.fileSystem = dir.getFileSystem(conf);
+  }
+
+  /**
+   * Returns the last day read for given object by a successful run.
+   *
+   * @param objectId The object id
+   * @return The day or null if object was never read
+   */
+  @Nullable
+  public LocalDate get(String objectId) throws IOException {
+    Path file = new Path(dir, objectId);
+    if (!fileSystem.exists(file)) {
+      return null;
+    }
+    try (FSDataInputStream in = fileSystem.open(file)) {
+      byte[] content = new byte[(int) fileSystem.getFileStatus(file).getLen()];
+      in.readFully(content);
+      return LocalDate.parse(new String(content, StandardCharsets.UTF_8).trim());
+    }
+  }
+
+  /**
+   * Stages the last day read for given object by the current run.
+   */
+  public void stage(String objectId, LocalDate dateStop) throws IOException {
+    try (FSDataOutputStream out = fileSystem.create(new Path(pendingDir, objectId), true)) {
+      out.write(dateStop.toString().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Makes watermarks staged by the current run visible to the next runs.
+   */
+  public void commit() throws IOException {
+    if (!fileSystem.exists(pendingDir)) {
+      return;
+    }
+    for (FileStatus pending : fileSystem.listStatus(pendingDir)) {
+      Path file = new Path(dir, pending.getPath().getName());
+      fileSystem.delete(file, false);
+      if (!fileSystem.rename(pending.getPath(), file)) {
+        throw new IOException(String.format("Failed to commit watermark '%s'", pending.getPath()));
+      }
+    }
+    fileSystem.delete(pendingDir, true);
+  }
+
+  /**
+   * Discards watermarks staged by the current run, so the next run reads the same days again.
+   */
+  public void abort() throws IOException {
+    fileSystem.delete(pendingDir, true);
+  }
+}
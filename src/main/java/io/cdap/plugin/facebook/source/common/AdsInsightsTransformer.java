@@ -23,24 +23,46 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * This is helper class for transforming {@link AdsInsights} instance to {@link StructuredRecord}.
  */
 public class AdsInsightsTransformer {
-  private static final Logger LOG = LoggerFactory.getLogger(AdsInsightsTransformer.class);
-
   /**
    * Transforms {@link AdsInsights} instance to {@link StructuredRecord} instance accordingly to given schema.
    */
   public static StructuredRecord transform(InsightsType insights, Schema schema) {
-    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    return transform(insights, InsightsTransformPlan.compile(schema), null, RecordTracer.DISABLED);
+  }
+
+  /**
+   * Transforms {@link AdsInsights} instance to {@link StructuredRecord} instance accordingly to given schema and
+   * sets id of the object insights were read for to given field. Plan of the schema is compiled on every call, so
+   * callers transforming many rows should compile it once.
+   */
+  public static StructuredRecord transform(InsightsType insights, Schema schema, @Nullable String objectIdField) {
+    return transform(insights, InsightsTransformPlan.compile(schema), objectIdField, RecordTracer.DISABLED);
+  }
+
+  /**
+   * Transforms {@link AdsInsights} instance to {@link StructuredRecord} instance accordingly to given plan and
+   * sets id of the object insights were read for to given field. Rows sampled by given tracer are logged.
+   */
+  public static StructuredRecord transform(InsightsType insights, InsightsTransformPlan plan,
+                                           @Nullable String objectIdField, RecordTracer tracer) {
+    if (insights.type == StructuredRecord.class) {
+      // already decoded by direct client
+      if (tracer.shouldTrace(insights.objectId)) {
+        tracer.trace(insights.objectId, insights.record);
+      }
+      return insights.record;
+    }
+
+    StructuredRecord.Builder builder = StructuredRecord.builder(plan.getSchema());
     JsonObject insightsJson = null;
     
     if (insights.type == AdsInsights.class) {
@@ -51,72 +73,68 @@ public class AdsInsightsTransformer {
       return null;
     }
 
-    LOG.warn("transforming");
-    LOG.warn(insightsJson.toString());
+    if (tracer.shouldTrace(insights.objectId)) {
+      tracer.trace(insights.objectId, insightsJson);
+    }
 
     if (insights.type == AdsInsights.class) {
-      insightsJson.entrySet().forEach(entry -> {
-        if (schemaContainsField(schema, entry.getKey())) {
-          Schema fieldSchema = schema.getField(entry.getKey()).getSchema();
-
-          if (fieldSchema.isNullable()) {
-            fieldSchema = fieldSchema.getNonNullable();
-          }
-
-          /**
-           * TODO - https://issues.cask.co/browse/PLUGIN-365
-           * Implement support for other types like Integer, Double , timestamp
-           */
-          switch (fieldSchema.getType()) {
-            case STRING:
-              builder.set(entry.getKey(), entry.getValue().getAsJsonPrimitive().getAsString());
-              break;
-            case RECORD:
-              builder.set(entry.getKey(), fromJsonObject(fieldSchema, entry.getValue().getAsJsonObject()));
-              break;
-            case ARRAY:
-              Schema componentSchema = fieldSchema.getComponentSchema();
-              List<StructuredRecord> records = StreamSupport
-                  .stream(entry.getValue().getAsJsonArray().spliterator(), false)
-                  .map(jsonElement -> fromJsonObject(componentSchema, jsonElement.getAsJsonObject()))
-                  .collect(Collectors.toList());
-              builder.set(entry.getKey(), records);
-              break;
-          }
-        }
-      });
+      setFields(builder, plan, insightsJson);
     } else {
       String metricName = insightsJson.get("name").getAsString();
 
       JsonArray values = insightsJson.get("values").getAsJsonArray();
 
-      LOG.warn(values.toString());
-
       for (JsonElement v: values) {
         builder.set("metricName", metricName);
 
         JsonObject currentObject = v.getAsJsonObject();
-        LOG.warn(currentObject.toString());
         builder.set("metricValue", currentObject.get("value").getAsJsonPrimitive().getAsDouble());
         builder.set("date", currentObject.get("end_time").getAsString());
       }
     }
 
+    if (objectIdField != null) {
+      builder.set(objectIdField, insights.objectId);
+    }
     return builder.build();
   }
 
-  private static StructuredRecord fromJsonObject(Schema schema, JsonObject object) {
-    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    object.entrySet().forEach(entry -> {
-      String fieldName = SchemaHelper.fieldNameToSchemaName(entry.getKey());
-      if (schemaContainsField(schema, fieldName)) {
-        builder.set(fieldName, entry.getValue().getAsJsonPrimitive().getAsString());
+  private static void setFields(StructuredRecord.Builder builder, InsightsTransformPlan plan, JsonObject object) {
+    for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+      InsightsTransformPlan.Slot slot = plan.getSlot(entry.getKey());
+      if (slot != null) {
+        builder.set(slot.getName(), toValue(slot, entry.getValue()));
       }
-    });
-    return builder.build();
+    }
   }
 
-  private static boolean schemaContainsField(Schema schema, String fieldName) {
-    return schema.getFields().stream().anyMatch(field -> field.getName().equals(fieldName));
+  @Nullable
+  private static Object toValue(InsightsTransformPlan.Slot slot, JsonElement value) {
+    if (value.isJsonNull()) {
+      return null;
+    }
+    switch (slot.getKind()) {
+      case STRING:
+      case LONG:
+      case DOUBLE:
+      case DECIMAL:
+      case DATE:
+        return slot.parse(value.getAsJsonPrimitive().getAsString());
+      case RECORD:
+        InsightsTransformPlan recordPlan = slot.getRecordPlan();
+        StructuredRecord.Builder builder = StructuredRecord.builder(recordPlan.getSchema());
+        setFields(builder, recordPlan, value.getAsJsonObject());
+        return builder.build();
+      case ARRAY:
+        JsonArray array = value.getAsJsonArray();
+        List<Object> values = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+          values.add(toValue(slot.getComponent(), element));
+        }
+        return values;
+      default:
+        throw new IllegalStateException(String.format("Field '%s' of kind '%s' has no transformation",
+                                                      slot.getName(), slot.getKind()));
+    }
   }
 }
@@ -0,0 +1,336 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import com.google.common.base.Joiner;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Archive of pages of insights recorded by a run, kept in a directory of any Hadoop file system, local disk
+ * included. Every split is recorded into its own entry, so a replay reads the same splits without requests to
+ * Graph API. Entry is a gzipped file, which starts with a line listing scopes of the split, followed by a line per
+ * page: id of the object the page was read for, a tab, '1' if the page is the last page of its scope or '0'
+ * otherwise, a tab and page JSON.
+ */
+public class InsightsArchive {
+  private static final Logger LOG = LoggerFactory.getLogger(InsightsArchive.class);
+  private static final String ENTRY_SUFFIX = ".insights.gz";
+  private static final char SEPARATOR = '\t';
+
+  private final FileSystem fileSystem;
+  private final Path dir;
+
+  /**
+   * Constructor for InsightsArchive object.
+   * @param path The directory to keep archive entries in
+   * @param conf The Hadoop configuration to access the file system by
+   */
+  public InsightsArchive(String path, Configuration conf) throws IOException {
+    this.dir = new Path(path);
+    this.fileSystem = dir.getFileSystem(conf);
+  }
+
+  /**
+   * Returns key of the entry of a split. Key covers everything, that affects returned rows, so entries recorded for
+   * another query are not replayed.
+   *
+   * @param config The source configuration
+   * @param scopes The scopes of the split
+   * @param sorting The sorting of rows or null if rows are not sorted
+   * @return The key
+   */
+  public static String createKey(BaseSourceConfig config, List<InsightsScope> scopes, @Nullable String sorting) {
+    List<String> parts = new ArrayList<>();
+    // scopes without time range read the time range of the date preset
+    parts.add(config.getDatePreset());
+    for (InsightsScope scope : scopes) {
+      parts.add(InsightsPageCache.createQueryKey(config, scope, sorting));
+    }
+    return Hashing.sha256().hashString(Joiner.on('\n').useForNull("").join(parts), StandardCharsets.UTF_8)
+      .toString();
+  }
+
+  /**
+   * Returns scopes of all recorded entries by keys of entries. Entries being recorded are not listed.
+   */
+  public Map<String, List<InsightsScope>> list() throws IOException {
+    Map<String, List<InsightsScope>> entries = new LinkedHashMap<>();
+    if (!fileSystem.exists(dir)) {
+      return entries;
+    }
+    for (FileStatus status : fileSystem.listStatus(dir)) {
+      String name = status.getPath().getName();
+      if (name.endsWith(ENTRY_SUFFIX) && !name.startsWith(".")) {
+        try (Replay replay = new Replay(status.getPath())) {
+          entries.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), replay.getScopes());
+        }
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Starts recording of the entry of a split. Entry becomes visible, once recording is committed.
+   *
+   * @param key The key of the entry
+   * @param scopes The scopes of the split
+   * @return The recorder of pages
+   */
+  public Recorder record(String key, List<InsightsScope> scopes) throws IOException {
+    // write to temporary file first, so that entries of failed attempts are never replayed
+    Path tmpEntry = new Path(dir, "." + key + "." + UUID.randomUUID() + ".tmp");
+    Writer writer = new OutputStreamWriter(new GZIPOutputStream(fileSystem.create(tmpEntry, true)),
+                                           StandardCharsets.UTF_8);
+    JsonArray scopesJson = new JsonArray();
+    scopes.forEach(scope -> scopesJson.add(toJson(scope)));
+    JsonObject header = new JsonObject();
+    header.add("scopes", scopesJson);
+    writer.write(header.toString());
+    writer.write('\n');
+    return new Recorder(writer, tmpEntry, getEntryPath(key));
+  }
+
+  /**
+   * Opens the entry of a split for replay.
+   *
+   * @param key The key of the entry
+   * @return The reader of recorded pages
+   */
+  public Replay replay(String key) throws IOException {
+    Path entry = getEntryPath(key);
+    if (!fileSystem.exists(entry)) {
+      throw new IOException(String.format("Responses of the split are not recorded in '%s'.", dir));
+    }
+    return new Replay(entry);
+  }
+
+  private Path getEntryPath(String key) {
+    return new Path(dir, key + ENTRY_SUFFIX);
+  }
+
+  private static JsonObject toJson(InsightsScope scope) {
+    JsonObject json = new JsonObject();
+    json.addProperty("objectId", scope.getObjectId());
+    TimeRange timeRange = scope.getTimeRange();
+    if (timeRange != null) {
+      json.addProperty("since", timeRange.getSince().toString());
+      json.addProperty("until", timeRange.getUntil().toString());
+    }
+    if (scope.getChildType() != null) {
+      json.addProperty("childType", scope.getChildType().name());
+      JsonArray childIds = new JsonArray();
+      scope.getChildIds().forEach(childIds::add);
+      json.add("childIds", childIds);
+    }
+    return json;
+  }
+
+  private static InsightsScope fromJson(JsonObject json) {
+    TimeRange timeRange = null;
+    if (json.has("since")) {
+      timeRange = new TimeRange(LocalDate.parse(json.get("since").getAsString()),
+                                LocalDate.parse(json.get("until").getAsString()));
+    }
+    ObjectType childType = null;
+    List<String> childIds = Collections.emptyList();
+    if (json.has("childType")) {
+      childType = ObjectType.valueOf(json.get("childType").getAsString());
+      childIds = new ArrayList<>();
+      for (JsonElement childId : json.getAsJsonArray("childIds")) {
+        childIds.add(childId.getAsString());
+      }
+    }
+    return new InsightsScope(json.get("objectId").getAsString(), timeRange, childType, childIds);
+  }
+
+  /**
+   * Page read from the archive.
+   */
+  public static class RecordedPage {
+    private final String objectId;
+    private final boolean last;
+    private final String json;
+
+    RecordedPage(String objectId, boolean last, String json) {
+      this.objectId = objectId;
+      this.last = last;
+      this.json = json;
+    }
+
+    public String getObjectId() {
+      return objectId;
+    }
+
+    /**
+     * Returns whether the page was the last page of its scope.
+     */
+    public boolean isLast() {
+      return last;
+    }
+
+    public String getJson() {
+      return json;
+    }
+  }
+
+  /**
+   * Writes pages of a split into a temporary file, which replaces the entry once recording is committed. Closing
+   * recorder without commit discards recorded pages.
+   */
+  public class Recorder implements Closeable {
+    private final Writer writer;
+    private final Path tmpEntry;
+    private final Path entry;
+    private boolean closed;
+
+    private Recorder(Writer writer, Path tmpEntry, Path entry) {
+      this.writer = writer;
+      this.tmpEntry = tmpEntry;
+      this.entry = entry;
+    }
+
+    /**
+     * Records a page.
+     *
+     * @param objectId The id of the object the page was read for
+     * @param last Whether the page is the last page of its scope
+     * @param pageJson The page JSON on a single line
+     */
+    public void write(String objectId, boolean last, String pageJson) throws IOException {
+      writer.write(objectId);
+      writer.write(SEPARATOR);
+      writer.write(last ? '1' : '0');
+      writer.write(SEPARATOR);
+      writer.write(pageJson);
+      writer.write('\n');
+    }
+
+    /**
+     * Makes recorded pages visible as the entry, replacing entry recorded before.
+     */
+    public void commit() throws IOException {
+      closed = true;
+      writer.close();
+      fileSystem.delete(entry, false);
+      if (!fileSystem.rename(tmpEntry, entry)) {
+        throw new IOException("Failed to rename " + tmpEntry);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        writer.close();
+        fileSystem.delete(tmpEntry, false);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete uncommitted archive entry '{}'.", tmpEntry, e);
+      }
+    }
+  }
+
+  /**
+   * Reads recorded pages of a split one by one.
+   */
+  public class Replay implements Closeable {
+    private final BufferedReader reader;
+    private final List<InsightsScope> scopes = new ArrayList<>();
+
+    private Replay(Path entry) throws IOException {
+      this.reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(fileSystem.open(entry)),
+                                                             StandardCharsets.UTF_8));
+      try {
+        String header = reader.readLine();
+        if (header == null) {
+          throw new IOException(String.format("Archive entry '%s' is empty.", entry));
+        }
+        for (JsonElement scope : new JsonParser().parse(header).getAsJsonObject().getAsJsonArray("scopes")) {
+          scopes.add(fromJson(scope.getAsJsonObject()));
+        }
+      } catch (IOException | RuntimeException e) {
+        reader.close();
+        throw e;
+      }
+    }
+
+    public List<InsightsScope> getScopes() {
+      return scopes;
+    }
+
+    /**
+     * Returns the next recorded page.
+     *
+     * @return The page or null if all pages are read
+     */
+    @Nullable
+    public RecordedPage next() throws IOException {
+      String line = reader.readLine();
+      if (line == null) {
+        return null;
+      }
+      int separator = line.indexOf(SEPARATOR);
+      if (separator < 0 || line.length() < separator + 3 || line.charAt(separator + 2) != SEPARATOR) {
+        throw new IOException("Archive entry contains invalid page: " + line);
+      }
+      return new RecordedPage(line.substring(0, separator), line.charAt(separator + 1) == '1',
+                              line.substring(separator + 3));
+    }
+
+    @Override
+    public void close() {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close archive entry.", e);
+      }
+    }
+  }
+}
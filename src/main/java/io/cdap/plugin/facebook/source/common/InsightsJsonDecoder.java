@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Decodes pages of Insights API responses into {@link StructuredRecord} instances while reading them, without
+ * building SDK objects or JSON trees. Rows are decoded by the same {@link InsightsTransformPlan}, which
+ * {@link AdsInsightsTransformer} transforms them by.
+ */
+public class InsightsJsonDecoder {
+  private final InsightsTransformPlan plan;
+  @Nullable
+  private final String objectIdField;
+
+  /**
+   * Constructor for InsightsJsonDecoder object.
+   * @param schema The schema of records
+   * @param objectIdField The field to set id of the object insights were read for to, null if not set
+   */
+  public InsightsJsonDecoder(Schema schema, @Nullable String objectIdField) {
+    this.plan = InsightsTransformPlan.compile(schema);
+    this.objectIdField = objectIdField;
+  }
+
+  /**
+   * Decodes a page of insights.
+   *
+   * @param reader The reader positioned at the start of the page
+   * @param objectId The id of the object insights were read for
+   * @return The decoded page
+   */
+  public Page decodePage(JsonReader reader, String objectId) throws IOException {
+    List<StructuredRecord> records = new ArrayList<>();
+    String after = null;
+    boolean hasNext = false;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("data".equals(name)) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          records.add(decodeRow(reader, objectId));
+        }
+        reader.endArray();
+      } else if ("paging".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String pagingName = reader.nextName();
+          if ("next".equals(pagingName)) {
+            // 'next' link is present only if there are more pages
+            hasNext = true;
+            reader.skipValue();
+          } else if ("cursors".equals(pagingName) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            after = readAfterCursor(reader);
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new Page(records, hasNext ? after : null);
+  }
+
+  private StructuredRecord decodeRow(JsonReader reader, String objectId) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(plan.getSchema());
+    decodeFields(reader, builder, plan);
+    if (objectIdField != null) {
+      builder.set(objectIdField, objectId);
+    }
+    return builder.build();
+  }
+
+  private static void decodeFields(JsonReader reader, StructuredRecord.Builder builder, InsightsTransformPlan plan)
+    throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      InsightsTransformPlan.Slot slot = plan.getSlot(reader.nextName());
+      if (slot == null || reader.peek() == JsonToken.NULL) {
+        reader.skipValue();
+        continue;
+      }
+      builder.set(slot.getName(), decodeValue(reader, slot));
+    }
+    reader.endObject();
+  }
+
+  @Nullable
+  private static Object decodeValue(JsonReader reader, InsightsTransformPlan.Slot slot) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.skipValue();
+      return null;
+    }
+    switch (slot.getKind()) {
+      case STRING:
+      case LONG:
+      case DOUBLE:
+      case DECIMAL:
+      case DATE:
+        return slot.parse(reader.peek() == JsonToken.BOOLEAN ? String.valueOf(reader.nextBoolean())
+                            : reader.nextString());
+      case RECORD:
+        InsightsTransformPlan recordPlan = slot.getRecordPlan();
+        StructuredRecord.Builder builder = StructuredRecord.builder(recordPlan.getSchema());
+        decodeFields(reader, builder, recordPlan);
+        return builder.build();
+      case ARRAY:
+        List<Object> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          values.add(decodeValue(reader, slot.getComponent()));
+        }
+        reader.endArray();
+        return values;
+      default:
+        reader.skipValue();
+        return null;
+    }
+  }
+
+  @Nullable
+  private static String readAfterCursor(JsonReader reader) throws IOException {
+    String after = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if ("after".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+        after = reader.nextString();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return after;
+  }
+
+  /**
+   * Page of decoded insights.
+   */
+  public static class Page {
+    private final List<StructuredRecord> records;
+    @Nullable
+    private final String after;
+
+    public Page(List<StructuredRecord> records, @Nullable String after) {
+      this.records = records;
+      this.after = after;
+    }
+
+    public List<StructuredRecord> getRecords() {
+      return records;
+    }
+
+    /**
+     * Returns cursor of the next page.
+     * @return The cursor or null if this is the last page
+     */
+    @Nullable
+    public String getAfter() {
+      return after;
+    }
+  }
+}
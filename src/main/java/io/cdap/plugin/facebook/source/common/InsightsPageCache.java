@@ -0,0 +1,366 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
+import io.cdap.plugin.facebook.source.common.config.Breakdowns;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Caches pages of insights of finalized days in a directory of any Hadoop file system, local disk included.
+ * Insights of days older than the attribution window never change, so they are read from Graph API only once.
+ * Every entry holds all rows of a single day of an object as gzipped lines of page JSON. Entries are evicted by age
+ * and, least recently used first, by total size. Age is taken from modification time of the entry, last use from an
+ * empty marker file touched on every read, since access times aren't kept by every file system.
+ */
+public class InsightsPageCache {
+  private static final Logger LOG = LoggerFactory.getLogger(InsightsPageCache.class);
+  private static final String ENTRY_SUFFIX = ".json.gz";
+  private static final String USE_MARKER_SUFFIX = ".used";
+
+  private final FileSystem fileSystem;
+  private final Path dir;
+  private final long maxSizeBytes;
+  private final long ttlMillis;
+
+  /**
+   * Constructor for InsightsPageCache object.
+   * @param path The directory to keep cache entries in
+   * @param conf The Hadoop configuration to access the file system by
+   * @param maxSizeMb The maximum total size of cache entries in megabytes
+   * @param ttlDays The number of days entries are kept for
+   */
+  public InsightsPageCache(String path, Configuration conf, int maxSizeMb, int ttlDays) throws IOException {
+    this.dir = new Path(path);
+    this.fileSystem = dir.getFileSystem(conf);
+    this.maxSizeBytes = maxSizeMb * 1024L * 1024L;
+    this.ttlMillis = TimeUnit.DAYS.toMillis(ttlDays);
+  }
+
+  /**
+   * Returns whether insights of given scope can't change anymore. Days are compared in UTC with a day of margin,
+   * so the check holds in time zone of any ad account.
+   *
+   * @param scope The scope
+   * @param attributionDays The number of days insights may still change for
+   * @param today The current day in UTC
+   * @return true if the scope covers only finalized days
+   */
+  public static boolean isFinalized(InsightsScope scope, int attributionDays, LocalDate today) {
+    TimeRange timeRange = scope.getTimeRange();
+    return timeRange != null && timeRange.getUntil().isBefore(today.minusDays(attributionDays + 1));
+  }
+
+  /**
+   * Returns whether insights of given scope can't change anymore as of now.
+   */
+  public static boolean isFinalized(InsightsScope scope, int attributionDays) {
+    return isFinalized(scope, attributionDays, LocalDate.now(ZoneOffset.UTC));
+  }
+
+  /**
+   * Returns cache key of insights of given scope. Key covers everything, that affects returned rows, so change of
+   * any part of the query reads insights again. Rows visible to different access tokens may differ, so key also
+   * covers a hash of the access token.
+   *
+   * @param config The source configuration
+   * @param scope The scope
+   * @param sorting The sorting of rows or null if rows are not sorted
+   * @return The key
+   */
+  public static String createKey(BaseSourceConfig config, InsightsScope scope, @Nullable String sorting) {
+    String tokenHash = sha256(Strings.nullToEmpty(config.getAccessToken()));
+    return sha256(createQueryKey(config, scope, sorting) + '\n' + tokenHash);
+  }
+
+  /**
+   * Returns cache keys of every day of given scope, in order of days. Insights are cached by day, so entries are
+   * shared by scopes of any time range covering the day.
+   *
+   * @param config The source configuration
+   * @param scope The scope with a time range
+   * @param sorting The sorting of rows or null if rows are not sorted
+   * @return the keys by days
+   */
+  public static Map<LocalDate, String> createDayKeys(BaseSourceConfig config, InsightsScope scope,
+                                                     @Nullable String sorting) {
+    Map<LocalDate, String> keys = new LinkedHashMap<>();
+    for (TimeRange day : scope.getTimeRange().slice(1)) {
+      keys.put(day.getSince(), createKey(config, scope.withTimeRange(day), sorting));
+    }
+    return keys;
+  }
+
+  /**
+   * Returns key of the query of given scope, regardless of the access token it is sent with.
+   */
+  static String createQueryKey(BaseSourceConfig config, InsightsScope scope, @Nullable String sorting) {
+    Breakdowns breakdowns = config.getBreakdown();
+    String key = Joiner.on('\n').useForNull("").join(Arrays.asList(
+      scope.getObjectId(), scope.getTimeRange(), scope.getChildType(), Joiner.on(',').join(scope.getChildIds()),
+      config.getLevel(), Joiner.on(',').join(config.getFields()),
+      breakdowns == null ? null : Joiner.on(',').join(breakdowns.getBreakdowns()),
+      breakdowns == null ? null : Joiner.on(',').join(breakdowns.getActionBreakdowns()),
+      config.getFiltering(), sorting));
+    return sha256(key);
+  }
+
+  private static String sha256(String value) {
+    return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * Returns cached pages.
+   *
+   * @param key The key pages were cached by
+   * @return The list of page JSONs or null if pages are not cached or expired
+   */
+  @Nullable
+  public List<String> get(String key) {
+    Path entry = getEntryPath(key);
+    List<String> pages = new ArrayList<>();
+    try {
+      if (!fileSystem.exists(entry)) {
+        return null;
+      }
+      // modification time of the entry is its creation time, entries are never rewritten in place
+      if (System.currentTimeMillis() - fileSystem.getFileStatus(entry).getModificationTime() > ttlMillis) {
+        return null;
+      }
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(fileSystem.open(entry)), StandardCharsets.UTF_8))) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          pages.add(line);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to read cache entry '{}', ignoring it.", entry, e);
+      return null;
+    }
+    Path useMarker = getUseMarkerPath(key);
+    try {
+      // recently used entries are evicted last, last use is kept apart from the entry, so it doesn't extend the TTL
+      fileSystem.create(useMarker, true).close();
+    } catch (IOException e) {
+      LOG.debug("Failed to mark use of cache entry '{}'.", entry, e);
+    }
+    return pages;
+  }
+
+  /**
+   * Caches pages by given key. Failures are logged and ignored, since cache is optional.
+   *
+   * @param key The key
+   * @param pages The list of page JSONs, each on a single line
+   */
+  public void put(String key, List<String> pages) {
+    try (EntryWriter writer = write(key)) {
+      pages.forEach(writer::write);
+      writer.commit();
+    }
+  }
+
+  /**
+   * Starts writing of an entry page by page. Entry becomes visible, once it is committed. Failures are logged and
+   * ignored, since cache is optional.
+   *
+   * @param key The key
+   * @return The writer of the entry
+   */
+  public EntryWriter write(String key) {
+    return new EntryWriter(getEntryPath(key),
+                           // concurrent readers never see partially written entry in temporary file
+                           new Path(dir, "." + key + "." + UUID.randomUUID() + ".tmp"));
+  }
+
+  /**
+   * Deletes expired entries and then least recently used entries, until total size fits maximum size.
+   */
+  public void evict() {
+    try {
+      if (!fileSystem.exists(dir)) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      Map<String, FileStatus> entries = new HashMap<>();
+      Map<String, FileStatus> useMarkers = new HashMap<>();
+      for (FileStatus status : fileSystem.listStatus(dir)) {
+        String name = status.getPath().getName();
+        boolean expired = now - status.getModificationTime() > ttlMillis;
+        if (name.endsWith(USE_MARKER_SUFFIX)) {
+          useMarkers.put(name.substring(0, name.length() - USE_MARKER_SUFFIX.length()), status);
+        } else if (name.endsWith(ENTRY_SUFFIX) && !expired) {
+          entries.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), status);
+        } else if (expired) {
+          // abandoned temporary files are deleted along with expired entries
+          fileSystem.delete(status.getPath(), false);
+        }
+      }
+      for (Map.Entry<String, FileStatus> useMarker : useMarkers.entrySet()) {
+        if (!entries.containsKey(useMarker.getKey())) {
+          fileSystem.delete(useMarker.getValue().getPath(), false);
+        }
+      }
+
+      List<String> keys = new ArrayList<>(entries.keySet());
+      keys.sort(Comparator.comparingLong(key -> getLastUseTime(entries.get(key), useMarkers.get(key))));
+      long totalSize = entries.values().stream().mapToLong(FileStatus::getLen).sum();
+      for (String key : keys) {
+        if (totalSize <= maxSizeBytes) {
+          break;
+        }
+        FileStatus entry = entries.get(key);
+        fileSystem.delete(entry.getPath(), false);
+        fileSystem.delete(getUseMarkerPath(key), false);
+        totalSize -= entry.getLen();
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to evict entries of cache '{}'.", dir, e);
+    }
+  }
+
+  private static long getLastUseTime(FileStatus entry, @Nullable FileStatus useMarker) {
+    return useMarker == null ? entry.getModificationTime()
+      : Math.max(entry.getModificationTime(), useMarker.getModificationTime());
+  }
+
+  private Path getUseMarkerPath(String key) {
+    return new Path(dir, key + USE_MARKER_SUFFIX);
+  }
+
+  private Path getEntryPath(String key) {
+    return new Path(dir, key + ENTRY_SUFFIX);
+  }
+
+  /**
+   * Writes pages of an entry as they are read, so pages are never held in memory.
+   */
+  public class EntryWriter implements Closeable {
+    private final Path entry;
+    private final Path tmpEntry;
+    // null once the entry is committed, discarded or failed
+    @Nullable
+    private Writer writer;
+
+    private EntryWriter(Path entry, Path tmpEntry) {
+      this.entry = entry;
+      this.tmpEntry = tmpEntry;
+      try {
+        this.writer = new OutputStreamWriter(new GZIPOutputStream(fileSystem.create(tmpEntry, true)),
+                                             StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        LOG.warn("Failed to write cache entry '{}'.", entry, e);
+        discard();
+      }
+    }
+
+    /**
+     * Writes a page.
+     *
+     * @param pageJson The page JSON on a single line
+     */
+    public void write(String pageJson) {
+      if (writer == null) {
+        return;
+      }
+      try {
+        writer.write(pageJson);
+        writer.write('\n');
+      } catch (IOException e) {
+        LOG.warn("Failed to write cache entry '{}'.", entry, e);
+        discard();
+      }
+    }
+
+    /**
+     * Makes written pages visible as the entry, replacing entry written before.
+     */
+    public void commit() {
+      if (writer == null) {
+        return;
+      }
+      try {
+        writer.close();
+        writer = null;
+        fileSystem.delete(entry, false);
+        if (!fileSystem.rename(tmpEntry, entry)) {
+          throw new IOException("Failed to rename " + tmpEntry);
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to write cache entry '{}'.", entry, e);
+        discard();
+      }
+    }
+
+    /**
+     * Discards pages written so far, unless the entry is committed.
+     */
+    @Override
+    public void close() {
+      if (writer != null) {
+        discard();
+      }
+    }
+
+    private void discard() {
+      try {
+        if (writer != null) {
+          writer.close();
+          writer = null;
+        }
+      } catch (IOException ignored) {
+        // temporary file is deleted anyway
+      }
+      try {
+        fileSystem.delete(tmpEntry, false);
+      } catch (IOException ignored) {
+        // abandoned temporary file is evicted eventually
+      }
+    }
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Plan of transforming insights JSON into records of given schema, compiled once per schema. Maps every JSON key,
+ * that has a field in schema, to the slot holding name and kind of the field, so rows are transformed by a single
+ * hash lookup per key. Keys without field, as well as nested objects of fields not in schema, are skipped.
+ */
+public class InsightsTransformPlan {
+  private static final Logger LOG = LoggerFactory.getLogger(InsightsTransformPlan.class);
+  private final Schema schema;
+  private final Map<String, Slot> slots = new HashMap<>();
+
+  private InsightsTransformPlan(Schema schema, boolean nested) {
+    this.schema = schema;
+    for (Schema.Field field : schema.getFields()) {
+      Slot slot = compileSlot(field.getName(), field.getSchema());
+      if (slot != null) {
+        slots.put(field.getName(), slot);
+      }
+    }
+    if (nested) {
+      // fields of nested objects are renamed to comply with Avro naming
+      SchemaHelper.getRenamedFieldNames().forEach((apiName, schemaName) -> {
+        Slot slot = slots.get(schemaName);
+        if (slot != null) {
+          slots.put(apiName, slot);
+        }
+      });
+    }
+  }
+
+  /**
+   * Compiles plan of transforming insights into records of given schema.
+   *
+   * @param schema The record schema
+   * @return The plan
+   */
+  public static InsightsTransformPlan compile(Schema schema) {
+    return new InsightsTransformPlan(schema, false);
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns slot of given JSON key.
+   *
+   * @param key The key of JSON object
+   * @return The slot or null if schema has no field for the key
+   */
+  @Nullable
+  public Slot getSlot(String key) {
+    return slots.get(key);
+  }
+
+  @Nullable
+  private static Slot compileSlot(String name, Schema fieldSchema) {
+    boolean nullable = fieldSchema.isNullable();
+    Schema nonNullableSchema = nullable ? fieldSchema.getNonNullable() : fieldSchema;
+    Schema.LogicalType logicalType = nonNullableSchema.getLogicalType();
+    if (logicalType == Schema.LogicalType.DECIMAL) {
+      return new Slot(name, Kind.DECIMAL, nullable, nonNullableSchema.getScale(), null, null);
+    }
+    if (logicalType == Schema.LogicalType.DATE) {
+      return new Slot(name, Kind.DATE, nullable, 0, null, null);
+    }
+    if (logicalType != null) {
+      return null;
+    }
+    switch (nonNullableSchema.getType()) {
+      case STRING:
+        return new Slot(name, Kind.STRING, nullable, 0, null, null);
+      case LONG:
+        return new Slot(name, Kind.LONG, nullable, 0, null, null);
+      case DOUBLE:
+        return new Slot(name, Kind.DOUBLE, nullable, 0, null, null);
+      case RECORD:
+        return new Slot(name, Kind.RECORD, nullable, 0, new InsightsTransformPlan(nonNullableSchema, true), null);
+      case ARRAY:
+        Slot component = compileSlot(name, nonNullableSchema.getComponentSchema());
+        return component == null ? null : new Slot(name, Kind.ARRAY, nullable, 0, null, component);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Kind of value the slot holds.
+   */
+  public enum Kind {
+    STRING,
+    LONG,
+    DOUBLE,
+    DECIMAL,
+    DATE,
+    RECORD,
+    ARRAY
+  }
+
+  /**
+   * Field of the record along with the way to transform JSON value into its value.
+   */
+  public static class Slot {
+    private final String name;
+    private final Kind kind;
+    private final boolean nullable;
+    private final int scale;
+    @Nullable
+    private final InsightsTransformPlan recordPlan;
+    @Nullable
+    private final Slot component;
+
+    private Slot(String name, Kind kind, boolean nullable, int scale, @Nullable InsightsTransformPlan recordPlan,
+                 @Nullable Slot component) {
+      this.name = name;
+      this.kind = kind;
+      this.nullable = nullable;
+      this.scale = scale;
+      this.recordPlan = recordPlan;
+      this.component = component;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    /**
+     * Returns plan of nested record.
+     * @return The plan or null if the field is not a record
+     */
+    @Nullable
+    public InsightsTransformPlan getRecordPlan() {
+      return recordPlan;
+    }
+
+    /**
+     * Returns slot of array elements.
+     * @return The slot or null if the field is not an array
+     */
+    @Nullable
+    public Slot getComponent() {
+      return component;
+    }
+
+    /**
+     * Parses text of a scalar JSON value into the value of the field, as stored in {@link StructuredRecord}.
+     * Insights API reports numbers as strings, so all scalars are parsed from text. Insights API occasionally
+     * reports invalid values, e.g. empty strings for metrics without data, which are read as null and counted, if
+     * the field is nullable.
+     *
+     * @param text The text of the value
+     * @return The value of the field or null if the text is invalid and the field is nullable
+     */
+    @Nullable
+    public Object parse(String text) {
+      try {
+        return parseValue(text);
+      } catch (NumberFormatException | ArithmeticException | DateTimeException e) {
+        if (!nullable) {
+          throw e;
+        }
+        ReaderMetrics.getInstance().invalidValue();
+        LOG.debug("Invalid value '{}' of field '{}' is read as null: {}", text, name, e.getMessage());
+        return null;
+      }
+    }
+
+    private Object parseValue(String text) {
+      switch (kind) {
+        case STRING:
+          return text;
+        case LONG:
+          return Long.parseLong(text);
+        case DOUBLE:
+          return Double.parseDouble(text);
+        case DECIMAL:
+          BigDecimal decimal = new BigDecimal(text).setScale(scale, RoundingMode.HALF_EVEN);
+          return ByteBuffer.wrap(decimal.unscaledValue().toByteArray());
+        case DATE:
+          return parseEpochDay(text);
+        default:
+          throw new IllegalStateException(String.format("Field '%s' of kind '%s' is not scalar", name, kind));
+      }
+    }
+
+    private static int parseEpochDay(String text) {
+      // dates are reported as 'yyyy-MM-dd', which is parsed without the formatter
+      if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+        return (int) LocalDate.of(parseDigits(text, 0, 4), parseDigits(text, 5, 7), parseDigits(text, 8, 10))
+          .toEpochDay();
+      }
+      return (int) LocalDate.parse(text.substring(0, Math.min(text.length(), 10))).toEpochDay();
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+      int value = 0;
+      for (int i = start; i < end; i++) {
+        int digit = Character.digit(text.charAt(i), 10);
+        if (digit < 0) {
+          throw new DateTimeParseException("Invalid date", text, i);
+        }
+        value = value * 10 + digit;
+      }
+      return value;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package io.cdap.plugin.facebook.source.common;
 
 import com.facebook.ads.sdk.AdsInsights;
 import com.facebook.ads.sdk.InsightsResult;
+import io.cdap.cdap.api.data.format.StructuredRecord;
 
 /**
  * Base class for insight types
@@ -25,9 +26,14 @@ import com.facebook.ads.sdk.InsightsResult;
 public class InsightsType {
   public AdsInsights    adsInsight;
   public InsightsResult insightsResult;
+  // record decoded by direct client
+  public StructuredRecord record;
 
   public Class type;
 
+  // id of the object insights were read for
+  public String objectId;
+
   public InsightsType(AdsInsights insights) {
     adsInsight = insights;
     type = insights.getClass();
@@ -37,4 +43,9 @@ public class InsightsType {
     insightsResult = insights;
     type = insights.getClass();
   }
+
+  public InsightsType(StructuredRecord record) {
+    this.record = record;
+    type = StructuredRecord.class;
+  }
 }
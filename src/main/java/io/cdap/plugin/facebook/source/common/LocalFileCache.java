@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Caches JSON serializable values in files on local disk for limited time. Used to keep results of planning
+ * requests between runs.
+ */
+public class LocalFileCache {
+  private static final Logger LOG = LoggerFactory.getLogger(LocalFileCache.class);
+  private static final Gson gson = new GsonBuilder().create();
+  private static final String DEFAULT_DIR = "cdap-facebook-ads";
+
+  private final File cacheDir;
+  private final long ttlMillis;
+
+  /**
+   * Constructor for LocalFileCache object.
+   * @param cacheDir The directory to keep cache files in
+   * @param ttlMinutes The number of minutes values are valid for, 0 disables caching
+   */
+  public LocalFileCache(File cacheDir, int ttlMinutes) {
+    this.cacheDir = cacheDir;
+    this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+  }
+
+  /**
+   * Returns cache in default directory under local temporary directory.
+   */
+  public static LocalFileCache inTempDir(int ttlMinutes) {
+    return new LocalFileCache(new File(System.getProperty("java.io.tmpdir"), DEFAULT_DIR), ttlMinutes);
+  }
+
+  /**
+   * Returns cached value.
+   *
+   * @param key The key value was cached by
+   * @param type The type of value
+   * @return The value or null if value is not cached or expired
+   */
+  @Nullable
+  public <T> T get(String key, Type type) {
+    if (ttlMillis <= 0) {
+      return null;
+    }
+    File cacheFile = getCacheFile(key);
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+      Entry entry = gson.fromJson(reader, Entry.class);
+      if (entry == null || System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+        return null;
+      }
+      return gson.fromJson(entry.value, type);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to read cache file '{}', ignoring it.", cacheFile, e);
+      return null;
+    }
+  }
+
+  /**
+   * Caches value by given key. Failures are logged and ignored, since cache is optional.
+   */
+  public void put(String key, Object value) {
+    if (ttlMillis <= 0) {
+      return;
+    }
+    File cacheFile = getCacheFile(key);
+    try {
+      Files.createDirectories(cacheDir.toPath());
+      // write to temporary file first, so concurrent runs never see partially written cache
+      File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+      try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+        gson.toJson(new Entry(System.currentTimeMillis(), gson.toJsonTree(value)), writer);
+      }
+      Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Failed to write cache file '{}'.", cacheFile, e);
+    }
+  }
+
+  private File getCacheFile(String key) {
+    return new File(cacheDir, Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString() + ".json");
+  }
+
+  /**
+   * Content of cache file.
+   */
+  private static class Entry {
+    private final long createdAt;
+    private final JsonElement value;
+
+    Entry(long createdAt, JsonElement value) {
+      this.createdAt = createdAt;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Logs sampled rows read from Insights API, so values of specific objects can be checked without logging every row.
+ * Every N-th row and all rows of given objects are logged at debug level of this class. Tracer, which samples
+ * nothing or has debug level disabled, only checks a flag per row.
+ * <p>
+ * Tracer is not thread-safe and is used by a single reader or transform.
+ */
+public class RecordTracer {
+  private static final Logger LOG = LoggerFactory.getLogger(RecordTracer.class);
+  public static final RecordTracer DISABLED = new RecordTracer(0, Collections.emptySet());
+
+  private final int sampleRate;
+  private final Set<String> objectIds;
+  private final boolean enabled;
+  private long rows;
+
+  /**
+   * Constructor for RecordTracer object.
+   * @param sampleRate The number N to log every N-th row, 0 to not sample rows
+   * @param objectIds The ids of objects to log all rows of
+   */
+  public RecordTracer(int sampleRate, Set<String> objectIds) {
+    this.sampleRate = sampleRate;
+    this.objectIds = objectIds;
+    this.enabled = (sampleRate > 0 || !objectIds.isEmpty()) && LOG.isDebugEnabled();
+  }
+
+  /**
+   * Counts the row and returns whether it should be traced. Must be called once per row.
+   *
+   * @param objectId The id of the object row was read for
+   * @return true if row should be passed to {@link #trace}
+   */
+  public boolean shouldTrace(@Nullable String objectId) {
+    if (!enabled) {
+      return false;
+    }
+    // the first row is always sampled, so short reads are traced too
+    boolean sampled = sampleRate > 0 && rows % sampleRate == 0;
+    rows++;
+    return sampled || (objectId != null && objectIds.contains(objectId));
+  }
+
+  /**
+   * Logs the row.
+   *
+   * @param objectId The id of the object row was read for
+   * @param row The JSON of the row or decoded record
+   */
+  public void trace(@Nullable String objectId, Object row) {
+    LOG.debug("Row {} of '{}': {}", rows, objectId,
+              row instanceof StructuredRecord ? describe((StructuredRecord) row) : row);
+  }
+
+  private static String describe(StructuredRecord record) {
+    StringBuilder description = new StringBuilder("{");
+    for (Schema.Field field : record.getSchema().getFields()) {
+      Object value = record.get(field.getName());
+      if (value == null) {
+        continue;
+      }
+      if (description.length() > 1) {
+        description.append(", ");
+      }
+      description.append(field.getName()).append('=')
+        .append(value instanceof StructuredRecord ? describe((StructuredRecord) value) : value);
+    }
+    return description.append('}').toString();
+  }
+}
@@ -16,6 +16,8 @@
 
 package io.cdap.plugin.facebook.source.common;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
@@ -23,17 +25,28 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.facebook.source.common.config.Breakdowns;
 import io.cdap.plugin.facebook.source.common.exceptions.IllegalInsightsFieldException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 /**
  * Helper class to map Facebook Insights fields sets to final {@link Schema}.
  */
 public class SchemaHelper {
+  /**
+   * Schemas built in this JVM by fields, breakdowns, typing and object id field. Schemas are immutable and
+   * deterministic, so all configurations of the same query share a single instance, and comparisons of such schemas
+   * are reference checks. Size is bounded, since fields are chosen by users and can be combined in countless ways.
+   */
+  private static final Cache<List<Object>, Schema> ADS_INSIGHTS_SCHEMAS = CacheBuilder.newBuilder()
+    .maximumSize(100)
+    .build();
+
   /**
    * Returns selected Schema.
    * @param fields The fields
@@ -41,6 +54,41 @@ public class SchemaHelper {
    * @return The instance of Schema
    */
   public static Schema buildAdsInsightsSchema(List<String> fields, Breakdowns breakdowns) {
+    return buildAdsInsightsSchema(fields, breakdowns, false);
+  }
+
+  /**
+   * Returns selected Schema.
+   * @param fields The fields
+   * @param breakdowns The breakdowns
+   * @param typed Whether numeric and date fields are typed, rather than strings
+   * @return The instance of Schema
+   */
+  public static Schema buildAdsInsightsSchema(List<String> fields, Breakdowns breakdowns, boolean typed) {
+    return buildAdsInsightsSchema(fields, breakdowns, typed, null);
+  }
+
+  /**
+   * Returns selected Schema.
+   * @param fields The fields
+   * @param breakdowns The breakdowns
+   * @param typed Whether numeric and date fields are typed, rather than strings
+   * @param objectIdField The name of the field with id of the object rows were read for or null if not added
+   * @return The instance of Schema
+   */
+  public static Schema buildAdsInsightsSchema(List<String> fields, Breakdowns breakdowns, boolean typed,
+                                              @Nullable String objectIdField) {
+    List<Object> key = Arrays.asList(ImmutableList.copyOf(fields),
+                                     breakdowns == null ? null : ImmutableList.copyOf(breakdowns.getBreakdowns()),
+                                     breakdowns == null ? null : ImmutableList.copyOf(breakdowns.getActionBreakdowns()),
+                                     typed, objectIdField);
+    return ADS_INSIGHTS_SCHEMAS.asMap().computeIfAbsent(key, k -> {
+      Schema schema = createAdsInsightsSchema(fields, breakdowns, typed);
+      return objectIdField == null ? schema : addObjectIdField(schema, objectIdField);
+    });
+  }
+
+  private static Schema createAdsInsightsSchema(List<String> fields, Breakdowns breakdowns, boolean typed) {
     Set<String> schemaFields = Sets.newHashSet(fields);
     // ensure that fields introduced by breakdowns added to schema
     if (breakdowns != null) {
@@ -56,7 +104,7 @@ public class SchemaHelper {
       });
     }
     return Schema.recordOf("FacebookAdsInsights",
-        schemaFields.stream().map(SchemaHelper::fromName).collect(Collectors.toList()));
+        schemaFields.stream().map(name -> fromName(name, typed)).collect(Collectors.toList()));
   }
   
   public static Schema buildInsightsResultSchema(List<String> metrics) {
@@ -72,6 +120,60 @@ public class SchemaHelper {
     //    schemaFields.stream().map(SchemaHelper::fromMetricName).collect(Collectors.toList()));
   }
 
+  /**
+   * Returns copy of given record schema with additional non-nullable string field.
+   * @param schema The record schema
+   * @param objectIdField The name of the field to add
+   * @return The instance of Schema
+   */
+  public static Schema addObjectIdField(Schema schema, String objectIdField) {
+    List<Schema.Field> fields = new ArrayList<>(schema.getFields());
+    fields.add(Schema.Field.of(objectIdField, Schema.of(Schema.Type.STRING)));
+    return Schema.recordOf(schema.getRecordName(), fields);
+  }
+
+  /**
+   * Scale of decimal fields. Amounts are reported with up to 2 decimals, costs per result with more.
+   */
+  public static final int DECIMAL_SCALE = 6;
+  private static final int DECIMAL_PRECISION = 38;
+
+  private static final Map<String, Schema> TYPED_FIELD_SCHEMAS = createTypedFieldSchemas();
+
+  private static Map<String, Schema> createTypedFieldSchemas() {
+    ImmutableMap.Builder<String, Schema> builder = ImmutableMap.builder();
+    Schema longSchema = Schema.of(Schema.Type.LONG);
+    Stream.of("app_store_clicks", "call_to_action_clicks", "card_views", "clicks", "deeplink_clicks", "dwell_3_sec",
+              "dwell_5_sec", "dwell_7_sec", "earned_impression", "estimated_ad_recallers",
+              "estimated_ad_recallers_lower_bound", "estimated_ad_recallers_upper_bound", "full_view_impressions",
+              "full_view_reach", "impressions", "impressions_auto_refresh", "impressions_gross",
+              "inline_link_clicks", "inline_post_engagement", "instant_experience_clicks_to_open",
+              "instant_experience_clicks_to_start", "instant_experience_outbound_clicks", "newsfeed_clicks",
+              "newsfeed_impressions", "reach", "thumb_stops", "total_actions", "total_unique_actions",
+              "unique_clicks", "unique_impressions", "unique_inline_link_clicks", "website_clicks")
+      .forEach(name -> builder.put(name, longSchema));
+    Schema doubleSchema = Schema.of(Schema.Type.DOUBLE);
+    Stream.of("actions_per_impression", "attention_events_per_impression", "attention_events_unq_per_reach",
+              "auction_competitiveness", "canvas_avg_view_percent", "canvas_avg_view_time", "ctr",
+              "dda_countby_convs", "deduping_1st_source_ratio", "deduping_2nd_source_ratio",
+              "deduping_3rd_source_ratio", "deduping_ratio", "dwell_rate", "estimated_ad_recall_rate",
+              "estimated_ad_recall_rate_lower_bound", "estimated_ad_recall_rate_upper_bound", "frequency",
+              "inline_link_click_ctr", "newsfeed_avg_position", "unique_ctr", "unique_inline_link_click_ctr",
+              "unique_link_clicks_ctr")
+      .forEach(name -> builder.put(name, doubleSchema));
+    Schema decimalSchema = Schema.decimalOf(DECIMAL_PRECISION, DECIMAL_SCALE);
+    Stream.of("auction_bid", "auction_max_competitor_bid", "cost_per_dda_countby_convs", "cost_per_dwell",
+              "cost_per_dwell_3_sec", "cost_per_dwell_5_sec", "cost_per_dwell_7_sec",
+              "cost_per_estimated_ad_recallers", "cost_per_inline_link_click", "cost_per_inline_post_engagement",
+              "cost_per_total_action", "cost_per_unique_click", "cost_per_unique_inline_link_click", "cpc", "cpm",
+              "cpp", "social_spend", "spend", "today_spend", "total_action_value")
+      .forEach(name -> builder.put(name, decimalSchema));
+    Schema dateSchema = Schema.of(Schema.LogicalType.DATE);
+    Stream.of("created_time", "date_start", "date_stop", "updated_time")
+      .forEach(name -> builder.put(name, dateSchema));
+    return builder.build();
+  }
+
   private static final Map<String, String> API_FIELD_NAME_TO_SCHEMA_NAME = ImmutableMap.<String, String>builder()
     .put("1d_click", "click_1d")
     .put("1d_view", "view_1d")
@@ -81,15 +183,30 @@ public class SchemaHelper {
     .put("7d_view", "view_7d")
     .build();
 
+  // every action field shares the record, so it is named the same way for all of them and for all builds
+  private static final Schema ACTION_STATS_SCHEMA = createActionStatsSchema("FacebookAdsActionStats", false);
+  private static final Schema TYPED_ACTION_STATS_SCHEMA = createActionStatsSchema("FacebookAdsTypedActionStats",
+                                                                                  true);
+
   static Schema createAddActionStatsSchema() {
+    return createAddActionStatsSchema(false);
+  }
+
+  static Schema createAddActionStatsSchema(boolean typed) {
+    return typed ? TYPED_ACTION_STATS_SCHEMA : ACTION_STATS_SCHEMA;
+  }
+
+  private static Schema createActionStatsSchema(String recordName, boolean typed) {
+    // values of actions are counts, amounts or ratios depending on the action, so they can only be typed as double
+    Schema valueSchema = Schema.nullableOf(Schema.of(typed ? Schema.Type.DOUBLE : Schema.Type.STRING));
     return Schema.recordOf(
-      UUID.randomUUID().toString().replace("-", ""),
-      Schema.Field.of("click_1d", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
-      Schema.Field.of("view_1d", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
-      Schema.Field.of("click_28d", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
-      Schema.Field.of("view_28d", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
-      Schema.Field.of("click_7d", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
-      Schema.Field.of("view_7d", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      recordName,
+      Schema.Field.of("click_1d", valueSchema),
+      Schema.Field.of("view_1d", valueSchema),
+      Schema.Field.of("click_28d", valueSchema),
+      Schema.Field.of("view_28d", valueSchema),
+      Schema.Field.of("click_7d", valueSchema),
+      Schema.Field.of("view_7d", valueSchema),
       Schema.Field.of("action_canvas_component_id", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
       Schema.Field.of("action_canvas_component_name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
       Schema.Field.of("action_carousel_card_id", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
@@ -109,7 +226,7 @@ public class SchemaHelper {
       Schema.Field.of("inline", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
       Schema.Field.of("interactive_component_sticker_id", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
       Schema.Field.of("interactive_component_sticker_response", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
-      Schema.Field.of("value", Schema.nullableOf(Schema.of(Schema.Type.STRING)))
+      Schema.Field.of("value", valueSchema)
     );
   }
 
@@ -122,12 +239,29 @@ public class SchemaHelper {
     return API_FIELD_NAME_TO_SCHEMA_NAME.getOrDefault(fieldName, fieldName);
   }
 
+  /**
+   * Returns api field names, which are renamed in schema, along with their schema field names.
+   */
+  static Map<String, String> getRenamedFieldNames() {
+    return API_FIELD_NAME_TO_SCHEMA_NAME;
+  }
+
   /**
    * Returns selected Field.
    * @param name the name
    * @return   the field of Schema
    */
   public static Schema.Field fromName(String name) {
+    return fromName(name, false);
+  }
+
+  /**
+   * Returns selected Field.
+   * @param name the name
+   * @param typed whether numeric and date fields are typed, rather than strings
+   * @return   the field of Schema
+   */
+  public static Schema.Field fromName(String name, boolean typed) {
     switch (name) {
       case "account_currency":
       case "account_id":
@@ -261,10 +395,12 @@ public class SchemaHelper {
       case "updated_time":
       case "website_clicks":
       case "wish_bid":
-        return Schema.Field.of(name, Schema.nullableOf(Schema.of(Schema.Type.STRING)));
+        Schema typedSchema = typed ? TYPED_FIELD_SCHEMAS.get(name) : null;
+        return Schema.Field.of(name, Schema.nullableOf(typedSchema == null ? Schema.of(Schema.Type.STRING)
+                                                         : typedSchema));
       case "actions_results":
       case "cost_per_action_result":
-        return Schema.Field.of(name, Schema.nullableOf(createAddActionStatsSchema()));
+        return Schema.Field.of(name, Schema.nullableOf(createAddActionStatsSchema(typed)));
       case "action_values":
       case "actions":
       case "ad_click_actions":
@@ -348,7 +484,7 @@ public class SchemaHelper {
       case "video_time_watched_actions":
       case "website_ctr":
       case "website_purchase_roas":
-        return Schema.Field.of(name, Schema.nullableOf(Schema.arrayOf(createAddActionStatsSchema())));
+        return Schema.Field.of(name, Schema.nullableOf(Schema.arrayOf(createAddActionStatsSchema(typed))));
       default:
         throw new IllegalInsightsFieldException(name);
     }
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import com.google.common.base.Preconditions;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Inclusive range of days, as accepted by the 'time_range' parameter of Facebook Insights API.
+ */
+public class TimeRange {
+  private final LocalDate since;
+  private final LocalDate until;
+
+  public TimeRange(LocalDate since, LocalDate until) {
+    Preconditions.checkArgument(!since.isAfter(until), "'%s' is after '%s'", since, until);
+    this.since = since;
+    this.until = until;
+  }
+
+  public LocalDate getSince() {
+    return since;
+  }
+
+  public LocalDate getUntil() {
+    return until;
+  }
+
+  /**
+   * Returns number of days covered by this range.
+   */
+  public long getDays() {
+    return ChronoUnit.DAYS.between(since, until) + 1;
+  }
+
+  /**
+   * Splits this range into consecutive slices of given number of days. The last slice may be shorter.
+   *
+   * @param days number of days per slice
+   * @return the list of slices
+   */
+  public List<TimeRange> slice(int days) {
+    Preconditions.checkArgument(days > 0, "Slice size must be positive");
+    List<TimeRange> slices = new ArrayList<>();
+    LocalDate sliceStart = since;
+    while (!sliceStart.isAfter(until)) {
+      LocalDate sliceEnd = sliceStart.plusDays(days - 1);
+      if (sliceEnd.isAfter(until)) {
+        sliceEnd = until;
+      }
+      slices.add(new TimeRange(sliceStart, sliceEnd));
+      sliceStart = sliceEnd.plusDays(1);
+    }
+    return slices;
+  }
+
+  /**
+   * Returns value for 'time_range' parameter of Insights API.
+   */
+  public String toParamValue() {
+    return String.format("{\"since\":\"%s\",\"until\":\"%s\"}", since, until);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TimeRange timeRange = (TimeRange) o;
+    return since.equals(timeRange.since) && until.equals(timeRange.until);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(since, until);
+  }
+
+  @Override
+  public String toString() {
+    return since + ".." + until;
+  }
+}
@@ -17,6 +17,8 @@
 package io.cdap.plugin.facebook.source.common.config;
 
 import com.facebook.ads.sdk.AdsInsights;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -32,7 +34,9 @@ import io.cdap.plugin.facebook.source.common.exceptions.IllegalInsightsFieldExce
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -47,6 +51,7 @@ public class BaseSourceConfig extends ReferencePluginConfig {
   public static final String PROPERTY_CAMPAIGN_ID = "campaignId";
   public static final String PROPERTY_ACCOUNT_ID = "accountId";
   public static final String PROPERTY_PAGE_ID = "pageId";
+  public static final String PROPERTY_BUSINESS_ID = "businessId";
   public static final String PROPERTY_FIELDS = "fields";
   public static final String PROPERTY_METRICS = "metrics";
   public static final String PROPERTY_PERIOD = "period";
@@ -55,6 +60,10 @@ public class BaseSourceConfig extends ReferencePluginConfig {
   public static final String PROPERTY_DATE_PRESET = "datePreset";
   public static final String PROPERTY_BREAKDOWN = "breakdown";
   public static final String PROPERTY_ADDITIONAL_BREAKDOWN = "additionalBreakdown";
+  public static final String PROPERTY_OBJECT_ID_FIELD = "objectIdField";
+  public static final String PROPERTY_TYPED_FIELDS = "typedFields";
+  public static final String PROPERTY_TRACE_SAMPLE_RATE = "traceSampleRate";
+  public static final String PROPERTY_TRACE_OBJECT_IDS = "traceObjectIds";
 
   @Name(PROPERTY_ACCESS_TOKEN)
   @Description("Access Token.")
@@ -96,6 +105,12 @@ public class BaseSourceConfig extends ReferencePluginConfig {
   @Nullable
   protected String pageId;
 
+  @Name(PROPERTY_BUSINESS_ID)
+  @Description("Business Id. Insights are read from all ad accounts owned by the business or shared with it.")
+  @Macro
+  @Nullable
+  protected String businessId;
+
   @Name(PROPERTY_FIELDS)
   @Description("Fields to get.")
   @Macro
@@ -141,11 +156,40 @@ public class BaseSourceConfig extends ReferencePluginConfig {
   @Macro
   protected String additionalBreakdown;
 
+  @Name(PROPERTY_OBJECT_ID_FIELD)
+  @Description("Name of the output field, which contains id of the object the record was read for.")
+  @Nullable
+  @Macro
+  protected String objectIdField;
+
+  @Name(PROPERTY_TYPED_FIELDS)
+  @Description("Whether counts, ratios, amounts and dates are output as long, double, decimal and date fields. "
+    + "Otherwise all values are output as strings.")
+  @Nullable
+  @Macro
+  protected Boolean typedFields;
+
+  @Name(PROPERTY_TRACE_SAMPLE_RATE)
+  @Description("Number N to log every N-th row read from Insights API at debug level. Not set or 0 to not sample "
+    + "rows.")
+  @Nullable
+  @Macro
+  protected Integer traceSampleRate;
+
+  @Name(PROPERTY_TRACE_OBJECT_IDS)
+  @Description("Comma-separated ids of objects to log all rows of at debug level.")
+  @Nullable
+  @Macro
+  protected String traceObjectIds;
+
   /*
   Most likely unique delimiter that helps avoid problems with unescaped symbols in complex filters
   */
   public static final String FILTERING_DELIMITER = "%!delim@%";
   private static final Gson gson = new GsonBuilder().create();
+  private static final Splitter OBJECT_ID_SPLITTER = Splitter.on(CharMatcher.anyOf(", \t\r\n"))
+    .omitEmptyStrings()
+    .trimResults();
 
   private transient Schema schema = null;
 
@@ -163,7 +207,7 @@ public class BaseSourceConfig extends ReferencePluginConfig {
 
   /**
    * Returns the object id depending on the object type set.
-   * @return The string value of either campaignId / AdId / adSetId / accountId / pageId
+   * @return The string value of either campaignId / AdId / adSetId / accountId / pageId / businessId
    */
   public String getObjectId() {
     switch (getObjectType()) {
@@ -177,11 +221,53 @@ public class BaseSourceConfig extends ReferencePluginConfig {
         return accountId;
       case Page:
         return pageId;
+      case Business:
+        return businessId;
       default:
         throw new IllegalArgumentException("Unknown object type");
     }
   }
 
+  /**
+   * Returns ids of objects to read insights for. Object id property may contain several ids separated by commas.
+   * @return The list of object ids
+   */
+  public List<String> getObjectIds() {
+    String objectId = getObjectId();
+    if (Strings.isNullOrEmpty(objectId)) {
+      return Collections.emptyList();
+    }
+    return OBJECT_ID_SPLITTER.splitToList(objectId);
+  }
+
+  /**
+   * Returns name of the field, which contains id of the object the record was read for.
+   * @return The field name or null if object id should not be included to records
+   */
+  @Nullable
+  public String getObjectIdField() {
+    return Strings.isNullOrEmpty(objectIdField) ? null : objectIdField;
+  }
+
+  public boolean isTypedFields() {
+    return typedFields != null && typedFields;
+  }
+
+  public int getTraceSampleRate() {
+    return traceSampleRate == null ? 0 : traceSampleRate;
+  }
+
+  /**
+   * Returns ids of objects to log all rows of.
+   * @return The set of object ids
+   */
+  public Set<String> getTraceObjectIds() {
+    if (Strings.isNullOrEmpty(traceObjectIds)) {
+      return Collections.emptySet();
+    }
+    return new HashSet<>(OBJECT_ID_SPLITTER.splitToList(traceObjectIds));
+  }
+
   /**
    * Returns list of field names.
    * @return the list of fields
@@ -223,9 +309,14 @@ public class BaseSourceConfig extends ReferencePluginConfig {
   public Schema getSchema() {
     if (schema == null) {
       if (getObjectType() != ObjectType.Page) {
-        schema = SchemaHelper.buildAdsInsightsSchema(getFields(), getBreakdown());
+        // object id field is a part of the shared instance, so the schema isn't copied for every configuration
+        schema = SchemaHelper.buildAdsInsightsSchema(getFields(), getBreakdown(), isTypedFields(),
+                                                     getObjectIdField());
       } else {
         schema = SchemaHelper.buildInsightsResultSchema(getMetrics());
+        if (getObjectIdField() != null) {
+          schema = SchemaHelper.addObjectIdField(schema, getObjectIdField());
+        }
       }
     }
     return schema;
@@ -266,6 +357,13 @@ public class BaseSourceConfig extends ReferencePluginConfig {
     return datePreset;
   }
 
+  /**
+   * Returns whether insights are read as a row per day, rather than aggregated over the time range read.
+   */
+  public boolean isDailyRows() {
+    return false;
+  }
+
   /**
    * Returns selected Breakdown.
    * @return The instance of Breakdowns
@@ -303,7 +401,7 @@ public class BaseSourceConfig extends ReferencePluginConfig {
         failureCollector
           .addFailure(
             ex.getMessage(),
-            "Choose one of 'Campaign', 'Ad', 'Ad Set', 'Account', or 'Page'.")
+            "Choose one of 'Campaign', 'Ad', 'Ad Set', 'Account', 'Page' or 'Business'.")
           .withConfigProperty(PROPERTY_OBJECT_TYPE);
       }
     }
@@ -313,6 +411,14 @@ public class BaseSourceConfig extends ReferencePluginConfig {
     validateFieldsAndMetrics(failureCollector);
     validateFiltering(failureCollector);
     validateDatePreset(failureCollector);
+    validateObjectIdField(failureCollector);
+
+    if (!containsMacro(PROPERTY_TRACE_SAMPLE_RATE) && traceSampleRate != null && traceSampleRate < 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid trace sample rate", traceSampleRate),
+                    "Set non-negative number of rows.")
+        .withConfigProperty(PROPERTY_TRACE_SAMPLE_RATE);
+    }
   }
 
   void validateObjectId(FailureCollector failureCollector) {
@@ -352,10 +458,39 @@ public class BaseSourceConfig extends ReferencePluginConfig {
                 .withConfigProperty(PROPERTY_PAGE_ID);
           }
           break;
+        case Business:
+          if (!containsMacro(PROPERTY_BUSINESS_ID) && Strings.isNullOrEmpty(businessId)) {
+            failureCollector.addFailure("Business Id must be not empty.", "Enter valid Business Id.")
+                .withConfigProperty(PROPERTY_BUSINESS_ID);
+          }
+          break;
       }
     }
   }
 
+  void validateObjectIdField(FailureCollector failureCollector) {
+    if (containsMacro(PROPERTY_OBJECT_ID_FIELD) || getObjectIdField() == null
+      || containsMacro(PROPERTY_FIELDS) || containsMacro(PROPERTY_METRICS) || containsMacro(PROPERTY_OBJECT_TYPE)
+      || containsMacro(PROPERTY_BREAKDOWN)) {
+      return;
+    }
+    Schema insightsSchema;
+    try {
+      insightsSchema = getObjectType() != ObjectType.Page
+        ? SchemaHelper.buildAdsInsightsSchema(getFields(), getBreakdown())
+        : SchemaHelper.buildInsightsResultSchema(getMetrics());
+    } catch (IllegalInsightsFieldException | IllegalBreakdownException | IllegalArgumentException ex) {
+      // invalid fields and breakdowns are reported by their own validation
+      return;
+    }
+    if (insightsSchema.getField(objectIdField) != null) {
+      failureCollector
+        .addFailure(String.format("Field '%s' is already read from Insights API.", objectIdField),
+                    "Choose different name for object id field.")
+        .withConfigProperty(PROPERTY_OBJECT_ID_FIELD);
+    }
+  }
+
   void validateFieldsAndMetrics(FailureCollector failureCollector) {
     if (!containsMacro(PROPERTY_FIELDS) && !containsMacro(PROPERTY_METRICS)) {
       if (Strings.isNullOrEmpty(fields) && getFields().size() == 0
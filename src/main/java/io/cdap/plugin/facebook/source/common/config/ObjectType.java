@@ -22,16 +22,69 @@ import java.util.Arrays;
  * Convenience enum to map UI selections to meaningful values.
  */
 public enum ObjectType {
-  Campaign("Campaign"),
-  Ad("Ad"),
-  AdSet("Ad Set"),
-  Account("Account"),
-  Page("Page");
+  Campaign("Campaign", "campaign", 2),
+  Ad("Ad", "ad", 0),
+  AdSet("Ad Set", "adset", 1),
+  Account("Account", "account", 3),
+  Page("Page", "page", -1),
+  Business("Business", "business", 4);
 
   private String stringValue;
+  private String level;
+  // position in ads hierarchy, ad is the lowest one, -1 for objects outside of the hierarchy
+  private int depth;
 
-  ObjectType(String stringValue) {
+  ObjectType(String stringValue, String level, int depth) {
     this.stringValue = stringValue;
+    this.level = level;
+    this.depth = depth;
+  }
+
+  /**
+   * Returns value of insights 'level' parameter, that corresponds to this object type.
+   */
+  public String getLevel() {
+    return level;
+  }
+
+  /**
+   * Returns field that references objects of this type in insights filtering.
+   */
+  public String getFilteringField() {
+    return level + ".id";
+  }
+
+  /**
+   * Returns insights field, that contains id of object of this type.
+   */
+  public String getIdField() {
+    return level + "_id";
+  }
+
+  /**
+   * Returns type of objects insights are read from. Insights of business are read from its ad accounts.
+   */
+  public ObjectType getInsightsObjectType() {
+    return this == Business ? Account : this;
+  }
+
+  /**
+   * Returns whether objects of given type belong to objects of this type in ads hierarchy.
+   */
+  public boolean isParentOf(ObjectType other) {
+    return other.depth >= 0 && depth > other.depth;
+  }
+
+  /**
+   * Returns object type, which corresponds to given insights level.
+   * @param level The level
+   * @return The instance of ObjectType
+   */
+  public static ObjectType fromLevel(String level) {
+    return Arrays.stream(ObjectType.values())
+      .filter(type -> type.level.equals(level))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException(String.format("'%s' is invalid level.", level)));
   }
 
   /**
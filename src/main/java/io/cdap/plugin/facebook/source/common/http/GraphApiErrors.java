@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.APIException;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Classifies errors returned by Graph API.
+ */
+public class GraphApiErrors {
+  // error codes of rate limiting: application, user, page, ads api and ads insights limits
+  private static final Set<Integer> THROTTLING_ERROR_CODES = ImmutableSet.of(4, 17, 32, 613, 80000, 80003, 80004,
+                                                                             80014);
+  // unknown error and temporary unavailability, returned along with 5xx status codes
+  private static final Set<Integer> SERVER_ERROR_CODES = ImmutableSet.of(1, 2);
+  // message of IOException, that the default executor of the SDK fails with on error status
+  private static final Pattern SDK_STATUS_MESSAGE = Pattern.compile("HTTP response code: (\\d{3})");
+
+  /**
+   * Returns whether request was rejected because of rate limits.
+   */
+  public static boolean isThrottling(APIException e) {
+    Integer code = getErrorCode(getError(e));
+    return code != null && THROTTLING_ERROR_CODES.contains(code);
+  }
+
+  /**
+   * Returns whether request may succeed if repeated: rate limiting, server errors and failures of connection.
+   * Failures raised by the plugin itself, e.g. failed report runs or malformed responses, are not transient.
+   */
+  public static boolean isTransient(APIException e) {
+    List<Throwable> causes = Throwables.getCausalChain(e);
+    if (causes.stream().anyMatch(cause -> cause instanceof InterruptedException)) {
+      return false;
+    }
+    JsonObject error = getError(e);
+    if (error != null) {
+      Integer code = getErrorCode(error);
+      JsonElement isTransient = error.get("is_transient");
+      return (code != null && (THROTTLING_ERROR_CODES.contains(code) || SERVER_ERROR_CODES.contains(code)))
+        || (isTransient != null && isTransient.isJsonPrimitive() && isTransient.getAsBoolean());
+    }
+    Integer statusCode = getStatusCode(causes);
+    if (statusCode != null) {
+      // response without Graph API error, e.g. an error page of a proxy
+      return statusCode >= 500;
+    }
+    return causes.stream().anyMatch(GraphApiErrors::isConnectionFailure);
+  }
+
+  /**
+   * Returns HTTP status of the error response or null if request failed without response.
+   */
+  @Nullable
+  private static Integer getStatusCode(List<Throwable> causes) {
+    for (Throwable cause : causes) {
+      if (cause instanceof HttpStatusException) {
+        return ((HttpStatusException) cause).getStatusCode();
+      }
+      Matcher matcher = cause instanceof IOException && cause.getMessage() != null
+        ? SDK_STATUS_MESSAGE.matcher(cause.getMessage()) : null;
+      if (matcher != null && matcher.find()) {
+        return Integer.parseInt(matcher.group(1));
+      }
+    }
+    return null;
+  }
+
+  private static boolean isConnectionFailure(Throwable cause) {
+    // malformed JSON and missing resources are reported as IOException as well, but don't pass on retry
+    return cause instanceof IOException && !(cause instanceof MalformedJsonException)
+      && !(cause instanceof FileNotFoundException);
+  }
+
+  @Nullable
+  private static JsonObject getError(APIException e) {
+    JsonObject response;
+    try {
+      response = e.getRawResponseAsJsonObject();
+    } catch (RuntimeException parseException) {
+      return null;
+    }
+    if (response == null || !response.has("error") || !response.get("error").isJsonObject()) {
+      return null;
+    }
+    return response.getAsJsonObject("error");
+  }
+
+  @Nullable
+  private static Integer getErrorCode(@Nullable JsonObject error) {
+    JsonElement code = error == null ? null : error.get("code");
+    if (code == null || !code.isJsonPrimitive() || !code.getAsJsonPrimitive().isNumber()) {
+      return null;
+    }
+    return code.getAsInt();
+  }
+}
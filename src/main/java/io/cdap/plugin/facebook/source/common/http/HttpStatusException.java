@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.APIException;
+
+/**
+ * Failure of a request, that was responded with an error status. Response body is the message, as with the default
+ * executor of the SDK, so Graph API error is parsed from it the same way.
+ */
+public class HttpStatusException extends APIException.FailedRequestException {
+  private final int statusCode;
+
+  /**
+   * Constructor for HttpStatusException object.
+   * @param statusCode The HTTP status code of the response
+   * @param body The response body
+   */
+  public HttpStatusException(int statusCode, String body) {
+    super(body);
+    this.statusCode = statusCode;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.APIRequest;
+
+/**
+ * Transports requests of the SDK can be sent by.
+ */
+public class HttpTransports {
+  // pool of keep-alive connections shared by the JVM
+  public static final String POOLED = "pooled";
+  // default executor of the SDK, a new connection for every request
+  public static final String SDK = "sdk";
+  public static final int DEFAULT_CONNECT_TIMEOUT = 30;
+  public static final int DEFAULT_READ_TIMEOUT = 300;
+  private static final APIRequest.IRequestExecutor SDK_EXECUTOR = new APIRequest.DefaultRequestExecutor();
+
+  /**
+   * Returns executor of given transport.
+   *
+   * @param transport The transport name
+   * @param connectTimeoutSeconds The timeout of establishing connection, used by pooled transport
+   * @param readTimeoutSeconds The timeout of reading response, used by pooled transport
+   * @return The executor
+   */
+  public static APIRequest.IRequestExecutor get(String transport, int connectTimeoutSeconds,
+                                                int readTimeoutSeconds) {
+    switch (transport) {
+      case POOLED:
+        return PooledRequestExecutor.getInstance(connectTimeoutSeconds, readTimeoutSeconds);
+      case SDK:
+        return SDK_EXECUTOR;
+      default:
+        throw new IllegalArgumentException(String.format("'%s' is invalid transport.", transport));
+    }
+  }
+
+  /**
+   * Returns executor of pooled transport with default timeouts.
+   */
+  public static APIRequest.IRequestExecutor getDefault() {
+    return get(POOLED, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.APIConfig;
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APIRequest;
+import com.facebook.ads.sdk.APIRequest.ResponseWrapper;
+import com.google.common.io.CountingInputStream;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Request executor, which sends requests of the SDK over a pool of keep-alive connections shared by the JVM, so
+ * TLS handshakes are made once per connection instead of once per request. Responses are requested compressed and
+ * decoded from gzip or deflate.
+ */
+public class PooledRequestExecutor implements APIRequest.IRequestExecutor {
+  private static final int MAX_IDLE_CONNECTIONS = 32;
+  private static final long KEEP_ALIVE_MINUTES = 5;
+  private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+  private static final Gson gson = new GsonBuilder().create();
+  // base client owns the connection pool, clients with different timeouts share it
+  private static final OkHttpClient BASE_CLIENT = new OkHttpClient.Builder()
+    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+    .build();
+  private static final ConcurrentMap<Timeouts, PooledRequestExecutor> INSTANCES = new ConcurrentHashMap<>();
+
+  private final OkHttpClient client;
+
+  private PooledRequestExecutor(OkHttpClient client) {
+    this.client = client;
+  }
+
+  /**
+   * Returns executor with given timeouts. Executors share connection pool of the JVM.
+   *
+   * @param connectTimeoutSeconds The timeout of establishing connection
+   * @param readTimeoutSeconds The timeout of reading response
+   * @return The executor
+   */
+  public static PooledRequestExecutor getInstance(int connectTimeoutSeconds, int readTimeoutSeconds) {
+    return INSTANCES.computeIfAbsent(new Timeouts(connectTimeoutSeconds, readTimeoutSeconds), timeouts ->
+      new PooledRequestExecutor(BASE_CLIENT.newBuilder()
+                                  .connectTimeout(timeouts.connectSeconds, TimeUnit.SECONDS)
+                                  .readTimeout(timeouts.readSeconds, TimeUnit.SECONDS)
+                                  .build()));
+  }
+
+  @Override
+  public ResponseWrapper execute(String method, String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    switch (method) {
+      case "GET":
+        return sendGet(apiUrl, allParams, context);
+      case "POST":
+        return sendPost(apiUrl, allParams, context);
+      case "DELETE":
+        return sendDelete(apiUrl, allParams, context);
+      default:
+        throw new IllegalArgumentException("Unsupported http method: " + method);
+    }
+  }
+
+  @Override
+  public ResponseWrapper sendGet(String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    return send(newRequest(toUrl(apiUrl, allParams)).get().build());
+  }
+
+  @Override
+  public ResponseWrapper sendPost(String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    return send(newRequest(HttpUrl.get(apiUrl)).post(toBody(allParams)).build());
+  }
+
+  @Override
+  public ResponseWrapper sendDelete(String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    return send(newRequest(toUrl(apiUrl, allParams)).delete().build());
+  }
+
+  /**
+   * Sends GET request and passes response body to given reader as a stream, so that it is decoded without being
+   * buffered as a whole. Since such requests bypass {@link ThrottlingRequestExecutor}, they are recorded to
+   * {@link ReaderMetrics} here.
+   *
+   * @param apiUrl The url
+   * @param allParams The request parameters
+   * @param bodyReader The reader of response body
+   * @return The value read from response body
+   */
+  public <T> T sendGet(String apiUrl, Map<String, Object> allParams, BodyReader<T> bodyReader)
+    throws APIException, IOException {
+    ReaderMetrics metrics = ReaderMetrics.getInstance();
+    long startMillis = System.currentTimeMillis();
+    try (Response response = client.newCall(newRequest(toUrl(apiUrl, allParams)).get().build()).execute()) {
+      if (!response.isSuccessful()) {
+        String error = decode(response);
+        metrics.apiError();
+        throw new HttpStatusException(response.code(), error);
+      }
+      CountingInputStream bodyStream = new CountingInputStream(openBody(response));
+      T value;
+      try (Reader body = new InputStreamReader(bodyStream, StandardCharsets.UTF_8)) {
+        value = bodyReader.read(body, response.headers().toMultimap().toString());
+      }
+      metrics.apiRequest(System.currentTimeMillis() - startMillis, bodyStream.getCount());
+      return value;
+    } catch (IOException e) {
+      metrics.apiError();
+      throw e;
+    }
+  }
+
+  private ResponseWrapper send(Request request) throws APIException, IOException {
+    try (Response response = client.newCall(request).execute()) {
+      String body = decode(response);
+      if (!response.isSuccessful()) {
+        // error JSON is the message, as with the default executor of the SDK
+        throw new HttpStatusException(response.code(), body);
+      }
+      // headers are formatted the same way the default executor of the SDK does
+      return new ResponseWrapper(body, response.headers().toMultimap().toString());
+    }
+  }
+
+  private static Request.Builder newRequest(HttpUrl url) {
+    // setting Accept-Encoding explicitly turns off transparent decoding of OkHttp, which only supports gzip
+    return new Request.Builder()
+      .url(url)
+      .header("User-Agent", APIConfig.USER_AGENT)
+      .header("Accept-Encoding", "gzip, deflate");
+  }
+
+  /**
+   * Returns body of given response, decoded accordingly to its content encoding.
+   */
+  static String decode(Response response) throws IOException {
+    try (InputStream decoded = openBody(response)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int read = decoded.read(buffer); read != -1; read = decoded.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static InputStream openBody(Response response) throws IOException {
+    ResponseBody body = response.body();
+    if (body == null) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    String encoding = response.header("Content-Encoding");
+    if ("gzip".equalsIgnoreCase(encoding)) {
+      return new GZIPInputStream(body.byteStream());
+    } else if ("deflate".equalsIgnoreCase(encoding)) {
+      return new InflaterInputStream(body.byteStream());
+    }
+    return body.byteStream();
+  }
+
+  private static HttpUrl toUrl(String apiUrl, Map<String, Object> params) {
+    HttpUrl.Builder url = HttpUrl.get(apiUrl).newBuilder();
+    params.forEach((name, value) -> url.addQueryParameter(name, toParamValue(value)));
+    return url.build();
+  }
+
+  private static RequestBody toBody(Map<String, Object> params) {
+    boolean hasFiles = params.values().stream().anyMatch(value -> value instanceof File || value instanceof byte[]);
+    if (!hasFiles) {
+      FormBody.Builder form = new FormBody.Builder();
+      params.forEach((name, value) -> form.add(name, toParamValue(value)));
+      return form.build();
+    }
+    MultipartBody.Builder multipart = new MultipartBody.Builder().setType(MultipartBody.FORM);
+    params.forEach((name, value) -> {
+      if (value instanceof File) {
+        File file = (File) value;
+        multipart.addFormDataPart(name, file.getName(), RequestBody.create(file, OCTET_STREAM));
+      } else if (value instanceof byte[]) {
+        multipart.addFormDataPart(name, name, RequestBody.create((byte[]) value, OCTET_STREAM));
+      } else {
+        multipart.addFormDataPart(name, toParamValue(value));
+      }
+    });
+    return multipart.build();
+  }
+
+  /**
+   * Returns value of request parameter as the SDK sends it. Enums of the SDK are converted to their API values,
+   * collections and objects to JSON.
+   */
+  static String toParamValue(Object value) {
+    if (value == null) {
+      return "null";
+    }
+    if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum) {
+      return value.toString();
+    }
+    return gson.toJson(value);
+  }
+
+  /**
+   * Reads value from response body.
+   *
+   * @param <T> The type of value
+   */
+  public interface BodyReader<T> {
+    T read(Reader body, String headers) throws IOException;
+  }
+
+  /**
+   * Timeouts of a client.
+   */
+  private static class Timeouts {
+    private final int connectSeconds;
+    private final int readSeconds;
+
+    Timeouts(int connectSeconds, int readSeconds) {
+      this.connectSeconds = connectSeconds;
+      this.readSeconds = readSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Timeouts timeouts = (Timeouts) o;
+      return connectSeconds == timeouts.connectSeconds && readSeconds == timeouts.readSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(connectSeconds, readSeconds);
+    }
+  }
+}
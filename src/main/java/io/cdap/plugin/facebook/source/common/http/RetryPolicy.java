@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.APIException;
+import com.google.common.annotations.VisibleForTesting;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeats Graph API calls, which failed with transient errors, with exponential backoff and jitter.
+ */
+public class RetryPolicy {
+  private static final Logger LOG = LoggerFactory.getLogger(RetryPolicy.class);
+  static final long INITIAL_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  static final long MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+  private final int maxRetries;
+  private final long initialDelayMillis;
+
+  /**
+   * Constructor for RetryPolicy object.
+   * @param maxRetries The maximum number of retries of a single call, 0 disables retries
+   */
+  public RetryPolicy(int maxRetries) {
+    this(maxRetries, INITIAL_DELAY_MILLIS);
+  }
+
+  @VisibleForTesting
+  RetryPolicy(int maxRetries, long initialDelayMillis) {
+    this.maxRetries = maxRetries;
+    this.initialDelayMillis = initialDelayMillis;
+  }
+
+  /**
+   * Executes the call, repeating it while it fails with transient errors and retries are left.
+   *
+   * @param description The description of the call for logs
+   * @param call The call
+   * @return The result of the call
+   */
+  public <T> T call(String description, ApiCall<T> call) throws APIException {
+    int attempt = 0;
+    while (true) {
+      try {
+        return call.execute();
+      } catch (APIException e) {
+        if (!shouldRetry(e, attempt)) {
+          throw e;
+        }
+        LOG.warn("{} failed, retrying ({} of {}): {}", description, attempt + 1, maxRetries, e.getMessage());
+        ReaderMetrics.getInstance().apiRetry();
+        backoff(attempt++);
+      }
+    }
+  }
+
+  /**
+   * Returns whether a call, which failed given number of times before, should be repeated after the failure.
+   */
+  public boolean shouldRetry(APIException e, int previousAttempts) {
+    return previousAttempts < maxRetries && GraphApiErrors.isTransient(e);
+  }
+
+  /**
+   * Waits before the next attempt of a call, which failed given number of times before.
+   */
+  public void backoff(int previousAttempts) throws APIException {
+    try {
+      Thread.sleep(getDelayMillis(previousAttempts));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new APIException("Interrupted while waiting to retry", e);
+    }
+  }
+
+  /**
+   * Returns delay before the next attempt. Delay doubles with every attempt and half of it is random, so calls of
+   * parallel splits, that failed at the same time, are not repeated at the same time.
+   */
+  long getDelayMillis(int previousAttempts) {
+    long delay = Math.min(MAX_DELAY_MILLIS, initialDelayMillis << Math.min(previousAttempts, 16));
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  /**
+   * Call of Graph API.
+   */
+  public interface ApiCall<T> {
+    T execute() throws APIException;
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Paces requests of all readers in the JVM by rate limit usage reported by Graph API. Usage is tracked separately
+ * for every ad account and, for requests not bound to an account, for every app user by the access token, so
+ * reaching the limit of one account doesn't slow down reads of others. Usage of the app is shared by all requests
+ * sent with the same access token, so it is tracked once for the token and every request waits for the higher of
+ * the app and the account delay. Requests are sent without delay while usage is below the threshold, above it the
+ * delay between requests grows with usage, so the limit is approached gradually instead of being hit. If Graph API
+ * reports that access is blocked, requests wait until it is expected to be regained.
+ */
+public class ThrottleController {
+  private static final Logger LOG = LoggerFactory.getLogger(ThrottleController.class);
+  public static final int DEFAULT_USAGE_THRESHOLD = 75;
+  private static final ThrottleController INSTANCE = new ThrottleController(DEFAULT_USAGE_THRESHOLD);
+  static final long MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  // used when request is throttled without headers, that tell for how long
+  static final long THROTTLED_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(60);
+  private static final Pattern ACCOUNT_ID = Pattern.compile("/(act_\\d+)(?:[/?]|$)");
+  private static final String APP_KEY_PREFIX = "app:";
+
+  private final LoadingCache<String, UsageState> usages = CacheBuilder.newBuilder()
+    // rate limits are computed over the last hour, so older usage tells nothing
+    .expireAfterAccess(1, TimeUnit.HOURS)
+    .build(new CacheLoader<String, UsageState>() {
+      @Override
+      public UsageState load(String key) {
+        return new UsageState();
+      }
+    });
+  private volatile int usageThreshold;
+
+  @VisibleForTesting
+  ThrottleController(int usageThreshold) {
+    this.usageThreshold = usageThreshold;
+  }
+
+  public static ThrottleController getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns keys usage of given request is tracked by. Account usage is tracked by the ad account the request reads
+   * or, if request is not bound to an account, by hash of the access token. App usage is tracked by hash of the
+   * access token.
+   *
+   * @param url The request URL
+   * @param accessToken The access token the request is sent with
+   * @return The usage key
+   */
+  public static UsageKey getUsageKey(String url, @Nullable String accessToken) {
+    String tokenHash = accessToken == null ? ""
+      : Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8).toString();
+    Matcher matcher = ACCOUNT_ID.matcher(url);
+    return new UsageKey(matcher.find() ? matcher.group(1) : tokenHash, APP_KEY_PREFIX + tokenHash);
+  }
+
+  /**
+   * Sets percentage of usage, above which requests are slowed down.
+   */
+  public void setUsageThreshold(int usageThreshold) {
+    this.usageThreshold = usageThreshold;
+  }
+
+  /**
+   * Waits before sending the next request, as long as current usage of the account and of the app requires.
+   *
+   * @param key The usage key of the request
+   */
+  public void acquire(UsageKey key) throws InterruptedException {
+    long nowMillis = System.currentTimeMillis();
+    long delayMillis = Math.max(getDelayMillis(key.account, nowMillis), getDelayMillis(key.app, nowMillis));
+    if (delayMillis > 0) {
+      LOG.trace("Delaying request by {} ms.", delayMillis);
+      ReaderMetrics.getInstance().throttleWait(delayMillis);
+      Thread.sleep(delayMillis);
+    }
+  }
+
+  /**
+   * Records usage of the account and of the app reported by headers of the latest response.
+   *
+   * @param key The usage key of the request
+   * @param headers The response headers as returned by the SDK
+   * @param nowMillis The current time
+   */
+  public void update(UsageKey key, @Nullable String headers, long nowMillis) {
+    UsageHeaders.Usage accountUsage = UsageHeaders.parseAccountUsage(headers);
+    if (accountUsage != null) {
+      update(key.account, accountUsage, nowMillis);
+    }
+    UsageHeaders.Usage appUsage = UsageHeaders.parseAppUsage(headers);
+    if (appUsage != null) {
+      update(key.app, appUsage, nowMillis);
+    }
+  }
+
+  /**
+   * Records usage reported by the latest response under given key.
+   */
+  void update(String key, UsageHeaders.Usage reported, long nowMillis) {
+    UsageState usage = usages.getUnchecked(key);
+    synchronized (usage) {
+      if (reported.getPercent() >= usageThreshold && usage.percent < usageThreshold) {
+        LOG.info("Rate limit usage reached {}%, slowing down requests.", reported.getPercent());
+      }
+      usage.percent = reported.getPercent();
+      usage.pinned = false;
+      if (reported.getRegainAccessSeconds() > 0) {
+        LOG.warn("Rate limit reached, pausing requests for {} seconds.", reported.getRegainAccessSeconds());
+        usage.blockedUntilMillis = Math.max(usage.blockedUntilMillis,
+                                            nowMillis + TimeUnit.SECONDS.toMillis(reported.getRegainAccessSeconds()));
+      }
+    }
+    ReaderMetrics.getInstance().usage(reported.getPercent());
+  }
+
+  /**
+   * Records that request was rejected because of rate limits. Usage is taken as reached, until access is expected
+   * to be regained or the next response reports usage.
+   *
+   * @param key The usage key of the request
+   * @param nowMillis The current time
+   */
+  public void throttled(UsageKey key, long nowMillis) {
+    UsageState usage = usages.getUnchecked(key.account);
+    synchronized (usage) {
+      usage.pinned = true;
+      usage.blockedUntilMillis = Math.max(usage.blockedUntilMillis, nowMillis + THROTTLED_BACKOFF_MILLIS);
+    }
+  }
+
+  /**
+   * Returns delay before the next request.
+   */
+  long getDelayMillis(String key, long nowMillis) {
+    UsageState usage = usages.getUnchecked(key);
+    synchronized (usage) {
+      long blockedMillis = Math.max(0, usage.blockedUntilMillis - nowMillis);
+      double percent = usage.pinned && blockedMillis > 0 ? Math.max(usage.percent, 100) : usage.percent;
+      int threshold = usageThreshold;
+      if (percent < threshold || threshold >= 100) {
+        return blockedMillis;
+      }
+      double overThreshold = Math.min(1, (percent - threshold) / (100 - threshold));
+      return Math.max(blockedMillis, (long) (MAX_DELAY_MILLIS * overThreshold));
+    }
+  }
+
+  /**
+   * Keys usage of a request is tracked by.
+   */
+  public static class UsageKey {
+    private final String account;
+    private final String app;
+
+    UsageKey(String account, String app) {
+      this.account = account;
+      this.app = app;
+    }
+
+    String getAccount() {
+      return account;
+    }
+
+    String getApp() {
+      return app;
+    }
+  }
+
+  /**
+   * Usage of rate limits by a single account, app user or app.
+   */
+  private static class UsageState {
+    private double percent;
+    // whether usage is taken as reached after request was throttled
+    private boolean pinned;
+    private long blockedUntilMillis;
+  }
+}
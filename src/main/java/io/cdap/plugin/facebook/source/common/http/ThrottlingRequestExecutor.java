@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APIRequest;
+import com.facebook.ads.sdk.APIRequest.ResponseWrapper;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Request executor, which paces requests by {@link ThrottleController} and reports usage headers of every response
+ * to it.
+ */
+public class ThrottlingRequestExecutor implements APIRequest.IRequestExecutor {
+  private static APIRequest.IRequestExecutor installedTransport;
+
+  private final APIRequest.IRequestExecutor delegate;
+  private final ThrottleController controller;
+
+  public ThrottlingRequestExecutor(APIRequest.IRequestExecutor delegate, ThrottleController controller) {
+    this.delegate = delegate;
+    this.controller = controller;
+  }
+
+  /**
+   * Makes all requests of the SDK in this JVM throttled and sent by given transport. Repeated calls with the same
+   * transport only update the usage threshold.
+   *
+   * @param usageThreshold The percentage of usage, above which requests are slowed down
+   * @param transport The executor to send requests by
+   */
+  public static synchronized void install(int usageThreshold, APIRequest.IRequestExecutor transport) {
+    ThrottleController.getInstance().setUsageThreshold(usageThreshold);
+    if (installedTransport != transport) {
+      APIRequest.changeRequestExecutor(new ThrottlingRequestExecutor(transport, ThrottleController.getInstance()));
+      installedTransport = transport;
+    }
+  }
+
+  @Override
+  public ResponseWrapper execute(String method, String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    return throttled(apiUrl, context, () -> delegate.execute(method, apiUrl, allParams, context));
+  }
+
+  @Override
+  public ResponseWrapper sendGet(String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    return throttled(apiUrl, context, () -> delegate.sendGet(apiUrl, allParams, context));
+  }
+
+  @Override
+  public ResponseWrapper sendPost(String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    return throttled(apiUrl, context, () -> delegate.sendPost(apiUrl, allParams, context));
+  }
+
+  @Override
+  public ResponseWrapper sendDelete(String apiUrl, Map<String, Object> allParams, APIContext context)
+    throws APIException, IOException {
+    return throttled(apiUrl, context, () -> delegate.sendDelete(apiUrl, allParams, context));
+  }
+
+  private ResponseWrapper throttled(String apiUrl, APIContext context, Call call) throws APIException, IOException {
+    ThrottleController.UsageKey usageKey = ThrottleController.getUsageKey(apiUrl, context.getAccessToken());
+    try {
+      controller.acquire(usageKey);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new APIException("Interrupted while waiting for rate limits", e);
+    }
+
+    ReaderMetrics metrics = ReaderMetrics.getInstance();
+    long startMillis = System.currentTimeMillis();
+    ResponseWrapper response;
+    try {
+      response = call.execute();
+    } catch (APIException | IOException e) {
+      metrics.apiError();
+      if (e instanceof APIException && GraphApiErrors.isThrottling((APIException) e)) {
+        controller.throttled(usageKey, System.currentTimeMillis());
+      }
+      throw e;
+    }
+    metrics.apiRequest(System.currentTimeMillis() - startMillis,
+                       response.getBody() == null ? 0 : response.getBody().length());
+    controller.update(usageKey, response.getHeader(), System.currentTimeMillis());
+    return response;
+  }
+
+  /**
+   * Request sent by the delegate.
+   */
+  private interface Call {
+    ResponseWrapper execute() throws APIException, IOException;
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Parses rate limit usage reported by Graph API in response headers.
+ *
+ * Headers contain JSON objects, e.g. 'X-App-Usage: {"call_count":28,"total_time":25,"total_cputime":25}' or
+ * 'X-Business-Use-Case-Usage: {"123":[{"type":"ads_insights","call_count":95,...,
+ * "estimated_time_to_regain_access":0}]}'. The SDK hands headers over as a single string, so objects are located
+ * by header names instead of relying on exact format of the string. 'X-App-Usage' reports usage of the whole app,
+ * while other headers report usage of the ad account or business the request reads, so they are parsed separately.
+ */
+public class UsageHeaders {
+  static final String APP_USAGE = "x-app-usage";
+  static final String AD_ACCOUNT_USAGE = "x-ad-account-usage";
+  static final String BUSINESS_USE_CASE_USAGE = "x-business-use-case-usage";
+  static final String INSIGHTS_THROTTLE = "x-fb-ads-insights-throttle";
+  private static final Set<String> ACCOUNT_HEADERS = ImmutableSet.of(AD_ACCOUNT_USAGE, BUSINESS_USE_CASE_USAGE,
+                                                                     INSIGHTS_THROTTLE);
+  private static final Set<String> PERCENT_FIELDS = ImmutableSet.of("call_count", "total_time", "total_cputime",
+                                                                    "acc_id_util_pct", "app_id_util_pct");
+  private static final String REGAIN_ACCESS_MINUTES_FIELD = "estimated_time_to_regain_access";
+  private static final String RESET_TIME_SECONDS_FIELD = "reset_time_duration";
+  // header value starts right after the name, allow for separators and quotes in between
+  private static final int MAX_VALUE_OFFSET = 8;
+
+  /**
+   * Returns the highest usage of the ad account or business reported in given headers.
+   *
+   * @param headers The response headers as returned by the SDK
+   * @return The usage or null if headers don't report usage of the account
+   */
+  @Nullable
+  public static Usage parseAccountUsage(@Nullable String headers) {
+    return parse(headers, ACCOUNT_HEADERS);
+  }
+
+  /**
+   * Returns usage of the app reported in given headers.
+   *
+   * @param headers The response headers as returned by the SDK
+   * @return The usage or null if headers don't report usage of the app
+   */
+  @Nullable
+  public static Usage parseAppUsage(@Nullable String headers) {
+    return parse(headers, Collections.singleton(APP_USAGE));
+  }
+
+  @Nullable
+  private static Usage parse(@Nullable String headers, Set<String> headerNames) {
+    if (headers == null) {
+      return null;
+    }
+    String lowerCaseHeaders = headers.toLowerCase(Locale.ROOT);
+    Usage usage = null;
+    for (String header : headerNames) {
+      JsonObject value = findJsonValue(headers, lowerCaseHeaders, header);
+      if (value != null) {
+        Usage headerUsage = collect(value, new Usage(0, 0));
+        usage = usage == null ? headerUsage : usage.max(headerUsage);
+      }
+    }
+    return usage;
+  }
+
+  private static Usage collect(JsonElement element, Usage usage) {
+    if (element.isJsonArray()) {
+      for (JsonElement item : element.getAsJsonArray()) {
+        usage = collect(item, usage);
+      }
+    } else if (element.isJsonObject()) {
+      double percent = 0;
+      long regainSeconds = 0;
+      long resetSeconds = 0;
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        JsonElement value = entry.getValue();
+        if (PERCENT_FIELDS.contains(entry.getKey()) && isNumber(value)) {
+          percent = Math.max(percent, value.getAsDouble());
+        } else if (REGAIN_ACCESS_MINUTES_FIELD.equals(entry.getKey()) && isNumber(value)) {
+          regainSeconds = value.getAsLong() * 60;
+        } else if (RESET_TIME_SECONDS_FIELD.equals(entry.getKey()) && isNumber(value)) {
+          resetSeconds = value.getAsLong();
+        } else {
+          usage = collect(value, usage);
+        }
+      }
+      // reset time is reported all the time, but access is blocked only when the limit is reached
+      if (percent >= 100) {
+        regainSeconds = Math.max(regainSeconds, resetSeconds);
+      }
+      usage = usage.max(new Usage(percent, regainSeconds));
+    }
+    return usage;
+  }
+
+  private static boolean isNumber(JsonElement element) {
+    return element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber();
+  }
+
+  @Nullable
+  private static JsonObject findJsonValue(String headers, String lowerCaseHeaders, String header) {
+    int nameIndex = lowerCaseHeaders.indexOf(header);
+    if (nameIndex < 0) {
+      return null;
+    }
+    int start = headers.indexOf('{', nameIndex + header.length());
+    if (start < 0 || start - nameIndex - header.length() > MAX_VALUE_OFFSET) {
+      return null;
+    }
+    int depth = 0;
+    for (int i = start; i < headers.length(); i++) {
+      char c = headers.charAt(i);
+      if (c == '{') {
+        depth++;
+      } else if (c == '}' && --depth == 0) {
+        // value may be embedded into a JSON string, so quotes are escaped
+        String json = headers.substring(start, i + 1).replace("\\\"", "\"");
+        try {
+          JsonElement value = new JsonParser().parse(json);
+          return value.isJsonObject() ? value.getAsJsonObject() : null;
+        } catch (JsonParseException e) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Usage of rate limits.
+   */
+  public static class Usage {
+    private final double percent;
+    private final long regainAccessSeconds;
+
+    /**
+     * Constructor for Usage object.
+     * @param percent The percentage of the limit used
+     * @param regainAccessSeconds The number of seconds until requests are allowed again, 0 if not blocked
+     */
+    public Usage(double percent, long regainAccessSeconds) {
+      this.percent = percent;
+      this.regainAccessSeconds = regainAccessSeconds;
+    }
+
+    public double getPercent() {
+      return percent;
+    }
+
+    public long getRegainAccessSeconds() {
+      return regainAccessSeconds;
+    }
+
+    Usage max(Usage other) {
+      return new Usage(Math.max(percent, other.percent), Math.max(regainAccessSeconds, other.regainAccessSeconds));
+    }
+
+    @Override
+    public String toString() {
+      return "Usage{percent=" + percent + ", regainAccessSeconds=" + regainAccessSeconds + "}";
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.metrics;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates metrics of Graph API requests and of reading insights in this JVM. Requests are sent by executors
+ * shared by all readers of the JVM, which have no access to metrics of the stage, so metrics are accumulated here
+ * and emitted to stage metrics by the transform of the source.
+ * <p>
+ * Latencies are kept in buckets of powers of two milliseconds, so percentiles are approximated by the upper bound
+ * of their bucket.
+ */
+public class ReaderMetrics {
+  public static final String API_REQUESTS = "api.requests";
+  public static final String API_ERRORS = "api.errors";
+  public static final String API_RETRIES = "api.retries";
+  public static final String API_LATENCY_MS = "api.latency.ms";
+  public static final String API_LATENCY_P50_MS = "api.latency.p50.ms";
+  public static final String API_LATENCY_P95_MS = "api.latency.p95.ms";
+  public static final String API_LATENCY_P99_MS = "api.latency.p99.ms";
+  public static final String BYTES_RECEIVED = "bytes.received";
+  public static final String PAGES_READ = "pages.read";
+  public static final String ROWS_READ = "rows.read";
+  public static final String THROTTLE_WAIT_MS = "throttle.wait.ms";
+  public static final String INVALID_VALUES = "values.invalid";
+  public static final String USAGE_PERCENT = "usage.percent";
+  public static final String TRANSFORM_TIME_US = "transform.time.us";
+
+  private static final ReaderMetrics INSTANCE = new ReaderMetrics();
+  private static final int LATENCY_BUCKETS = 32;
+
+  private final LongAdder apiRequests = new LongAdder();
+  private final LongAdder apiErrors = new LongAdder();
+  private final LongAdder apiRetries = new LongAdder();
+  private final LongAdder apiLatencyMillis = new LongAdder();
+  private final LongAdder bytesReceived = new LongAdder();
+  private final LongAdder pagesRead = new LongAdder();
+  private final LongAdder rowsRead = new LongAdder();
+  private final LongAdder throttleWaitMillis = new LongAdder();
+  private final LongAdder invalidValues = new LongAdder();
+  private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+  private volatile double usagePercent = -1;
+
+  @VisibleForTesting
+  ReaderMetrics() {
+  }
+
+  public static ReaderMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Records a completed request.
+   *
+   * @param latencyMillis The time from sending the request to reading the response
+   * @param bytes The size of the decoded response body
+   */
+  public void apiRequest(long latencyMillis, long bytes) {
+    apiRequests.increment();
+    apiLatencyMillis.add(latencyMillis);
+    bytesReceived.add(bytes);
+    latencyBuckets.incrementAndGet(getBucket(latencyMillis));
+  }
+
+  /**
+   * Records a failed request.
+   */
+  public void apiError() {
+    apiErrors.increment();
+  }
+
+  /**
+   * Records a retry of a failed request.
+   */
+  public void apiRetry() {
+    apiRetries.increment();
+  }
+
+  /**
+   * Records a page of insights read by a reader, either requested or read from cache.
+   *
+   * @param rows The number of rows of the page
+   */
+  public void pageRead(int rows) {
+    pagesRead.increment();
+    rowsRead.add(rows);
+  }
+
+  /**
+   * Records time a request was delayed for by rate limits.
+   */
+  public void throttleWait(long millis) {
+    throttleWaitMillis.add(millis);
+  }
+
+  /**
+   * Records a value, that couldn't be parsed into the type of its field and was read as null.
+   */
+  public void invalidValue() {
+    invalidValues.increment();
+  }
+
+  /**
+   * Records rate limit usage reported by the latest response.
+   */
+  public void usage(double percent) {
+    usagePercent = percent;
+  }
+
+  /**
+   * Emits metrics accumulated since the previous call to given metrics and resets them. Counts are emitted as
+   * counters, latency percentiles and usage as gauges. Percentiles are not emitted if there were no requests.
+   *
+   * @param metrics The metrics of the stage
+   */
+  public synchronized void emit(StageMetrics metrics) {
+    count(metrics, API_REQUESTS, apiRequests.sumThenReset());
+    count(metrics, API_ERRORS, apiErrors.sumThenReset());
+    count(metrics, API_RETRIES, apiRetries.sumThenReset());
+    count(metrics, API_LATENCY_MS, apiLatencyMillis.sumThenReset());
+    count(metrics, BYTES_RECEIVED, bytesReceived.sumThenReset());
+    count(metrics, PAGES_READ, pagesRead.sumThenReset());
+    count(metrics, ROWS_READ, rowsRead.sumThenReset());
+    count(metrics, THROTTLE_WAIT_MS, throttleWaitMillis.sumThenReset());
+    count(metrics, INVALID_VALUES, invalidValues.sumThenReset());
+
+    long[] buckets = new long[LATENCY_BUCKETS];
+    long total = 0;
+    for (int i = 0; i < LATENCY_BUCKETS; i++) {
+      buckets[i] = latencyBuckets.getAndSet(i, 0);
+      total += buckets[i];
+    }
+    if (total > 0) {
+      metrics.gauge(API_LATENCY_P50_MS, getPercentile(buckets, total, 0.50));
+      metrics.gauge(API_LATENCY_P95_MS, getPercentile(buckets, total, 0.95));
+      metrics.gauge(API_LATENCY_P99_MS, getPercentile(buckets, total, 0.99));
+    }
+    if (usagePercent >= 0) {
+      metrics.gauge(USAGE_PERCENT, Math.round(usagePercent));
+    }
+  }
+
+  /**
+   * Emits count, that may exceed the range of int, as several increments.
+   */
+  static void count(StageMetrics metrics, String name, long delta) {
+    while (delta > 0) {
+      int increment = (int) Math.min(delta, Integer.MAX_VALUE);
+      metrics.count(name, increment);
+      delta -= increment;
+    }
+  }
+
+  /**
+   * Returns bucket of given latency. Bucket i holds latencies below 2^i milliseconds.
+   */
+  @VisibleForTesting
+  static int getBucket(long latencyMillis) {
+    int bucket = 64 - Long.numberOfLeadingZeros(Math.max(0, latencyMillis));
+    return Math.min(bucket, LATENCY_BUCKETS - 1);
+  }
+
+  @VisibleForTesting
+  static long getPercentile(long[] buckets, long total, double percentile) {
+    long rank = (long) Math.ceil(total * percentile);
+    long seen = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+      if (seen >= rank) {
+        return 1L << i;
+      }
+    }
+    return 1L << (buckets.length - 1);
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINodeList;
+import com.facebook.ads.sdk.AdAccount;
+import com.facebook.ads.sdk.Business;
+import com.google.gson.reflect.TypeToken;
+import io.cdap.plugin.facebook.source.common.LocalFileCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Discovers ad accounts owned by businesses or shared with them. Lists of accounts are paged through concurrently
+ * and cached, so repeated runs skip discovery until cache expires.
+ */
+public class AdAccountDiscovery {
+  private static final Logger LOG = LoggerFactory.getLogger(AdAccountDiscovery.class);
+  private static final Type ACCOUNT_IDS_TYPE = new TypeToken<List<String>>() { }.getType();
+  private static final int PAGE_SIZE = 500;
+  private static final int MAX_THREADS = 8;
+
+  private final String accessToken;
+  private final LocalFileCache cache;
+
+  /**
+   * Constructor for AdAccountDiscovery object.
+   * @param accessToken The access token
+   * @param cache The cache to keep discovered accounts in between runs
+   */
+  public AdAccountDiscovery(String accessToken, LocalFileCache cache) {
+    this.accessToken = accessToken;
+    this.cache = cache;
+  }
+
+  /**
+   * Returns ids of all ad accounts owned by given businesses or shared with them.
+   *
+   * @param businessIds The business ids
+   * @return The list of ad account ids
+   */
+  public List<String> discover(List<String> businessIds) throws APIException {
+    Set<String> accountIds = new LinkedHashSet<>();
+    List<String> notCached = new ArrayList<>();
+    for (String businessId : businessIds) {
+      List<String> cached = readCache(businessId);
+      if (cached != null) {
+        LOG.debug("Using {} cached ad accounts of business '{}'.", cached.size(), businessId);
+        accountIds.addAll(cached);
+      } else {
+        notCached.add(businessId);
+      }
+    }
+    if (notCached.isEmpty()) {
+      return new ArrayList<>(accountIds);
+    }
+
+    APIContext context = InsightsRequestFactory.createContext(accessToken);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_THREADS, notCached.size() * 2));
+    try {
+      Map<String, List<Future<List<String>>>> futures = new LinkedHashMap<>();
+      for (String businessId : notCached) {
+        Business business = new Business(businessId, context);
+        futures.put(businessId, Arrays.asList(
+          executor.submit(() -> collectIds(business.getOwnedAdAccounts()
+                                             .requestField("id")
+                                             .setParam("limit", PAGE_SIZE)
+                                             .execute())),
+          executor.submit(() -> collectIds(business.getClientAdAccounts()
+                                             .requestField("id")
+                                             .setParam("limit", PAGE_SIZE)
+                                             .execute()))
+        ));
+      }
+
+      for (Map.Entry<String, List<Future<List<String>>>> entry : futures.entrySet()) {
+        Set<String> businessAccountIds = new LinkedHashSet<>();
+        for (Future<List<String>> future : entry.getValue()) {
+          businessAccountIds.addAll(getResult(future));
+        }
+        LOG.info("Discovered {} ad accounts of business '{}'.", businessAccountIds.size(), entry.getKey());
+        writeCache(entry.getKey(), new ArrayList<>(businessAccountIds));
+        accountIds.addAll(businessAccountIds);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return new ArrayList<>(accountIds);
+  }
+
+  private static List<String> collectIds(APINodeList<AdAccount> page) throws APIException {
+    List<String> ids = new ArrayList<>();
+    while (page != null) {
+      for (AdAccount account : page) {
+        ids.add(account.getFieldId());
+      }
+      page = page.nextPage();
+    }
+    return ids;
+  }
+
+  private static List<String> getResult(Future<List<String>> future) throws APIException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new APIException("Interrupted while discovering ad accounts", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof APIException) {
+        throw (APIException) e.getCause();
+      }
+      throw new APIException("Failed to discover ad accounts", e.getCause());
+    }
+  }
+
+  @Nullable
+  private List<String> readCache(String businessId) {
+    return cache.get(getCacheKey(businessId), ACCOUNT_IDS_TYPE);
+  }
+
+  private void writeCache(String businessId, List<String> accountIds) {
+    cache.put(getCacheKey(businessId), accountIds);
+  }
+
+  private String getCacheKey(String businessId) {
+    // token is part of the key, since different tokens may have access to different accounts
+    return "business:" + businessId + ":" + accessToken;
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINodeList;
+import com.facebook.ads.sdk.APIRequest;
+import com.facebook.ads.sdk.Ad;
+import com.facebook.ads.sdk.AdAccount;
+import com.facebook.ads.sdk.AdReportRun;
+import com.facebook.ads.sdk.AdSet;
+import com.facebook.ads.sdk.AdsInsights;
+import com.facebook.ads.sdk.Campaign;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps one of the following requests: {@link Campaign.APIRequestGetInsightsAsync},
+ * {@link Ad.APIRequestGetInsightsAsync}, {@link AdSet.APIRequestGetInsightsAsync},
+ * {@link AdAccount.APIRequestGetInsightsAsync}.
+ *
+ * Instead of reading insights directly, submits {@link AdReportRun} job, waits for it to complete and reads its
+ * results page by page. Asynchronous jobs are not limited by the timeout of synchronous requests, so they are
+ * suitable for large reports. If the request is executed again after a failure, it keeps polling the job submitted
+ * before instead of submitting a new one.
+ */
+public class AdReportRunRequestWrapper extends AdsInsightsRequest {
+  private static final Logger LOG = LoggerFactory.getLogger(AdReportRunRequestWrapper.class);
+  private static final String STATUS_COMPLETED = "Job Completed";
+  private static final Set<String> STATUSES_FAILED = ImmutableSet.of("Job Failed", "Job Skipped");
+  static final long MIN_POLL_INTERVAL_MILLIS = 1000;
+  static final long MAX_POLL_INTERVAL_MILLIS = 30000;
+  private static final int RESULT_PAGE_SIZE = 500;
+
+  private final APIRequest<AdReportRun> request;
+  private final APIContext context;
+  private final ReportRunLimiter limiter;
+  private final long maxWaitMillis;
+  private final List<String> fields = new ArrayList<>();
+  private volatile long percentCompletion;
+  // report run submitted by a previous execution, which failed while waiting for it
+  private String reportRunId;
+  private long submitTime;
+
+  AdReportRunRequestWrapper(APIRequest<AdReportRun> request, APIContext context, int maxRunningReports,
+                            long maxWaitMillis) {
+    this.request = request;
+    this.context = context;
+    this.limiter = ReportRunLimiter.forToken(context.getAccessToken(), maxRunningReports);
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  @Override
+  public void requestField(String fieldName) {
+    request.requestField(fieldName);
+    fields.add(fieldName);
+  }
+
+  @Override
+  public void setParam(String paramName, Object value) {
+    request.setParam(paramName, value);
+  }
+
+  /**
+   * Returns completion percentage of the report run, as reported by the latest poll. Before the run is submitted
+   * it is 0, once the run completes it is 100.
+   */
+  public long getPercentCompletion() {
+    return percentCompletion;
+  }
+
+  /**
+   * Submits report run, unless it was submitted by a previous execution, waits for it to complete and returns the
+   * first page of its results.
+   */
+  @Override
+  public APINodeList<AdsInsights> execute() throws APIException {
+    try {
+      limiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new APIException("Interrupted while waiting to submit report run", e);
+    }
+    try {
+      if (reportRunId == null) {
+        reportRunId = submit().getId();
+        submitTime = System.currentTimeMillis();
+        LOG.debug("Submitted report run '{}'.", reportRunId);
+      } else {
+        LOG.debug("Resuming wait for report run '{}'.", reportRunId);
+      }
+      waitForCompletion(reportRunId);
+    } finally {
+      // results of completed run don't count against the limit, they are read without the job running
+      limiter.release();
+    }
+
+    AdReportRun.APIRequestGetInsights resultRequest = new AdReportRun(reportRunId, context).getInsights();
+    fields.forEach(resultRequest::requestField);
+    resultRequest.setParam("limit", RESULT_PAGE_SIZE);
+    return resultRequest.execute();
+  }
+
+  private AdReportRun submit() throws APIException {
+    // every 'AdReportRun execute()' is the same in requests, but not belongs to common interface
+    if (request instanceof Campaign.APIRequestGetInsightsAsync) {
+      return ((Campaign.APIRequestGetInsightsAsync) request).execute();
+    } else if (request instanceof Ad.APIRequestGetInsightsAsync) {
+      return ((Ad.APIRequestGetInsightsAsync) request).execute();
+    } else if (request instanceof AdSet.APIRequestGetInsightsAsync) {
+      return ((AdSet.APIRequestGetInsightsAsync) request).execute();
+    } else if (request instanceof AdAccount.APIRequestGetInsightsAsync) {
+      return ((AdAccount.APIRequestGetInsightsAsync) request).execute();
+    }
+    throw new IllegalArgumentException("Request is not supported.");
+  }
+
+  private void waitForCompletion(String reportRunId) throws APIException {
+    long startTime = submitTime;
+    long interval = MIN_POLL_INTERVAL_MILLIS;
+    long lastPercent = 0;
+    while (true) {
+      AdReportRun reportRun = new AdReportRun(reportRunId, context).get()
+        .requestAsyncStatusField()
+        .requestAsyncPercentCompletionField()
+        .execute();
+      String status = reportRun.getFieldAsyncStatus();
+      if (STATUS_COMPLETED.equals(status)) {
+        percentCompletion = 100;
+        LOG.debug("Report run '{}' completed in {} ms.", reportRunId, System.currentTimeMillis() - startTime);
+        return;
+      }
+      if (STATUSES_FAILED.contains(status)) {
+        // failed run can't be resumed, the next execution submits a new one
+        this.reportRunId = null;
+        throw new APIException(String.format("Report run '%s' finished with status '%s'.", reportRunId, status));
+      }
+      long elapsedMillis = System.currentTimeMillis() - startTime;
+      if (elapsedMillis >= maxWaitMillis) {
+        throw new APIException(String.format("Report run '%s' didn't complete in %d minutes, its status is '%s'.",
+                                             reportRunId, TimeUnit.MILLISECONDS.toMinutes(elapsedMillis), status));
+      }
+
+      Long percent = reportRun.getFieldAsyncPercentCompletion();
+      long currentPercent = percent == null ? lastPercent : percent;
+      percentCompletion = currentPercent;
+      interval = nextPollInterval(elapsedMillis, interval, lastPercent, currentPercent);
+      lastPercent = currentPercent;
+      try {
+        Thread.sleep(interval);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new APIException(String.format("Interrupted while waiting for report run '%s'", reportRunId), e);
+      }
+    }
+  }
+
+  /**
+   * Returns interval before the next status poll. While job makes progress, remaining time is extrapolated from
+   * the pace so far and job is polled in the middle of it, so polls get more frequent towards the end. Without
+   * progress, interval doubles.
+   */
+  static long nextPollInterval(long elapsedMillis, long previousInterval, long previousPercent, long percent) {
+    long interval;
+    if (percent > previousPercent && percent > 0 && percent < 100) {
+      long remainingMillis = elapsedMillis * (100 - percent) / percent;
+      interval = remainingMillis / 2;
+    } else {
+      interval = previousInterval * 2;
+    }
+    return Math.max(MIN_POLL_INTERVAL_MILLIS, Math.min(MAX_POLL_INTERVAL_MILLIS, interval));
+  }
+}
@@ -17,6 +17,8 @@
 package io.cdap.plugin.facebook.source.common.requests;
 
 import com.facebook.ads.sdk.AdsInsights;
+import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
+import io.cdap.plugin.facebook.source.common.config.Breakdowns;
 
 import java.util.List;
 
@@ -24,6 +26,27 @@ import java.util.List;
  * Common interface for Facebook Insights requests.
  */
 public abstract class AdsInsightsRequest implements InsightsRequest {
+  @Override
+  public void configure(BaseSourceConfig config) {
+    configureBreakdowns(this, config);
+  }
+
+  /**
+   * Sets breakdowns and action breakdowns of given configuration to given request parameters.
+   */
+  static void configureBreakdowns(InsightsRequestParameters request, BaseSourceConfig config) {
+    Breakdowns breakdowns = config.getBreakdown();
+
+    if (breakdowns != null) {
+      if (!breakdowns.getBreakdowns().isEmpty()) {
+        request.setParam("breakdowns", breakdowns.getBreakdowns());
+      }
+      if (!breakdowns.getActionBreakdowns().isEmpty()) {
+        request.setParam("action_breakdowns", breakdowns.getActionBreakdowns());
+      }
+    }
+  }
+
   public void setBreakdowns(List<AdsInsights.EnumBreakdowns> breakdowns) {
     setParam("breakdowns", breakdowns);
   }
@@ -23,16 +23,14 @@ import com.facebook.ads.sdk.Ad;
 import com.facebook.ads.sdk.AdAccount;
 import com.facebook.ads.sdk.AdSet;
 import com.facebook.ads.sdk.AdsInsights;
+import com.facebook.ads.sdk.BatchRequest;
 import com.facebook.ads.sdk.Campaign;
 
-import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
-import io.cdap.plugin.facebook.source.common.config.Breakdowns;
-
 /**
  * Wraps one of the following requests: {@link Campaign.APIRequestGetInsights}, {@link Ad.APIRequestGetInsights},
  * {@link AdSet.APIRequestGetInsights}, {@link AdAccount.APIRequestGetInsights}, {@link Page.APIRequestGetInsights}.
  */
-public class AdsInsightsRequestWrapper extends AdsInsightsRequest {
+public class AdsInsightsRequestWrapper extends AdsInsightsRequest implements BatchableInsightsRequest {
   private APIRequest<AdsInsights> request;
 
   AdsInsightsRequestWrapper(APIRequest<AdsInsights> request) {
@@ -50,17 +48,8 @@ public class AdsInsightsRequestWrapper extends AdsInsightsRequest {
   }
 
   @Override
-  public void configure(BaseSourceConfig config) {
-    Breakdowns breakdowns = config.getBreakdown();
-
-    if (breakdowns != null) {
-      if (!breakdowns.getBreakdowns().isEmpty()) {
-        setBreakdowns(breakdowns.getBreakdowns());
-      }
-      if (!breakdowns.getActionBreakdowns().isEmpty()) {
-        setActionBreakdowns(breakdowns.getActionBreakdowns());
-      }
-    }
+  public void addToBatch(BatchRequest batch) {
+    request.addToBatch(batch);
   }
 
   @Override
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINodeList;
+import com.facebook.ads.sdk.APIResponse;
+import com.facebook.ads.sdk.BatchRequest;
+import com.google.common.base.Preconditions;
+import com.google.gson.JsonObject;
+import io.cdap.plugin.facebook.source.common.http.RetryPolicy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Reads pages of several insights requests by Graph API batch requests. First pages of all requests are read by
+ * a single batch call, next pages of all requests with more data are read by the next call and so on, until all
+ * requests are drained. Requests, that fail with transient errors, are repeated from the same cursor by the next
+ * batch.
+ */
+public class BatchPageSource implements InsightsPageSource {
+  public static final int MAX_BATCH_SIZE = 50;
+
+  private final APIContext context;
+  private final RetryPolicy retryPolicy;
+  private final Deque<InsightsPage> buffered = new ArrayDeque<>();
+  private List<BatchEntry> open = new ArrayList<>();
+
+  /**
+   * Constructor for BatchPageSource object.
+   * @param accessToken The access token
+   * @param retryPolicy The policy to retry failed batches and pages by
+   */
+  public BatchPageSource(String accessToken, RetryPolicy retryPolicy) {
+    this.context = InsightsRequestFactory.createContext(accessToken);
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * Adds request to read by batch calls.
+   *
+   * @param objectId The id of the object request reads insights of
+   * @param request The request
+   */
+  public void add(String objectId, BatchableInsightsRequest request) {
+    Preconditions.checkState(open.size() < MAX_BATCH_SIZE, "Batch can't contain more than %s requests",
+                             MAX_BATCH_SIZE);
+    open.add(new BatchEntry(objectId, request));
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    while (buffered.isEmpty() && !open.isEmpty()) {
+      readBatch();
+    }
+    return buffered.poll();
+  }
+
+  @Override
+  public void close() {
+  }
+
+  private void readBatch() throws APIException {
+    List<APIResponse> responses = retryPolicy.call("Batch request of insights", this::executeBatch);
+
+    List<BatchEntry> stillOpen = new ArrayList<>();
+    int maxFailures = 0;
+    for (int i = 0; i < open.size(); i++) {
+      BatchEntry entry = open.get(i);
+      APIResponse response = responses.get(i);
+      if (response instanceof APIException) {
+        // failed request stays at its cursor and is repeated by the next batch
+        APIException failure = (APIException) response;
+        if (!retryPolicy.shouldRetry(failure, entry.failures)) {
+          throw failure;
+        }
+        entry.failures++;
+        maxFailures = Math.max(maxFailures, entry.failures);
+        stillOpen.add(entry);
+        continue;
+      }
+      if (!(response instanceof APINodeList)) {
+        throw new APIException(String.format("Unexpected response to insights request of '%s'", entry.objectId));
+      }
+      entry.failures = 0;
+      String after = getNextCursor(response.getRawResponseAsJsonObject());
+      buffered.add(new InsightsPage(entry.objectId, (APINodeList<?>) response, after == null));
+      if (after != null) {
+        // same request reads the next page in the next batch
+        entry.request.setParam("after", after);
+        stillOpen.add(entry);
+      }
+    }
+    open = stillOpen;
+    if (maxFailures > 0) {
+      retryPolicy.backoff(maxFailures - 1);
+    }
+  }
+
+  private List<APIResponse> executeBatch() throws APIException {
+    BatchRequest batch = new BatchRequest(context);
+    open.forEach(entry -> entry.request.addToBatch(batch));
+    List<APIResponse> responses = batch.execute();
+    if (responses == null || responses.size() != open.size()) {
+      throw new APIException(String.format("Batch of %d requests returned %d responses", open.size(),
+                                           responses == null ? 0 : responses.size()));
+    }
+    return responses;
+  }
+
+  /**
+   * Returns cursor of the page after given one.
+   *
+   * @param response The page response
+   * @return The cursor or null if there are no more pages
+   */
+  @Nullable
+  static String getNextCursor(JsonObject response) {
+    JsonObject paging = response.getAsJsonObject("paging");
+    // 'next' link is present only if there are more pages
+    if (paging == null || !paging.has("next")) {
+      return null;
+    }
+    JsonObject cursors = paging.getAsJsonObject("cursors");
+    if (cursors == null || !cursors.has("after")) {
+      return null;
+    }
+    return cursors.get("after").getAsString();
+  }
+
+  /**
+   * Request with the object it reads insights of.
+   */
+  private static class BatchEntry {
+    private final String objectId;
+    private final BatchableInsightsRequest request;
+    private int failures;
+
+    BatchEntry(String objectId, BatchableInsightsRequest request) {
+      this.objectId = objectId;
+      this.request = request;
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.BatchRequest;
+
+/**
+ * Insights request, which can be sent as a part of Graph API batch request.
+ */
+public interface BatchableInsightsRequest extends InsightsRequest {
+
+  /**
+   * Adds this request to given batch. Response of the request is returned by the batch at the position it was
+   * added at.
+   */
+  void addToBatch(BatchRequest batch);
+}
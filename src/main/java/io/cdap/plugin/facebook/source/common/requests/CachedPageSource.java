@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINodeList;
+import com.facebook.ads.sdk.AdsInsights;
+
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Serves pages of insights read from {@link io.cdap.plugin.facebook.source.common.InsightsPageCache} without
+ * requests to Graph API.
+ */
+public class CachedPageSource implements InsightsPageSource {
+  private final String objectId;
+  private final Iterator<String> pages;
+  private final APIContext context;
+
+  /**
+   * Constructor for CachedPageSource object.
+   * @param objectId The id of the object pages were read for
+   * @param pages The list of cached page JSONs
+   * @param context The context to parse pages by
+   */
+  public CachedPageSource(String objectId, List<String> pages, APIContext context) {
+    this.objectId = objectId;
+    this.pages = pages.iterator();
+    this.context = context;
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    if (!pages.hasNext()) {
+      return null;
+    }
+    APINodeList<AdsInsights> rows = AdsInsights.parseResponse(pages.next(), context, null, null);
+    return new InsightsPage(objectId, rows, !pages.hasNext());
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINode;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.cdap.plugin.facebook.source.common.InsightsPageCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Passes pages of the delegate source through and writes them to the cache as they are read. Rows are read a row
+ * per day, so every page is split into entries of days its rows belong to. Entries of an object are committed once
+ * its last page is read, so pages of several objects read by batch requests are cached as well. Pages are cached
+ * without paging cursors.
+ */
+public class CachingPageSource implements InsightsPageSource {
+  private static final Logger LOG = LoggerFactory.getLogger(CachingPageSource.class);
+  private static final String EMPTY_PAGE = "{\"data\":[]}";
+
+  private final InsightsPageSource delegate;
+  private final InsightsPageCache cache;
+  // keys of days by objects, whose entries are not committed yet
+  private final Map<String, Map<LocalDate, String>> keys;
+  private final Map<String, Map<LocalDate, InsightsPageCache.EntryWriter>> writers = new HashMap<>();
+
+  /**
+   * Constructor for CachingPageSource object.
+   * @param delegate The source to read pages from
+   * @param cache The cache
+   * @param keys The keys to cache pages of every day by, by ids of objects pages are read for. Pages of other objects
+   *             aren't cached
+   */
+  public CachingPageSource(InsightsPageSource delegate, InsightsPageCache cache,
+                           Map<String, Map<LocalDate, String>> keys) {
+    this.delegate = delegate;
+    this.cache = cache;
+    this.keys = new HashMap<>(keys);
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    InsightsPage page = delegate.next();
+    if (page == null) {
+      return null;
+    }
+    String objectId = page.getObjectId();
+    Map<LocalDate, String> dayKeys = keys.get(objectId);
+    if (dayKeys == null) {
+      return page;
+    }
+    Map<LocalDate, JsonArray> rowsByDay = splitByDay(page, dayKeys);
+    if (rowsByDay == null) {
+      LOG.warn("Insights of '{}' are not read by day, they are not cached.", objectId);
+      discard(objectId);
+      return page;
+    }
+    Map<LocalDate, InsightsPageCache.EntryWriter> dayWriters = writers.computeIfAbsent(objectId,
+                                                                                      id -> new HashMap<>());
+    for (Map.Entry<LocalDate, JsonArray> dayRows : rowsByDay.entrySet()) {
+      JsonObject pageJson = new JsonObject();
+      pageJson.add("data", dayRows.getValue());
+      dayWriters.computeIfAbsent(dayRows.getKey(), day -> cache.write(dayKeys.get(day))).write(pageJson.toString());
+    }
+    if (page.isLast()) {
+      // days without rows are cached as well, so they are not read again
+      for (Map.Entry<LocalDate, String> dayKey : dayKeys.entrySet()) {
+        InsightsPageCache.EntryWriter writer = dayWriters.get(dayKey.getKey());
+        if (writer == null) {
+          writer = cache.write(dayKey.getValue());
+          writer.write(EMPTY_PAGE);
+        }
+        writer.commit();
+      }
+      writers.remove(objectId);
+      keys.remove(objectId);
+    }
+    return page;
+  }
+
+  /**
+   * Returns rows of given page by days they belong to or null if some row doesn't belong to a single day read.
+   */
+  @Nullable
+  private static Map<LocalDate, JsonArray> splitByDay(InsightsPage page, Map<LocalDate, String> dayKeys) {
+    Map<LocalDate, JsonArray> rowsByDay = new LinkedHashMap<>();
+    for (Object row : page.getRows()) {
+      JsonObject rowJson = ((APINode) row).getRawResponseAsJsonObject();
+      JsonElement dateStart = rowJson.get("date_start");
+      JsonElement dateStop = rowJson.get("date_stop");
+      if (dateStart == null || dateStop == null || !dateStart.isJsonPrimitive()
+        || !dateStart.getAsString().equals(dateStop.getAsString())) {
+        return null;
+      }
+      LocalDate day;
+      try {
+        day = LocalDate.parse(dateStart.getAsString());
+      } catch (DateTimeParseException e) {
+        return null;
+      }
+      if (!dayKeys.containsKey(day)) {
+        return null;
+      }
+      rowsByDay.computeIfAbsent(day, d -> new JsonArray()).add(rowJson);
+    }
+    return rowsByDay;
+  }
+
+  private void discard(String objectId) {
+    keys.remove(objectId);
+    Map<LocalDate, InsightsPageCache.EntryWriter> dayWriters = writers.remove(objectId);
+    if (dayWriters != null) {
+      dayWriters.values().forEach(InsightsPageCache.EntryWriter::close);
+    }
+  }
+
+  /**
+   * Returns JSON of given page without paging cursors, as it is parsed by {@link CachedPageSource}.
+   */
+  static String toPageJson(InsightsPage page) {
+    JsonArray rows = new JsonArray();
+    for (Object row : page.getRows()) {
+      rows.add(((APINode) row).getRawResponseAsJsonObject());
+    }
+    JsonObject pageJson = new JsonObject();
+    pageJson.add("data", rows);
+    return pageJson.toString();
+  }
+
+  @Override
+  public void close() {
+    // entries of objects, that weren't read completely, are discarded
+    writers.values().forEach(dayWriters -> dayWriters.values().forEach(InsightsPageCache.EntryWriter::close));
+    writers.clear();
+    delegate.close();
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.google.common.base.Joiner;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Insights request, which is sent without the SDK object model. Only collects fields and parameters of the request,
+ * pages are read by {@link DirectRecordSource}.
+ */
+public class DirectInsightsRequest implements InsightsRequestParameters {
+  private static final String ACCOUNT_ID_PREFIX = "act_";
+
+  private final String url;
+  private final String accessToken;
+  private final Set<String> fields = new LinkedHashSet<>();
+  private final Map<String, Object> params = new LinkedHashMap<>();
+
+  DirectInsightsRequest(ObjectType objectType, String objectId, APIContext context) {
+    // ad account ids are prefixed the same way AdAccount of the SDK does
+    if (objectType == ObjectType.Account && !objectId.startsWith(ACCOUNT_ID_PREFIX)) {
+      objectId = ACCOUNT_ID_PREFIX + objectId;
+    }
+    this.url = String.format("%s/%s/%s/insights", context.getEndpointBase(), context.getVersion(), objectId);
+    this.accessToken = context.getAccessToken();
+  }
+
+  @Override
+  public void requestField(String fieldName) {
+    fields.add(fieldName);
+  }
+
+  @Override
+  public void setParam(String paramName, Object value) {
+    params.put(paramName, value);
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Returns all parameters of the request, including fields and access token.
+   */
+  public Map<String, Object> getParams() {
+    Map<String, Object> allParams = new LinkedHashMap<>(params);
+    if (!fields.isEmpty()) {
+      allParams.put("fields", Joiner.on(',').join(fields));
+    }
+    allParams.put("access_token", accessToken);
+    return allParams;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIException;
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.facebook.source.common.InsightsJsonDecoder;
+import io.cdap.plugin.facebook.source.common.http.GraphApiErrors;
+import io.cdap.plugin.facebook.source.common.http.PooledRequestExecutor;
+import io.cdap.plugin.facebook.source.common.http.RetryPolicy;
+import io.cdap.plugin.facebook.source.common.http.ThrottleController;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads pages of insights sent by {@link DirectInsightsRequest} and decodes them into records while reading the
+ * response. Requests are read one after another, paced by {@link ThrottleController} and retried from the cursor of
+ * the last page read, the same way requests of the SDK are.
+ */
+public class DirectRecordSource {
+  private final PooledRequestExecutor executor;
+  private final RetryPolicy retryPolicy;
+  private final InsightsJsonDecoder decoder;
+  private final Deque<Entry> entries = new ArrayDeque<>();
+  private String lastObjectId;
+  private boolean lastPageOfScope;
+
+  /**
+   * Constructor for DirectRecordSource object.
+   * @param executor The executor to send requests by
+   * @param retryPolicy The policy to retry failed pages by
+   * @param decoder The decoder of pages
+   */
+  public DirectRecordSource(PooledRequestExecutor executor, RetryPolicy retryPolicy, InsightsJsonDecoder decoder) {
+    this.executor = executor;
+    this.retryPolicy = retryPolicy;
+    this.decoder = decoder;
+  }
+
+  /**
+   * Adds request to read.
+   *
+   * @param objectId The id of the object request reads insights of
+   * @param request The request
+   */
+  public void add(String objectId, DirectInsightsRequest request) {
+    entries.add(new Entry(objectId, request));
+  }
+
+  /**
+   * Returns records of the next page.
+   *
+   * @return The list of records or null if all pages are read
+   */
+  @Nullable
+  public List<StructuredRecord> nextPage() throws APIException {
+    Entry entry = entries.peek();
+    if (entry == null) {
+      return null;
+    }
+    InsightsJsonDecoder.Page page = retryPolicy.call("Request of insights of " + entry.objectId,
+                                                     () -> readPage(entry));
+    lastObjectId = entry.objectId;
+    lastPageOfScope = page.getAfter() == null;
+    if (lastPageOfScope) {
+      entries.poll();
+    } else {
+      entry.after = page.getAfter();
+    }
+    return page.getRecords();
+  }
+
+  /**
+   * Returns id of the object the last page was read for.
+   */
+  public String getLastObjectId() {
+    return lastObjectId;
+  }
+
+  /**
+   * Returns whether the last page was the last page of its request.
+   */
+  public boolean isLastPageOfScope() {
+    return lastPageOfScope;
+  }
+
+  private InsightsJsonDecoder.Page readPage(Entry entry) throws APIException {
+    ThrottleController controller = ThrottleController.getInstance();
+    Map<String, Object> params = entry.request.getParams();
+    ThrottleController.UsageKey usageKey = ThrottleController.getUsageKey(entry.request.getUrl(),
+                                                                         (String) params.get("access_token"));
+    try {
+      controller.acquire(usageKey);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new APIException("Interrupted while waiting for rate limits", e);
+    }
+
+    if (entry.after != null) {
+      params.put("after", entry.after);
+    }
+    try {
+      return executor.sendGet(entry.request.getUrl(), params, (body, headers) -> {
+        controller.update(usageKey, headers, System.currentTimeMillis());
+        return decoder.decodePage(new JsonReader(body), entry.objectId);
+      });
+    } catch (APIException e) {
+      if (GraphApiErrors.isThrottling(e)) {
+        controller.throttled(usageKey, System.currentTimeMillis());
+      }
+      throw e;
+    } catch (IOException e) {
+      throw new APIException("Failed to read insights of " + entry.objectId + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Request along with cursor of the last page read.
+   */
+  private static class Entry {
+    private final String objectId;
+    private final DirectInsightsRequest request;
+    @Nullable
+    private String after;
+
+    Entry(String objectId, DirectInsightsRequest request) {
+      this.objectId = objectId;
+      this.request = request;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINodeList;
+import com.facebook.ads.sdk.APIRequest;
+import com.facebook.ads.sdk.Ad;
+import com.facebook.ads.sdk.AdAccount;
+import com.facebook.ads.sdk.AdSet;
+import com.facebook.ads.sdk.AdsInsights;
+import com.facebook.ads.sdk.Campaign;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Looks up metadata of Facebook objects, required to plan the read.
+ */
+public class GraphObjectLookup {
+  private static final Gson gson = new GsonBuilder().create();
+
+  /**
+   * Returns time zone of the ad account that owns given object. Insights API interprets all dates in this zone.
+   *
+   * @param objectType The type of object
+   * @param objectId The object id
+   * @param accessToken The access token
+   * @return The time zone of owning ad account
+   */
+  public static ZoneId fetchAccountTimezone(ObjectType objectType, String objectId, String accessToken)
+    throws APIException {
+    APIContext context = InsightsRequestFactory.createContext(accessToken);
+    String accountId;
+    switch (objectType) {
+      case Account:
+        accountId = objectId;
+        break;
+      case Campaign:
+        accountId = new Campaign(objectId, context).get().requestAccountIdField().execute().getFieldAccountId();
+        break;
+      case AdSet:
+        accountId = new AdSet(objectId, context).get().requestAccountIdField().execute().getFieldAccountId();
+        break;
+      case Ad:
+        accountId = new Ad(objectId, context).get().requestAccountIdField().execute().getFieldAccountId();
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("'%s' does not belong to ad account", objectType));
+    }
+    String timezoneName = new AdAccount(accountId, context).get()
+      .requestTimezoneNameField()
+      .execute()
+      .getFieldTimezoneName();
+    return ZoneId.of(timezoneName);
+  }
+
+  /**
+   * Returns ids of child objects of configured object, which have insights in given scope. Objects without
+   * delivery are skipped, since there is nothing to read for them.
+   *
+   * @param config The source configuration
+   * @param childType The type of child objects
+   * @param scope The scope to look for insights in
+   * @return The list of child object ids
+   */
+  public static List<String> listChildIds(BaseSourceConfig config, ObjectType childType, InsightsScope scope)
+    throws APIException {
+    Set<String> childIds = new LinkedHashSet<>();
+    APINodeList<?> page = InsightsRequestFactory.createChildrenRequest(config, childType, scope).execute();
+    while (page != null) {
+      for (Object insights : page) {
+        JsonElement childId = ((AdsInsights) insights).getRawResponseAsJsonObject().get(childType.getIdField());
+        if (childId != null) {
+          childIds.add(childId.getAsString());
+        }
+      }
+      page = page.nextPage();
+    }
+    return new ArrayList<>(childIds);
+  }
+
+  /**
+   * Returns number of objects of given level, that belong to the object of given scope and, if scope is narrowed to
+   * child objects, to these child objects. Number is read from 'total_count' summary of the object edge, so a single
+   * request is made regardless of number of objects.
+   *
+   * @param objectType The type of scope object
+   * @param level The type of objects to count
+   * @param scope The scope to count objects in
+   * @param accessToken The access token
+   * @return The number of objects
+   */
+  public static long countObjects(ObjectType objectType, ObjectType level, InsightsScope scope, String accessToken)
+    throws APIException {
+    ObjectType childType = scope.getChildType();
+    if (childType == level) {
+      return scope.getChildIds().size();
+    }
+    if (!objectType.isParentOf(level)) {
+      return childType == null ? 1 : scope.getChildIds().size();
+    }
+
+    APIRequest<?> request = createEdgeRequest(objectType, level, scope.getObjectId(), accessToken)
+      .setParam("summary", "total_count")
+      .setParam("limit", 1);
+    if (childType != null) {
+      JsonObject childFilter = new JsonObject();
+      childFilter.addProperty("field", childType.getFilteringField());
+      childFilter.addProperty("operator", "IN");
+      childFilter.add("value", gson.toJsonTree(scope.getChildIds()));
+      JsonArray filtering = new JsonArray();
+      filtering.add(childFilter);
+      request.setParam("filtering", filtering.toString());
+    }
+    JsonObject summary = request.execute().getRawResponseAsJsonObject().getAsJsonObject("summary");
+    if (summary == null || !summary.has("total_count")) {
+      throw new IllegalStateException(String.format("Total count of '%s' objects of '%s' is not available",
+                                                    level, scope.getObjectId()));
+    }
+    return summary.get("total_count").getAsLong();
+  }
+
+  private static APIRequest<?> createEdgeRequest(ObjectType objectType, ObjectType level, String objectId,
+                                                 String accessToken) {
+    APIContext context = InsightsRequestFactory.createContext(accessToken);
+    switch (objectType) {
+      case Account:
+        AdAccount account = new AdAccount(objectId, context);
+        switch (level) {
+          case Campaign:
+            return account.getCampaigns();
+          case AdSet:
+            return account.getAdSets();
+          default:
+            return account.getAds();
+        }
+      case Campaign:
+        Campaign campaign = new Campaign(objectId, context);
+        return level == ObjectType.AdSet ? campaign.getAdSets() : campaign.getAds();
+      case AdSet:
+        return new AdSet(objectId, context).getAds();
+      default:
+        throw new IllegalArgumentException(String.format("'%s' has no child objects", objectType));
+    }
+  }
+}
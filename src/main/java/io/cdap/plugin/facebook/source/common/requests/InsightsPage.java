@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APINodeList;
+
+/**
+ * Page of insights of a single object.
+ */
+public class InsightsPage {
+  private final String objectId;
+  private final APINodeList<?> rows;
+  private final boolean last;
+
+  public InsightsPage(String objectId, APINodeList<?> rows) {
+    this(objectId, rows, false);
+  }
+
+  /**
+   * Constructor for InsightsPage object.
+   * @param objectId The id of the object insights were read for
+   * @param rows The rows of the page
+   * @param last Whether the page is the last page of its scope
+   */
+  public InsightsPage(String objectId, APINodeList<?> rows, boolean last) {
+    this.objectId = objectId;
+    this.rows = rows;
+    this.last = last;
+  }
+
+  /**
+   * Returns id of the object insights were read for.
+   */
+  public String getObjectId() {
+    return objectId;
+  }
+
+  public APINodeList<?> getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns whether no more pages of the scope follow this page.
+   */
+  public boolean isLast() {
+    return last;
+  }
+}
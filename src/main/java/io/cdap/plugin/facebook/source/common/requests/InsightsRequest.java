@@ -24,9 +24,7 @@ import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
 /**
  * Common interface for Facebook Insights requests.
  */
-public interface InsightsRequest {
-  void requestField(String fieldName);
-  void setParam(String paramName, Object value);
+public interface InsightsRequest extends InsightsRequestParameters {
   void configure(BaseSourceConfig config);
   APINodeList<?> execute() throws APIException;
 }
@@ -17,12 +17,20 @@
 package io.cdap.plugin.facebook.source.common.requests;
 
 import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIRequest;
 import com.facebook.ads.sdk.Ad;
 import com.facebook.ads.sdk.AdAccount;
+import com.facebook.ads.sdk.AdReportRun;
 import com.facebook.ads.sdk.AdSet;
 import com.facebook.ads.sdk.Campaign;
 import com.facebook.ads.sdk.Page;
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import io.cdap.plugin.facebook.source.common.SchemaHelper;
+import io.cdap.plugin.facebook.source.common.TimeRange;
 import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
 import io.cdap.plugin.facebook.source.common.config.ObjectType;
 import org.slf4j.Logger;
@@ -30,7 +38,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 
 
@@ -38,10 +48,30 @@ import java.util.stream.Collectors;
  * Creates request based on source configuration.
  */
 public class InsightsRequestFactory {
+  // system property with base url of Graph API to send requests to instead of Facebook, e.g. of a local test server
+  public static final String GRAPH_ENDPOINT_PROPERTY = "facebook.graph.endpoint";
+  /**
+   * Maximum number of child object ids in a filter of a single request, so that the request URL stays within
+   * limits of Graph API.
+   */
+  public static final int MAX_FILTER_IDS = 200;
   private static final Logger LOG = LoggerFactory.getLogger(InsightsRequestFactory.class);
+  private static final Gson gson = new GsonBuilder().create();
 
-  private static InsightsRequest createRequest(ObjectType objectType, String objectId, String accessToken) {
-    APIContext context = new APIContext(accessToken).enableDebug(true);
+  /**
+   * Creates API context for given access token.
+   */
+  public static APIContext createContext(String accessToken) {
+    String endpoint = System.getProperty(GRAPH_ENDPOINT_PROPERTY);
+    APIContext context = endpoint == null || endpoint.isEmpty()
+      ? new APIContext(accessToken)
+      : new EndpointContext(accessToken, endpoint);
+    return context.enableDebug(true);
+  }
+
+  private static BatchableInsightsRequest createRequest(ObjectType objectType, String objectId,
+                                                        String accessToken) {
+    APIContext context = createContext(accessToken);
     switch (objectType) {
       case Campaign:
         return new AdsInsightsRequestWrapper(new Campaign(objectId, context).getInsights());
@@ -59,18 +89,73 @@ public class InsightsRequestFactory {
   }
 
   /**
-   * Creates insights request.
+   * Creates insights request, which reads only data in given scope.
    */
-  public static InsightsRequest createRequest(BaseSourceConfig config) {
-    InsightsRequest request = createRequest(config.getObjectType(), config.getObjectId(), config.getAccessToken());
-    
-    if (request.getClass() == AdsInsightsRequestWrapper.class) {
+  public static BatchableInsightsRequest createRequest(BaseSourceConfig config, InsightsScope scope) {
+    BatchableInsightsRequest request = createRequest(config.getObjectType().getInsightsObjectType(),
+                                                     scope.getObjectId(), config.getAccessToken());
+    configureRequest(request, config, scope);
+    return request;
+  }
+
+  /**
+   * Creates insights request, which reads only data in given scope and is sent without the SDK object model.
+   */
+  public static DirectInsightsRequest createDirectRequest(BaseSourceConfig config, InsightsScope scope) {
+    DirectInsightsRequest request = new DirectInsightsRequest(config.getObjectType().getInsightsObjectType(),
+                                                              scope.getObjectId(),
+                                                              createContext(config.getAccessToken()));
+    configureRequest(request, config, scope);
+    return request;
+  }
+
+  /**
+   * Creates insights request, which reads only data in given scope by an asynchronous report run.
+   *
+   * @param config The source configuration
+   * @param scope The scope to read insights in
+   * @param maxRunningReports The maximum number of report runs in flight for the same access token
+   * @param maxWaitMinutes The maximum number of minutes to wait for the report run to complete
+   * @return The request
+   */
+  public static InsightsRequest createAsyncRequest(BaseSourceConfig config, InsightsScope scope,
+                                                   int maxRunningReports, int maxWaitMinutes) {
+    APIContext context = createContext(config.getAccessToken());
+    String objectId = scope.getObjectId();
+    APIRequest<AdReportRun> reportRunRequest;
+    switch (config.getObjectType().getInsightsObjectType()) {
+      case Campaign:
+        reportRunRequest = new Campaign(objectId, context).getInsightsAsync();
+        break;
+      case Ad:
+        reportRunRequest = new Ad(objectId, context).getInsightsAsync();
+        break;
+      case AdSet:
+        reportRunRequest = new AdSet(objectId, context).getInsightsAsync();
+        break;
+      case Account:
+        reportRunRequest = new AdAccount(objectId, context).getInsightsAsync();
+        break;
+      default:
+        throw new IllegalArgumentException("Asynchronous reports are not supported for the object");
+    }
+    InsightsRequest request = new AdReportRunRequestWrapper(reportRunRequest, context, maxRunningReports,
+                                                            TimeUnit.MINUTES.toMillis(maxWaitMinutes));
+    configureRequest(request, config, scope);
+    return request;
+  }
+
+  private static void configureRequest(InsightsRequestParameters request, BaseSourceConfig config,
+                                       InsightsScope scope) {
+    if (!(request instanceof InsightsResultRequest)) {
       List<String> fieldsToQuery = config.getFields()
         .stream()
         .filter(SchemaHelper::isValidForFieldsParameter)
         .collect(Collectors.toList());
       fieldsToQuery.forEach(request::requestField);
-    } else if (request.getClass() == InsightsResultRequestWrapper.class) {
+      // sends configured breakdowns, which fill breakdown fields added to the schema
+      AdsInsightsRequest.configureBreakdowns(request, config);
+    } else {
       List<String> metricsToQuery = config.getMetrics()
         .stream()
         .filter(SchemaHelper::isValidForMetricsParameter)
@@ -81,17 +166,85 @@ public class InsightsRequestFactory {
       irr.setPeriod(config.getPeriod());
       irr.setParam("metric", metricsToQuery);
     }
-   
-    if (config.getFiltering() != null) {
-      request.setParam("filtering", config.getFiltering());
-    }
 
     if (!"default".equals(config.getLevel())) {
       request.setParam("level", config.getLevel());
     }
 
-    request.setParam("date_preset", config.getDatePreset());
+    applyScope(request, config, scope);
+  }
 
+  /**
+   * Creates request, which reads ids of child objects of given type, that have insights in given scope.
+   */
+  public static InsightsRequest createChildrenRequest(BaseSourceConfig config, ObjectType childType,
+                                                      InsightsScope scope) {
+    InsightsRequest request = createRequest(config.getObjectType().getInsightsObjectType(), scope.getObjectId(),
+                                            config.getAccessToken());
+    request.requestField(childType.getIdField());
+    request.setParam("level", childType.getLevel());
+    applyScope(request, config, scope);
     return request;
   }
+
+  private static void applyScope(InsightsRequestParameters request, BaseSourceConfig config, InsightsScope scope) {
+    String filtering = getFiltering(config, scope);
+    if (filtering != null) {
+      request.setParam("filtering", filtering);
+    }
+
+    TimeRange timeRange = scope.getTimeRange();
+    if (timeRange != null) {
+      request.setParam("time_range", timeRange.toParamValue());
+    } else {
+      request.setParam("date_preset", config.getDatePreset());
+    }
+    if (config.isDailyRows()) {
+      request.setParam("time_increment", 1);
+    }
+  }
+
+  @Nullable
+  private static String getFiltering(BaseSourceConfig config, InsightsScope scope) {
+    if (scope.getChildType() == null) {
+      return config.getFiltering();
+    }
+
+    JsonArray filters = new JsonArray();
+    if (config.getFilters() != null) {
+      filters.addAll(gson.toJsonTree(config.getFilters()).getAsJsonArray());
+    }
+    Preconditions.checkArgument(scope.getChildIds().size() <= MAX_FILTER_IDS,
+                                "Insights of '%s' can't be filtered by %s %s objects, at most %s are allowed.",
+                                scope.getObjectId(), scope.getChildIds().size(), scope.getChildType(),
+                                MAX_FILTER_IDS);
+    JsonObject childrenFilter = new JsonObject();
+    childrenFilter.addProperty("field", scope.getChildType().getFilteringField());
+    childrenFilter.addProperty("operator", "IN");
+    childrenFilter.add("value", gson.toJsonTree(scope.getChildIds()));
+    filters.add(childrenFilter);
+    return gson.toJson(filters);
+  }
+
+  /**
+   * API context, which sends requests to given base url.
+   */
+  private static class EndpointContext extends APIContext {
+    private final String endpoint;
+
+    EndpointContext(String accessToken, String endpoint) {
+      super(accessToken);
+      this.endpoint = endpoint;
+    }
+
+    @Override
+    public String getEndpointBase() {
+      return endpoint;
+    }
+
+    @Override
+    public String getVideoEndpointBase() {
+      return endpoint;
+    }
+  }
 }
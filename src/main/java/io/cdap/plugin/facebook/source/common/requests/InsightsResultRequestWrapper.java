@@ -19,6 +19,7 @@ package io.cdap.plugin.facebook.source.common.requests;
 import com.facebook.ads.sdk.APIException;
 import com.facebook.ads.sdk.APINodeList;
 import com.facebook.ads.sdk.APIRequest;
+import com.facebook.ads.sdk.BatchRequest;
 import com.facebook.ads.sdk.InsightsResult;
 import com.facebook.ads.sdk.Page;
 
@@ -27,7 +28,7 @@ import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
 /**
  * Wraps one of the following requests: {@link Page.APIRequestGetInsights}.
  */
-public class InsightsResultRequestWrapper implements InsightsResultRequest {
+public class InsightsResultRequestWrapper implements InsightsResultRequest, BatchableInsightsRequest {
   private APIRequest<InsightsResult> request;
 
   InsightsResultRequestWrapper(APIRequest<InsightsResult> request) {
@@ -44,6 +45,11 @@ public class InsightsResultRequestWrapper implements InsightsResultRequest {
     request.setParam(paramName, value);
   }
 
+  @Override
+  public void addToBatch(BatchRequest batch) {
+    request.addToBatch(batch);
+  }
+
   @Override
   public void setPeriod(String period) {
     request.setParam("period", period);
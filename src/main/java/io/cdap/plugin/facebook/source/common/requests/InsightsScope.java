@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Narrows configured insights request to a part of the data, that can be read independently.
+ */
+public class InsightsScope {
+  private final String objectId;
+  @Nullable
+  private final TimeRange timeRange;
+  @Nullable
+  private final ObjectType childType;
+  private final List<String> childIds;
+
+  /**
+   * Constructor for InsightsScope object.
+   * @param objectId The id of the object to read insights for
+   * @param timeRange The range of days to read instead of configured date preset
+   * @param childType The type of child objects to read insights of
+   * @param childIds The ids of child objects to read insights of
+   */
+  public InsightsScope(String objectId, @Nullable TimeRange timeRange, @Nullable ObjectType childType,
+                       List<String> childIds) {
+    this.objectId = objectId;
+    this.timeRange = timeRange;
+    this.childType = childType;
+    this.childIds = ImmutableList.copyOf(childIds);
+  }
+
+  /**
+   * Returns scope, which covers all the configured data of given object.
+   */
+  public static InsightsScope forObject(String objectId) {
+    return new InsightsScope(objectId, null, null, Collections.emptyList());
+  }
+
+  public String getObjectId() {
+    return objectId;
+  }
+
+  @Nullable
+  public TimeRange getTimeRange() {
+    return timeRange;
+  }
+
+  @Nullable
+  public ObjectType getChildType() {
+    return childType;
+  }
+
+  public List<String> getChildIds() {
+    return childIds;
+  }
+
+  public InsightsScope withTimeRange(@Nullable TimeRange timeRange) {
+    return new InsightsScope(objectId, timeRange, childType, childIds);
+  }
+
+  public InsightsScope withChildren(ObjectType childType, List<String> childIds) {
+    return new InsightsScope(objectId, timeRange, childType, childIds);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    InsightsScope that = (InsightsScope) o;
+    return objectId.equals(that.objectId)
+      && Objects.equals(timeRange, that.timeRange)
+      && childType == that.childType
+      && childIds.equals(that.childIds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(objectId, timeRange, childType, childIds);
+  }
+
+  @Override
+  public String toString() {
+    return "InsightsScope{objectId=" + objectId + ", timeRange=" + timeRange + ", childType=" + childType
+      + ", children=" + childIds.size() + "}";
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIException;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Reads pages of the delegate source on a background thread ahead of the consumer, so the network round-trip of
+ * the next page overlaps with processing of the current one. At most the configured number of pages is buffered.
+ */
+public class PrefetchingPageSource implements InsightsPageSource {
+  private static final Logger LOG = LoggerFactory.getLogger(PrefetchingPageSource.class);
+  private static final Object END = new Object();
+  private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+  private final InsightsPageSource delegate;
+  private final BlockingQueue<Object> pages;
+  private final ExecutorService executor;
+  private boolean finished;
+
+  /**
+   * Constructor for PrefetchingPageSource object. Starts reading pages immediately.
+   * @param delegate The source to read pages from
+   * @param depth The maximum number of pages read ahead of the consumer
+   */
+  public PrefetchingPageSource(InsightsPageSource delegate, int depth) {
+    Preconditions.checkArgument(depth > 0, "Prefetch depth must be positive");
+    this.delegate = delegate;
+    this.pages = new ArrayBlockingQueue<>(depth);
+    this.executor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("facebook-page-prefetch-%d").setDaemon(true).build());
+    this.executor.submit(this::fetchPages);
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    if (finished) {
+      return null;
+    }
+    Object page;
+    try {
+      page = pages.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new APIException("Interrupted while waiting for the next page", e);
+    }
+    if (page == END) {
+      finished = true;
+      return null;
+    }
+    if (page instanceof FetchFailure) {
+      finished = true;
+      Throwable cause = ((FetchFailure) page).cause;
+      if (cause instanceof APIException) {
+        throw (APIException) cause;
+      }
+      throw new APIException("Failed to read the next page", cause);
+    }
+    return (InsightsPage) page;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    try {
+      // delegate is closed only once the background read stops using it
+      if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOG.warn("Background read of pages did not stop in {} seconds.", CLOSE_TIMEOUT_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    delegate.close();
+  }
+
+  private void fetchPages() {
+    try {
+      InsightsPage page = delegate.next();
+      while (page != null) {
+        pages.put(page);
+        page = delegate.next();
+      }
+      pages.put(END);
+    } catch (InterruptedException e) {
+      // source is closed
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      // any failure is handed over, so the consumer never waits for a page that won't come
+      try {
+        pages.put(new FetchFailure(e));
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Failure of the background read, handed over to the consumer.
+   */
+  private static class FetchFailure {
+    private final Throwable cause;
+
+    FetchFailure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIException;
+import io.cdap.plugin.facebook.source.common.InsightsArchive;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Passes pages of the delegate source through and records them into
+ * {@link io.cdap.plugin.facebook.source.common.InsightsArchive}. Recording is committed once all pages are read, so
+ * splits, that failed, are not replayed.
+ */
+public class RecordingPageSource implements InsightsPageSource {
+  private final InsightsPageSource delegate;
+  private final InsightsArchive.Recorder recorder;
+  private boolean finished;
+
+  /**
+   * Constructor for RecordingPageSource object.
+   * @param delegate The source to read pages from
+   * @param recorder The recorder of the archive entry
+   */
+  public RecordingPageSource(InsightsPageSource delegate, InsightsArchive.Recorder recorder) {
+    this.delegate = delegate;
+    this.recorder = recorder;
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    if (finished) {
+      return null;
+    }
+    InsightsPage page = delegate.next();
+    try {
+      if (page == null) {
+        finished = true;
+        recorder.commit();
+        return null;
+      }
+      recorder.write(page.getObjectId(), page.isLast(), CachingPageSource.toPageJson(page));
+    } catch (IOException e) {
+      throw new APIException("Failed to record insights: " + e.getMessage(), e);
+    }
+    return page;
+  }
+
+  @Override
+  public void close() {
+    recorder.close();
+    delegate.close();
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.AdsInsights;
+import io.cdap.plugin.facebook.source.common.InsightsArchive;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Serves pages of insights recorded into {@link io.cdap.plugin.facebook.source.common.InsightsArchive} without
+ * requests to Graph API.
+ */
+public class ReplayedPageSource implements InsightsPageSource {
+  private final InsightsArchive.Replay replay;
+  private final APIContext context;
+
+  /**
+   * Constructor for ReplayedPageSource object.
+   * @param replay The reader of the archive entry
+   * @param context The context to parse pages by
+   */
+  public ReplayedPageSource(InsightsArchive.Replay replay, APIContext context) {
+    this.replay = replay;
+    this.context = context;
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    InsightsArchive.RecordedPage page;
+    try {
+      page = replay.next();
+    } catch (IOException e) {
+      throw new APIException("Failed to replay insights: " + e.getMessage(), e);
+    }
+    if (page == null) {
+      return null;
+    }
+    return new InsightsPage(page.getObjectId(), AdsInsights.parseResponse(page.getJson(), context, null, null),
+                            page.isLast());
+  }
+
+  @Override
+  public void close() {
+    replay.close();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits number of asynchronous report runs, that are in flight at the same time for the same access token.
+ * Limit is shared by all readers in the JVM.
+ */
+class ReportRunLimiter {
+  private static final ConcurrentMap<String, ReportRunLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+  private final Semaphore permits;
+
+  private ReportRunLimiter(int maxRunning) {
+    this.permits = new Semaphore(maxRunning, true);
+  }
+
+  /**
+   * Returns limiter for given access token. Limiters are created on first use, so the limit of the first reader
+   * applies to all readers with the same token.
+   */
+  static ReportRunLimiter forToken(String accessToken, int maxRunning) {
+    return LIMITERS.computeIfAbsent(accessToken, token -> new ReportRunLimiter(maxRunning));
+  }
+
+  /**
+   * Waits until one more report run may be submitted.
+   */
+  void acquire() throws InterruptedException {
+    permits.acquire();
+  }
+
+  void release() {
+    permits.release();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINodeList;
+import io.cdap.plugin.facebook.source.common.http.RetryPolicy;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reads pages of insights by executing the request and following paging cursors of the returned pages. Pages,
+ * that fail with transient errors, are read again from the same cursor.
+ */
+public class RequestPageSource implements InsightsPageSource {
+  private final String objectId;
+  private final InsightsRequest request;
+  private final RetryPolicy retryPolicy;
+  private APINodeList<?> currentPage;
+  private boolean finished;
+
+  /**
+   * Constructor for RequestPageSource object.
+   * @param objectId The id of the object request reads insights of
+   * @param request The request
+   * @param retryPolicy The policy to retry failed pages by
+   */
+  public RequestPageSource(String objectId, InsightsRequest request, RetryPolicy retryPolicy) {
+    this.objectId = objectId;
+    this.request = request;
+    this.retryPolicy = retryPolicy;
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    if (finished) {
+      return null;
+    }
+    // failed page is read again from the cursor of the last page read, not from the first page
+    APINodeList<?> lastPage = currentPage;
+    currentPage = lastPage == null
+      ? retryPolicy.call("Request of insights of " + objectId, request::execute)
+      : retryPolicy.call("Request of next page of insights of " + objectId, lastPage::nextPage);
+    if (currentPage == null) {
+      finished = true;
+      return null;
+    }
+    // 'next' link is present only if there are more pages, the same way batch requests follow pages
+    finished = BatchPageSource.getNextCursor(currentPage.getRawResponseAsJsonObject()) == null;
+    return new InsightsPage(objectId, currentPage, finished);
+  }
+
+  @Override
+  public void close() {
+  }
+}
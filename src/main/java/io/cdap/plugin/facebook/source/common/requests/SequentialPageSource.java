@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIException;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Reads pages of several sources one source after another.
+ */
+public class SequentialPageSource implements InsightsPageSource {
+  private final List<InsightsPageSource> sources;
+  private int current;
+
+  public SequentialPageSource(List<InsightsPageSource> sources) {
+    this.sources = ImmutableList.copyOf(sources);
+  }
+
+  @Nullable
+  @Override
+  public InsightsPage next() throws APIException {
+    while (current < sources.size()) {
+      InsightsPage page = sources.get(current).next();
+      if (page != null) {
+        return page;
+      }
+      current++;
+    }
+    return null;
+  }
+
+  @Override
+  public void close() {
+    sources.forEach(InsightsPageSource::close);
+  }
+}
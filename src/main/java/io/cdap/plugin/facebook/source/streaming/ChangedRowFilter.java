@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.spark.api.java.Optional;
+import org.apache.spark.api.java.function.Function3;
+import org.apache.spark.streaming.State;
+
+/**
+ * Passes through only rows, that are new or changed since they were emitted last time. Fingerprint of the last
+ * emitted content of every row is kept in checkpointed state, so rows are not emitted again after restart.
+ * Returns null for rows, that should not be emitted.
+ */
+public class ChangedRowFilter implements Function3<String, Optional<PolledRow>, State<String>, StructuredRecord> {
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  public StructuredRecord call(String rowKey, Optional<PolledRow> row, State<String> lastFingerprint) {
+    // state of rows, which are no longer polled, times out without a row
+    if (!row.isPresent() || lastFingerprint.isTimingOut()) {
+      return null;
+    }
+    String fingerprint = row.get().getFingerprint();
+    if (lastFingerprint.exists() && lastFingerprint.get().equals(fingerprint)) {
+      return null;
+    }
+    lastFingerprint.update(fingerprint);
+    return row.get().getRecord();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import com.facebook.ads.sdk.APIException;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.streaming.StreamingContext;
+import io.cdap.cdap.etl.api.streaming.StreamingSource;
+import io.cdap.plugin.common.IdUtils;
+import io.cdap.plugin.facebook.source.common.LocalFileCache;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.http.HttpTransports;
+import io.cdap.plugin.facebook.source.common.http.ThrottleController;
+import io.cdap.plugin.facebook.source.common.http.ThrottlingRequestExecutor;
+import io.cdap.plugin.facebook.source.common.requests.AdAccountDiscovery;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.streaming.Durations;
+import org.apache.spark.streaming.StateSpec;
+import org.apache.spark.streaming.api.java.JavaDStream;
+import org.apache.spark.streaming.api.java.JavaInputDStream;
+import org.apache.spark.streaming.api.java.JavaStreamingContext;
+import org.apache.spark.streaming.dstream.ConstantInputDStream;
+import scala.reflect.ClassTag;
+import scala.reflect.ClassTag$;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plugin polls Facebook Insights API for insights of today and yesterday and emits rows, that are new or changed
+ * since the last poll.
+ */
+@Plugin(type = StreamingSource.PLUGIN_TYPE)
+@Name(FacebookStreamingSource.NAME)
+@Description("Polls Facebook Insights API for new and changed insights of today and yesterday.")
+public class FacebookStreamingSource extends StreamingSource<StructuredRecord> {
+  public static final String NAME = "FacebookAds";
+  // rows of yesterday stop changing after the day is over, so their state is dropped two days after their last
+  // poll; the second day keeps rows from being emitted again after the pipeline is stopped for less than a day
+  private static final long ROW_STATE_TIMEOUT_MINUTES = TimeUnit.DAYS.toMinutes(2);
+
+  private final FacebookStreamingSourceConfig config;
+
+  public FacebookStreamingSource(FacebookStreamingSourceConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    IdUtils.validateId(config.referenceName);
+    validateConfiguration(pipelineConfigurer.getStageConfigurer().getFailureCollector());
+    pipelineConfigurer.getStageConfigurer().setOutputSchema(config.getSchema());
+  }
+
+  @Override
+  public JavaDStream<StructuredRecord> getStream(StreamingContext context) throws Exception {
+    validateConfiguration(context.getFailureCollector());
+    context.registerLineage(config.referenceName);
+
+    JavaStreamingContext streamingContext = context.getSparkStreamingContext();
+    JavaRDD<String> objectIds = streamingContext.sparkContext().parallelize(getObjectIds());
+    ClassTag<String> objectIdTag = ClassTag$.MODULE$.apply(String.class);
+    JavaInputDStream<String> polls = new JavaInputDStream<>(
+      new ConstantInputDStream<>(streamingContext.ssc(), objectIds.rdd(), objectIdTag), objectIdTag);
+
+    return polls
+      .transform(new PollScheduler(config.getPollIntervalMillis()))
+      .flatMapToPair(new InsightsPoller(config))
+      .mapWithState(StateSpec.function(new ChangedRowFilter()).timeout(Durations.minutes(ROW_STATE_TIMEOUT_MINUTES)))
+      .filter(record -> record != null);
+  }
+
+  private List<String> getObjectIds() throws APIException {
+    if (config.getObjectType() != ObjectType.Business) {
+      return config.getObjectIds();
+    }
+    // accounts are discovered once, when the pipeline starts
+    ThrottlingRequestExecutor.install(ThrottleController.DEFAULT_USAGE_THRESHOLD, HttpTransports.getDefault());
+    AdAccountDiscovery discovery = new AdAccountDiscovery(config.getAccessToken(), LocalFileCache.inTempDir(0));
+    return discovery.discover(config.getObjectIds());
+  }
+
+  private void validateConfiguration(FailureCollector failureCollector) {
+    config.validate(failureCollector);
+    failureCollector.getOrThrowException();
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Provides all required configuration for polling Facebook Insights in a streaming pipeline.
+ */
+public class FacebookStreamingSourceConfig extends BaseSourceConfig {
+  public static final String PROPERTY_POLL_INTERVAL = "pollInterval";
+  public static final String PROPERTY_MAX_RETRIES = "maxRetries";
+  public static final int DEFAULT_POLL_INTERVAL = 15;
+  public static final int DEFAULT_MAX_RETRIES = 5;
+
+  @Name(PROPERTY_POLL_INTERVAL)
+  @Description("Number of minutes between polls of insights of today and yesterday. Micro-batches, that start "
+    + "sooner after the last poll, emit no records.")
+  @Nullable
+  @Macro
+  protected Integer pollInterval;
+
+  @Name(PROPERTY_MAX_RETRIES)
+  @Description("Maximum number of retries of a page, that failed with a transient error. Failed page is read again "
+    + "from the cursor of the last page read, with exponentially growing delay between retries.")
+  @Nullable
+  @Macro
+  protected Integer maxRetries;
+
+  public FacebookStreamingSourceConfig(String referenceName) {
+    super(referenceName);
+  }
+
+  private FacebookStreamingSourceConfig(Builder builder) {
+    super(builder.referenceName);
+    this.accessToken = builder.accessToken;
+    this.objectType = builder.objectType;
+    this.adId = builder.adId;
+    this.adSetId = builder.adSetId;
+    this.campaignId = builder.campaignId;
+    this.accountId = builder.accountId;
+    this.businessId = builder.businessId;
+    this.fields = builder.fields;
+    this.level = builder.level;
+    this.filtering = builder.filtering;
+    this.datePreset = builder.datePreset;
+    this.breakdown = builder.breakdown;
+    this.additionalBreakdown = builder.additionalBreakdown;
+    this.objectIdField = builder.objectIdField;
+    this.typedFields = builder.typedFields;
+    this.traceSampleRate = builder.traceSampleRate;
+    this.traceObjectIds = builder.traceObjectIds;
+    this.pollInterval = builder.pollInterval;
+    this.maxRetries = builder.maxRetries;
+  }
+
+  public int getPollInterval() {
+    return pollInterval == null ? DEFAULT_POLL_INTERVAL : pollInterval;
+  }
+
+  public long getPollIntervalMillis() {
+    return TimeUnit.MINUTES.toMillis(getPollInterval());
+  }
+
+  public int getMaxRetries() {
+    return maxRetries == null ? DEFAULT_MAX_RETRIES : maxRetries;
+  }
+
+  @Override
+  public void validate(FailureCollector failureCollector) {
+    super.validate(failureCollector);
+    validateObjectType(failureCollector);
+    if (!containsMacro(PROPERTY_POLL_INTERVAL) && pollInterval != null && pollInterval < 1) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid poll interval", pollInterval),
+                    "Set poll interval of at least one minute.")
+        .withConfigProperty(PROPERTY_POLL_INTERVAL);
+    }
+    if (!containsMacro(PROPERTY_MAX_RETRIES) && maxRetries != null && maxRetries < 0) {
+      failureCollector
+        .addFailure(String.format("'%d' is invalid number of retries", maxRetries),
+                    "Set non-negative number of retries.")
+        .withConfigProperty(PROPERTY_MAX_RETRIES);
+    }
+  }
+
+  void validateObjectType(FailureCollector failureCollector) {
+    if (containsMacro(PROPERTY_OBJECT_TYPE)) {
+      return;
+    }
+    ObjectType type;
+    try {
+      type = getObjectType();
+    } catch (IllegalArgumentException ex) {
+      // invalid object type is reported by base validation
+      return;
+    }
+    if (type == ObjectType.Page) {
+      failureCollector
+        .addFailure("Page insights can not be polled.", "Choose object type of ads hierarchy or business.")
+        .withConfigProperty(PROPERTY_OBJECT_TYPE);
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Builder for FacebookStreamingSourceConfig.
+   */
+  public static class Builder {
+    private String referenceName;
+    private String accessToken;
+    private String objectType;
+    private String adId;
+    private String adSetId;
+    private String campaignId;
+    private String accountId;
+    private String businessId;
+    private String fields;
+    private String level;
+    private String filtering;
+    private String datePreset;
+    private String breakdown;
+    private String additionalBreakdown;
+    private String objectIdField;
+    private Boolean typedFields;
+    private Integer traceSampleRate;
+    private String traceObjectIds;
+    private Integer pollInterval;
+    private Integer maxRetries;
+
+    private Builder() {
+
+    }
+
+    public Builder setReferenceName(String referenceName) {
+      this.referenceName = referenceName;
+      return this;
+    }
+
+    public Builder setAccessToken(String accessToken) {
+      this.accessToken = accessToken;
+      return this;
+    }
+
+    public Builder setObjectType(String objectType) {
+      this.objectType = objectType;
+      return this;
+    }
+
+    public Builder setAdId(String adId) {
+      this.adId = adId;
+      return this;
+    }
+
+    public Builder setAdSetId(String adSetId) {
+      this.adSetId = adSetId;
+      return this;
+    }
+
+    public Builder setCampaignId(String campaignId) {
+      this.campaignId = campaignId;
+      return this;
+    }
+
+    public Builder setAccountId(String accountId) {
+      this.accountId = accountId;
+      return this;
+    }
+
+    public Builder setBusinessId(String businessId) {
+      this.businessId = businessId;
+      return this;
+    }
+
+    public Builder setFields(String fields) {
+      this.fields = fields;
+      return this;
+    }
+
+    public Builder setLevel(String level) {
+      this.level = level;
+      return this;
+    }
+
+    public Builder setFiltering(String filtering) {
+      this.filtering = filtering;
+      return this;
+    }
+
+    public Builder setDatePreset(String datePreset) {
+      this.datePreset = datePreset;
+      return this;
+    }
+
+    public Builder setBreakdown(String breakdown) {
+      this.breakdown = breakdown;
+      return this;
+    }
+
+    public Builder setAdditionalBreakdown(String additionalBreakdown) {
+      this.additionalBreakdown = additionalBreakdown;
+      return this;
+    }
+
+    public Builder setObjectIdField(String objectIdField) {
+      this.objectIdField = objectIdField;
+      return this;
+    }
+
+    public Builder setTypedFields(Boolean typedFields) {
+      this.typedFields = typedFields;
+      return this;
+    }
+
+    public Builder setTraceSampleRate(Integer traceSampleRate) {
+      this.traceSampleRate = traceSampleRate;
+      return this;
+    }
+
+    public Builder setTraceObjectIds(String traceObjectIds) {
+      this.traceObjectIds = traceObjectIds;
+      return this;
+    }
+
+    public Builder setPollInterval(Integer pollInterval) {
+      this.pollInterval = pollInterval;
+      return this;
+    }
+
+    public Builder setMaxRetries(Integer maxRetries) {
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    public FacebookStreamingSourceConfig build() {
+      return new FacebookStreamingSourceConfig(this);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.AdsInsights;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.facebook.source.common.AdsInsightsTransformer;
+import io.cdap.plugin.facebook.source.common.InsightsTransformPlan;
+import io.cdap.plugin.facebook.source.common.InsightsType;
+import io.cdap.plugin.facebook.source.common.RecordTracer;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.config.Breakdowns;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.http.HttpTransports;
+import io.cdap.plugin.facebook.source.common.http.RetryPolicy;
+import io.cdap.plugin.facebook.source.common.http.ThrottleController;
+import io.cdap.plugin.facebook.source.common.http.ThrottlingRequestExecutor;
+import io.cdap.plugin.facebook.source.common.requests.GraphObjectLookup;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPage;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPageSource;
+import io.cdap.plugin.facebook.source.common.requests.InsightsRequest;
+import io.cdap.plugin.facebook.source.common.requests.InsightsRequestFactory;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import io.cdap.plugin.facebook.source.common.requests.RequestPageSource;
+import org.apache.spark.api.java.function.PairFlatMapFunction;
+import scala.Tuple2;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Polls insights of yesterday and today of an object. Insights of recent days keep changing as delivery and
+ * attribution data arrive, so both days are read on every poll. Every row is keyed by the object, day, object of
+ * configured level and breakdown values, including hour for hourly breakdowns.
+ */
+public class InsightsPoller implements PairFlatMapFunction<String, String, PolledRow> {
+  private static final long serialVersionUID = 1L;
+  // time zones of ad accounts do not change, so they are looked up once per executor
+  private static final Map<String, ZoneId> TIMEZONES = new ConcurrentHashMap<>();
+
+  private final FacebookStreamingSourceConfig config;
+
+  public InsightsPoller(FacebookStreamingSourceConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public Iterator<Tuple2<String, PolledRow>> call(String objectId) throws APIException {
+    ThrottlingRequestExecutor.install(ThrottleController.DEFAULT_USAGE_THRESHOLD, HttpTransports.getDefault());
+    RetryPolicy retryPolicy = new RetryPolicy(config.getMaxRetries());
+    String levelIdField = getLevelType().getIdField();
+    List<String> keyFields = getKeyFields(levelIdField, config.getBreakdown());
+    LocalDate today = LocalDate.now(getTimezone(objectId));
+    InsightsTransformPlan transformPlan = InsightsTransformPlan.compile(config.getSchema());
+    RecordTracer tracer = new RecordTracer(config.getTraceSampleRate(), config.getTraceObjectIds());
+
+    List<Tuple2<String, PolledRow>> rows = new ArrayList<>();
+    for (LocalDate day : Arrays.asList(today.minusDays(1), today)) {
+      InsightsScope scope = InsightsScope.forObject(objectId).withTimeRange(new TimeRange(day, day));
+      InsightsRequest request = InsightsRequestFactory.createRequest(config, scope);
+      // id of the level object is needed to key rows, even if it is not part of the output
+      request.requestField(levelIdField);
+
+      InsightsPageSource pages = new RequestPageSource(objectId, request, retryPolicy);
+      for (InsightsPage page = pages.next(); page != null; page = pages.next()) {
+        for (Object row : page.getRows()) {
+          AdsInsights insights = (AdsInsights) row;
+          JsonObject json = insights.getRawResponseAsJsonObject();
+          InsightsType insightsType = new InsightsType(insights);
+          insightsType.objectId = objectId;
+          StructuredRecord record = AdsInsightsTransformer.transform(insightsType, transformPlan,
+                                                                     config.getObjectIdField(), tracer);
+          rows.add(new Tuple2<>(getRowKey(objectId, json, keyFields),
+                                new PolledRow(getFingerprint(json), record)));
+        }
+      }
+    }
+    return rows.iterator();
+  }
+
+  private ObjectType getLevelType() {
+    String level = config.getLevel();
+    if (Strings.isNullOrEmpty(level) || "default".equals(level)) {
+      return config.getObjectType().getInsightsObjectType();
+    }
+    return ObjectType.fromLevel(level);
+  }
+
+  private ZoneId getTimezone(String objectId) throws APIException {
+    ZoneId timezone = TIMEZONES.get(objectId);
+    if (timezone == null) {
+      timezone = GraphObjectLookup.fetchAccountTimezone(config.getObjectType().getInsightsObjectType(), objectId,
+                                                        config.getAccessToken());
+      TIMEZONES.put(objectId, timezone);
+    }
+    return timezone;
+  }
+
+  /**
+   * Returns insights fields, that identify a row within insights of a single object.
+   */
+  static List<String> getKeyFields(String levelIdField, Breakdowns breakdowns) {
+    List<String> keyFields = new ArrayList<>();
+    keyFields.add("date_start");
+    keyFields.add(levelIdField);
+    if (breakdowns != null) {
+      breakdowns.getBreakdowns().forEach(breakdown -> keyFields.add(breakdown.toString()));
+    }
+    return keyFields;
+  }
+
+  /**
+   * Returns key, that identifies given row of insights of given object between polls.
+   */
+  static String getRowKey(String objectId, JsonObject row, List<String> keyFields) {
+    StringBuilder key = new StringBuilder(objectId);
+    for (String keyField : keyFields) {
+      JsonElement value = row.get(keyField);
+      key.append('|').append(value == null || value.isJsonNull() ? "" : value.getAsString());
+    }
+    return key.toString();
+  }
+
+  private static String getFingerprint(JsonObject row) {
+    return Hashing.sha256().hashString(row.toString(), StandardCharsets.UTF_8).toString();
+  }
+}
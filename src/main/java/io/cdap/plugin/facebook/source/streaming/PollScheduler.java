@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.streaming.Time;
+
+/**
+ * Decides on the driver, which micro-batches poll insights. Micro-batches, that start sooner than poll interval after
+ * the last poll, get an empty set of objects to poll.
+ */
+public class PollScheduler implements Function2<JavaRDD<String>, Time, JavaRDD<String>> {
+  private static final long serialVersionUID = 1L;
+
+  private final long pollIntervalMillis;
+  private long lastPollMillis = Long.MIN_VALUE;
+
+  public PollScheduler(long pollIntervalMillis) {
+    this.pollIntervalMillis = pollIntervalMillis;
+  }
+
+  @Override
+  public JavaRDD<String> call(JavaRDD<String> objectIds, Time batchTime) {
+    if (!isDue(batchTime.milliseconds())) {
+      return objectIds.filter(objectId -> false);
+    }
+    lastPollMillis = batchTime.milliseconds();
+    return objectIds;
+  }
+
+  boolean isDue(long batchMillis) {
+    return lastPollMillis == Long.MIN_VALUE || batchMillis - lastPollMillis >= pollIntervalMillis;
+  }
+}
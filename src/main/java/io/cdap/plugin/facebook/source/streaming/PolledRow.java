@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+
+import java.io.Serializable;
+
+/**
+ * Row of insights read by a poll, along with fingerprint of its content used to detect changes between polls.
+ */
+public class PolledRow implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final String fingerprint;
+  private final StructuredRecord record;
+
+  public PolledRow(String fingerprint, StructuredRecord record) {
+    this.fingerprint = fingerprint;
+    this.record = record;
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  public StructuredRecord getRecord() {
+    return record;
+  }
+}
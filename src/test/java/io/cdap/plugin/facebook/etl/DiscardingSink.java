@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.etl;
+
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.batch.Output;
+import io.cdap.cdap.api.data.batch.OutputFormatProvider;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.batch.BatchSink;
+import io.cdap.cdap.etl.api.batch.BatchSinkContext;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Sink, which drops all records, so that pipeline throughput is limited only by the source.
+ */
+@Plugin(type = BatchSink.PLUGIN_TYPE)
+@Name(DiscardingSink.NAME)
+public class DiscardingSink extends BatchSink<StructuredRecord, NullWritable, NullWritable> {
+  public static final String NAME = "Discarding";
+
+  @Override
+  public void prepareRun(BatchSinkContext context) {
+    context.addOutput(Output.of("discarded", new OutputFormatProvider() {
+      @Override
+      public String getOutputFormatClassName() {
+        return NullOutputFormat.class.getName();
+      }
+
+      @Override
+      public Map<String, String> getOutputFormatConfiguration() {
+        return Collections.emptyMap();
+      }
+    }));
+  }
+
+  @Override
+  public void transform(StructuredRecord input, Emitter<KeyValue<NullWritable, NullWritable>> emitter) {
+    // records are not emitted
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.etl;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.artifact.ArtifactSummary;
+import io.cdap.cdap.datapipeline.DataPipelineApp;
+import io.cdap.cdap.datapipeline.SmartWorkflow;
+import io.cdap.cdap.etl.api.batch.BatchSink;
+import io.cdap.cdap.etl.api.batch.BatchSource;
+import io.cdap.cdap.etl.mock.test.HydratorTestBase;
+import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
+import io.cdap.cdap.etl.proto.v2.ETLPlugin;
+import io.cdap.cdap.etl.proto.v2.ETLStage;
+import io.cdap.cdap.proto.ProgramRunStatus;
+import io.cdap.cdap.proto.artifact.AppRequest;
+import io.cdap.cdap.proto.id.ArtifactId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.test.ApplicationManager;
+import io.cdap.plugin.facebook.source.batch.FacebookBatchSource;
+import io.cdap.plugin.facebook.testing.FakeGraphApiServer;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput benchmark of the batch source. Runs pipelines reading from {@link FakeGraphApiServer} into
+ * {@link DiscardingSink} for every combination of number of rows, number of splits, number of prefetched pages and
+ * set of fields, and records rows per second, wall time and peak heap of every run.
+ * <p>
+ * Not run by the build. Runs are selected by comma separated values of system properties 'benchmark.rows',
+ * 'benchmark.splits', 'benchmark.prefetch' and 'benchmark.fields', e.g.
+ * {@code mvn test -Dtest=FacebookBatchSourceThroughputTestRun -Dbenchmark.rows=100000}. Results are logged and
+ * written to 'facebook-batch-throughput.csv' in the temporary directory, which is 'target' in Maven builds.
+ * <p>
+ * Pipelines, the server and the test run in the same JVM, so wall time includes pipeline startup and rows
+ * generation, and peak heap includes memory of the server.
+ */
+public class FacebookBatchSourceThroughputTestRun extends HydratorTestBase {
+  private static final Logger LOG = LoggerFactory.getLogger(FacebookBatchSourceThroughputTestRun.class);
+  private static final ArtifactSummary APP_ARTIFACT = new ArtifactSummary("data-pipeline", "3.2.0");
+  private static final Map<String, String> FIELD_SETS = ImmutableMap.of(
+    "narrow", "ad_id,impressions,clicks,spend",
+    "wide", "account_id,campaign_id,adset_id,ad_id,ad_name,impressions,reach,frequency,clicks,spend,cpc,cpm,ctr,"
+      + "actions,action_values,cost_per_action_type");
+  // splits are read by local map tasks, which run one at a time by default
+  private static final String LOCAL_MAP_TASKS = "system.mapreduce.mapreduce.local.map.tasks.maximum";
+  private static final String RESULTS_FILE = "facebook-batch-throughput.csv";
+
+  private static FakeGraphApiServer server;
+
+  @BeforeClass
+  public static void setupTestClass() throws Exception {
+    server = FakeGraphApiServer.start();
+
+    ArtifactId parentArtifact = NamespaceId.DEFAULT.artifact(APP_ARTIFACT.getName(), APP_ARTIFACT.getVersion());
+    setupBatchArtifacts(parentArtifact, DataPipelineApp.class);
+    addPluginArtifact(NamespaceId.DEFAULT.artifact("example-plugins", "1.0.0"),
+                      parentArtifact,
+                      FacebookBatchSource.class, DiscardingSink.class);
+  }
+
+  @AfterClass
+  public static void tearDownTestClass() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  @Test
+  public void testThroughput() throws Exception {
+    List<String> results = new ArrayList<>();
+    results.add("rows,splits,prefetch,fields,wall_ms,rows_per_second,peak_heap_mb");
+    int run = 0;
+    for (String rows : getValues("benchmark.rows", "100000,1000000,10000000")) {
+      for (String splits : getValues("benchmark.splits", "1,4,16")) {
+        for (String prefetch : getValues("benchmark.prefetch", "0,4")) {
+          for (String fields : getValues("benchmark.fields", "narrow,wide")) {
+            String result = runPipeline(run++, Long.parseLong(rows), Integer.parseInt(splits),
+                                        Integer.parseInt(prefetch), fields);
+            LOG.info("Throughput run: {}", result);
+            results.add(result);
+          }
+        }
+      }
+    }
+
+    File resultsFile = new File(System.getProperty("java.io.tmpdir"), RESULTS_FILE);
+    Files.write(resultsFile.toPath(), results, StandardCharsets.UTF_8);
+    LOG.info("Results of {} throughput runs are written to {}", run, resultsFile);
+  }
+
+  private String runPipeline(int run, long rows, int splits, int prefetch, String fields) throws Exception {
+    // objects of every run are new, so nothing is served from caches of previous runs
+    List<String> accountIds = new ArrayList<>();
+    for (int i = 0; i < splits; i++) {
+      String accountId = String.format("act_%d%03d", run + 1, i);
+      server.setRows(accountId, (int) (rows / splits + (i < rows % splits ? 1 : 0)));
+      accountIds.add(accountId);
+    }
+    ETLStage source = new ETLStage("source", new ETLPlugin(
+      FacebookBatchSource.NAME,
+      BatchSource.PLUGIN_TYPE,
+      ImmutableMap.<String, String>builder()
+        .put("referenceName", "throughput")
+        .put("accessToken", "token")
+        .put("objectType", "Account")
+        .put("accountId", String.join(",", accountIds))
+        .put("level", "ad")
+        .put("fields", FIELD_SETS.get(fields))
+        .put("datePreset", "last_30d")
+        .put("maxSplits", String.valueOf(splits))
+        .put("prefetchPages", String.valueOf(prefetch))
+        .build(),
+      null));
+    ETLStage sink = new ETLStage("sink", new ETLPlugin(DiscardingSink.NAME, BatchSink.PLUGIN_TYPE,
+                                                       Collections.emptyMap(), null));
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder()
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .setProperties(ImmutableMap.of(LOCAL_MAP_TASKS, String.valueOf(splits)))
+      .build();
+    ApplicationManager appManager = deployApplication(NamespaceId.DEFAULT.app("FacebookThroughput" + run),
+                                                      new AppRequest<>(APP_ARTIFACT, etlConfig));
+
+    long rowsBefore = server.getRowsServed();
+    List<MemoryPoolMXBean> heapPools = getHeapPools();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    long startNanos = System.nanoTime();
+    appManager.getWorkflowManager(SmartWorkflow.NAME).startAndWaitForRun(ProgramRunStatus.COMPLETED, 6, TimeUnit.HOURS);
+    long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peakHeap += pool.getPeakUsage().getUsed();
+    }
+
+    Assert.assertEquals(rows, server.getRowsServed() - rowsBefore);
+    return String.format(Locale.ROOT, "%d,%d,%d,%s,%d,%.0f,%d", rows, splits, prefetch, fields, wallMillis,
+                         rows * 1000.0 / Math.max(1, wallMillis), peakHeap / (1024 * 1024));
+  }
+
+  private static List<MemoryPoolMXBean> getHeapPools() {
+    List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        heapPools.add(pool);
+      }
+    }
+    return heapPools;
+  }
+
+  private static List<String> getValues(String property, String defaultValues) {
+    return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(System.getProperty(property, defaultValues));
+  }
+}
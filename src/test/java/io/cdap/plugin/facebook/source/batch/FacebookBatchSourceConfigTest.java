@@ -18,6 +18,7 @@ package io.cdap.plugin.facebook.source.batch;
 
 import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
 import io.cdap.plugin.facebook.source.BaseFacebookValidationTest;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -54,4 +55,252 @@ public class FacebookBatchSourceConfigTest extends BaseFacebookValidationTest {
 
     assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_SORT_DIRECTION);
   }
+
+  @Test
+  public void testTimeSlicing() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setDatePreset("last_30d").setTimeSliceDays(7).build();
+    config.validateTimeSlicing(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+  }
+
+  @Test
+  public void testTimeSlicingInvalidDays() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setDatePreset("last_30d").setTimeSliceDays(0).build();
+    config.validateTimeSlicing(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_TIME_SLICE_DAYS);
+  }
+
+  @Test
+  public void testTimeSlicingLifetime() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setDatePreset("lifetime").setTimeSliceDays(1).build();
+    config.validateTimeSlicing(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_TIME_SLICE_DAYS);
+  }
+
+  @Test
+  public void testChildSplitting() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setLevel("ad").setChildObjectType("Campaign").setMaxSplits(10).build();
+    config.validateChildSplitting(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertEquals(ObjectType.Campaign, config.getChildObjectType());
+  }
+
+  @Test
+  public void testTargetSplitRowsWithoutChildSplitting() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setLevel("ad").setTargetSplitRows(1000).build();
+    config.validateChildSplitting(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_TARGET_SPLIT_ROWS);
+  }
+
+  @Test
+  public void testChildSplittingNotChild() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Ad Set").setLevel("ad").setChildObjectType("Campaign").build();
+    config.validateChildSplitting(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_CHILD_OBJECT_TYPE);
+  }
+
+  @Test
+  public void testChildSplittingLevelAboveChildren() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setLevel("campaign").setChildObjectType("Ad Set").build();
+    config.validateChildSplitting(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_LEVEL);
+  }
+
+  @Test
+  public void testAsyncReportMode() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setReportMode("async").setMaxRunningReports(2).build();
+    config.validateReportMode(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertTrue(config.isAsyncReportMode());
+    Assert.assertEquals(2, config.getMaxRunningReports());
+  }
+
+  @Test
+  public void testAsyncReportModePage() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Page").setReportMode("async").build();
+    config.validateReportMode(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_REPORT_MODE);
+  }
+
+  @Test
+  public void testInvalidMaxRunningReports() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setReportMode("async").setMaxRunningReports(0).build();
+    config.validateReportMode(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_MAX_RUNNING_REPORTS);
+  }
+
+  @Test
+  public void testInvalidMaxReportWait() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setReportMode("async").setMaxReportWait(0).build();
+    config.validateReportMode(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_MAX_REPORT_WAIT);
+  }
+
+  @Test
+  public void testAsyncReportModeWithBatching() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setReportMode("async").setBatchSize(10).build();
+    config.validateReportMode(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_BATCH_SIZE);
+  }
+
+  @Test
+  public void testIncremental() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setDatePreset("last_30d").setWatermarkPath("/tmp/watermarks").build();
+    config.validateIncremental(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertEquals(FacebookBatchSourceConfig.DEFAULT_RESTATEMENT_DAYS, config.getRestatementDays());
+  }
+
+  @Test
+  public void testIncrementalLifetime() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setDatePreset("lifetime").setWatermarkPath("/tmp/watermarks").build();
+    config.validateIncremental(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_WATERMARK_PATH);
+  }
+
+  @Test
+  public void testIncrementalInvalidRestatementDays() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setDatePreset("last_30d").setRestatementDays(-1).build();
+    config.validateIncremental(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_RESTATEMENT_DAYS);
+  }
+
+  @Test
+  public void testCacheOfDailySlices() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setCachePath("/tmp/cache").setTimeSliceDays(1).setSorting("spend_descending").build();
+    config.validateCache(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+  }
+
+  @Test
+  public void testCacheNotDaily() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setCachePath("/tmp/cache").setTimeSliceDays(7).build();
+    config.validateCache(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_CACHE_PATH);
+  }
+
+  @Test
+  public void testCacheIncrementalSorted() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setCachePath("/tmp/cache").setWatermarkPath("/tmp/watermarks").setTimeSliceDays(7)
+      .setSorting("spend_descending").build();
+    config.validateCache(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_CACHE_PATH);
+  }
+
+  @Test
+  public void testDirectClientAsync() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setInsightsClient("direct").setReportMode("async").build();
+    config.validateInsightsClient(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_REPORT_MODE);
+  }
+
+  @Test
+  public void testDirectClientPage() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Page").setInsightsClient("direct").build();
+    config.validateInsightsClient(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_INSIGHTS_CLIENT);
+  }
+
+  @Test
+  public void testInvalidInsightsClient() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setInsightsClient("other").build();
+    config.validateInsightsClient(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_INSIGHTS_CLIENT);
+  }
+
+  @Test
+  public void testArchive() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setArchiveMode("replay").setArchivePath("/tmp/archive").build();
+    config.validateArchive(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertTrue(config.isReplaying());
+    Assert.assertFalse(config.isRecording());
+  }
+
+  @Test
+  public void testArchiveWithoutPath() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setArchiveMode("record").build();
+    config.validateArchive(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_ARCHIVE_PATH);
+  }
+
+  @Test
+  public void testArchiveDirectClient() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setInsightsClient("direct").setArchiveMode("record").setArchivePath("/tmp/archive")
+      .build();
+    config.validateArchive(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_INSIGHTS_CLIENT);
+  }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.requests.InsightsRequestFactory;
+import io.cdap.plugin.facebook.testing.FakeGraphApiServer;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FacebookSplitPlannerTest {
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testPartition() {
+    List<List<String>> groups = FacebookSplitPlanner.partition(Arrays.asList("1", "2", "3", "4", "5"), 2);
+
+    Assert.assertEquals(Arrays.asList(Arrays.asList("1", "3", "5"), Arrays.asList("2", "4")), groups);
+  }
+
+  @Test
+  public void testPartitionMoreGroupsThanIds() {
+    List<List<String>> groups = FacebookSplitPlanner.partition(Arrays.asList("1", "2"), 10);
+
+    Assert.assertEquals(Arrays.asList(Collections.singletonList("1"), Collections.singletonList("2")), groups);
+  }
+
+  @Test
+  public void testMergeSmallGroups() {
+    List<FacebookSplitPlanner.ChildGroup> groups = FacebookSplitPlanner.merge(Arrays.asList(
+      new FacebookSplitPlanner.ChildGroup(Collections.singletonList("1"), 10),
+      new FacebookSplitPlanner.ChildGroup(Collections.singletonList("2"), 60),
+      new FacebookSplitPlanner.ChildGroup(Collections.singletonList("3"), 30),
+      new FacebookSplitPlanner.ChildGroup(Collections.singletonList("4"), 150)), 100);
+
+    Assert.assertEquals(2, groups.size());
+    Assert.assertEquals(Collections.singletonList("4"), groups.get(0).ids);
+    Assert.assertEquals(150, groups.get(0).rows);
+    Assert.assertEquals(Arrays.asList("2", "3", "1"), groups.get(1).ids);
+    Assert.assertEquals(100, groups.get(1).rows);
+  }
+
+  @Test
+  public void testIncrementWithoutWatermark() {
+    TimeRange timeRange = new TimeRange(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 30));
+
+    Assert.assertEquals(timeRange, FacebookSplitPlanner.increment(timeRange, null, 3));
+  }
+
+  @Test
+  public void testIncrementRestatementWindow() {
+    TimeRange timeRange = new TimeRange(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 30));
+
+    Assert.assertEquals(new TimeRange(LocalDate.of(2020, 5, 27), LocalDate.of(2020, 5, 30)),
+                        FacebookSplitPlanner.increment(timeRange, LocalDate.of(2020, 5, 29), 3));
+    Assert.assertEquals(timeRange, FacebookSplitPlanner.increment(timeRange, LocalDate.of(2020, 5, 2), 7));
+  }
+
+  @Test
+  public void testIncrementNothingToRead() {
+    TimeRange timeRange = new TimeRange(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 30));
+
+    Assert.assertNull(FacebookSplitPlanner.increment(timeRange, LocalDate.of(2020, 5, 30), 0));
+  }
+
+  @Test
+  public void testChildrenAreNotFilteredWithoutSplitsLeft() throws Exception {
+    // time slices use up all splits, so every object is read whole
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("act_1").setLevel("campaign")
+      .setDatePreset("last_7d").setTimeSliceDays(1).setMaxSplits(7).setChildObjectType("Campaign")
+      .setPlanningCacheTtl(0).build();
+
+    try (FakeGraphApiServer server = FakeGraphApiServer.start()) {
+      List<FacebookSplit> splits = new FacebookSplitPlanner(config, null).plan();
+
+      Assert.assertEquals(7, splits.size());
+      for (FacebookSplit split : splits) {
+        Assert.assertNull(split.getScopes().get(0).getChildType());
+      }
+    }
+  }
+
+  @Test
+  public void testChildrenGroupsAreCapped() throws Exception {
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("act_1").setLevel("campaign")
+      .setDatePreset("last_7d").setMaxSplits(2).setChildObjectType("Campaign").setPlanningCacheTtl(0).build();
+
+    try (FakeGraphApiServer server = FakeGraphApiServer.start()) {
+      server.setRows("act_1", 500);
+      List<FacebookSplit> splits = new FacebookSplitPlanner(config, null).plan();
+
+      Assert.assertEquals(4, splits.size());
+      int childCount = 0;
+      for (FacebookSplit split : splits) {
+        List<String> childIds = split.getScopes().get(0).getChildIds();
+        Assert.assertTrue(childIds.size() <= InsightsRequestFactory.MAX_FILTER_IDS);
+        childCount += childIds.size();
+      }
+      Assert.assertEquals(500, childCount);
+    }
+  }
+
+  @Test
+  public void testNothingNewToReadByChildren() throws Exception {
+    String watermarkPath = tmpFolder.getRoot().getAbsolutePath();
+    WatermarkStore watermarks = new WatermarkStore(watermarkPath, new Configuration());
+    watermarks.stage("act_1", LocalDate.of(2100, 1, 1));
+    watermarks.commit();
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("act_1").setDatePreset("last_7d")
+      .setWatermarkPath(watermarkPath).setRestatementDays(0).setChildObjectType("Campaign").build();
+
+    try (FakeGraphApiServer server = FakeGraphApiServer.start()) {
+      Assert.assertTrue(new FacebookSplitPlanner(config, new WatermarkStore(watermarkPath, new Configuration()))
+                          .plan().isEmpty());
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FacebookSplitTest {
+
+  @Test
+  public void testSerialization() throws IOException {
+    InsightsScope scope = InsightsScope.forObject("act_1")
+      .withTimeRange(new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 7)))
+      .withChildren(ObjectType.Campaign, Arrays.asList("10", "11"));
+    FacebookSplit split = new FacebookSplit(scope, 42);
+
+    DataOutputBuffer output = new DataOutputBuffer();
+    split.write(output);
+    DataInputBuffer input = new DataInputBuffer();
+    input.reset(output.getData(), output.getLength());
+    FacebookSplit restored = new FacebookSplit();
+    restored.readFields(input);
+
+    Assert.assertEquals(Collections.singletonList(scope), restored.getScopes());
+    Assert.assertEquals(42, restored.getLength());
+  }
+
+  @Test
+  public void testSerializationOfSeveralScopes() throws IOException {
+    List<InsightsScope> scopes = Arrays.asList(InsightsScope.forObject("act_1"), InsightsScope.forObject("act_2"));
+    FacebookSplit split = new FacebookSplit(scopes, 0);
+
+    DataOutputBuffer output = new DataOutputBuffer();
+    split.write(output);
+    DataInputBuffer input = new DataInputBuffer();
+    input.reset(output.getData(), output.getLength());
+    FacebookSplit restored = new FacebookSplit();
+    restored.readFields(input);
+
+    Assert.assertEquals(scopes, restored.getScopes());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.requests.CachedPageSource;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPage;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPageSource;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ReadProgressTest {
+  private static final APIContext CONTEXT = new APIContext("token");
+  private static final InsightsScope SCOPE = InsightsScope.forObject("act_1")
+    .withTimeRange(new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 10)));
+  // insights are aggregated over the whole time range, so all rows have the same dates
+  private static final String PAGE = "{\"data\":["
+    + "{\"ad_id\":\"1\",\"impressions\":\"10\",\"date_start\":\"2020-01-01\",\"date_stop\":\"2020-01-10\"},"
+    + "{\"ad_id\":\"2\",\"impressions\":\"20\",\"date_start\":\"2020-01-01\",\"date_stop\":\"2020-01-10\"}]}";
+
+  @Test
+  public void testEstimatedRows() throws APIException {
+    ReadProgress progress = new ReadProgress(Collections.singletonList(SCOPE), 8);
+    InsightsPageSource pages = new CachedPageSource("act_1", Arrays.asList(PAGE, PAGE, PAGE, PAGE, PAGE), CONTEXT);
+    Assert.assertEquals(0, progress.get(), 0);
+
+    readPage(progress, pages);
+    Assert.assertEquals(0.25, progress.get(), 0.001);
+
+    // more rows than estimated don't finish the read
+    while (readPage(progress, pages)) {
+      Assert.assertTrue(progress.get() < 1);
+    }
+    Assert.assertEquals(0.99, progress.get(), 0.001);
+
+    progress.finished();
+    Assert.assertEquals(1, progress.get(), 0);
+  }
+
+  @Test
+  public void testFinishedScopes() throws APIException {
+    InsightsScope nextScope = InsightsScope.forObject("act_2")
+      .withTimeRange(new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 10)));
+    ReadProgress progress = new ReadProgress(Arrays.asList(SCOPE, nextScope), 0);
+    InsightsPageSource firstPages = new CachedPageSource("act_1", Arrays.asList(PAGE, PAGE), CONTEXT);
+    InsightsPageSource nextPages = new CachedPageSource("act_2", Collections.singletonList(PAGE), CONTEXT);
+
+    readPage(progress, firstPages);
+    Assert.assertEquals(0.25, progress.get(), 0.001);
+    readPage(progress, firstPages);
+    Assert.assertEquals(0.5, progress.get(), 0.001);
+    readPage(progress, nextPages);
+    Assert.assertEquals(0.99, progress.get(), 0.001);
+
+    progress.finished();
+    Assert.assertEquals(1, progress.get(), 0);
+  }
+
+  @Test
+  public void testScopesWithoutTimeRange() throws APIException {
+    // scopes of date presets have no time range
+    ReadProgress progress = new ReadProgress(
+      Arrays.asList(InsightsScope.forObject("act_1"), InsightsScope.forObject("act_2")), 0);
+    readPage(progress, new CachedPageSource("act_1", Collections.singletonList(PAGE), CONTEXT));
+
+    Assert.assertEquals(0.5, progress.get(), 0.001);
+  }
+
+  /**
+   * Reads the next page and its rows the way {@link FacebookRecordReader} does.
+   *
+   * @return Whether a page was read
+   */
+  private static boolean readPage(ReadProgress progress, InsightsPageSource pages) throws APIException {
+    InsightsPage page = pages.next();
+    if (page == null) {
+      return false;
+    }
+    progress.pageRead(page.getObjectId(), page.isLast());
+    List<?> rows = page.getRows();
+    Assert.assertFalse(rows.isEmpty());
+    rows.forEach(row -> progress.rowRead());
+    return true;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.batch;
+
+import io.cdap.plugin.facebook.source.common.LocalFileCache;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class SplitSizeEstimatorTest {
+  private static final InsightsScope WEEK = InsightsScope.forObject("act_1")
+    .withTimeRange(new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 7)));
+
+  @Test
+  public void testRowsPerObjectOfAggregatedRows() {
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setAccountId("act_1").setLevel("ad").setBreakdown("age, gender *").build();
+
+    // a row per age range and gender for the whole week
+    Assert.assertEquals(21, new SplitSizeEstimator(config, LocalFileCache.inTempDir(0)).getRowsPerObject(WEEK));
+  }
+
+  @Test
+  public void testRowsPerObjectOfDailyRows() {
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setAccountId("act_1").setLevel("ad").setBreakdown("age, gender *")
+      .setWatermarkPath("/tmp/watermarks").build();
+
+    Assert.assertEquals(7 * 21, new SplitSizeEstimator(config, LocalFileCache.inTempDir(0)).getRowsPerObject(WEEK));
+    Assert.assertEquals(21, new SplitSizeEstimator(config, LocalFileCache.inTempDir(0))
+      .getRowsPerObject(InsightsScope.forObject("act_1")));
+  }
+}
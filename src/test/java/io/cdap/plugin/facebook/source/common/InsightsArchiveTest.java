@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import io.cdap.plugin.facebook.source.batch.FacebookBatchSourceConfig;
+import io.cdap.plugin.facebook.source.common.config.ObjectType;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class InsightsArchiveTest {
+  private static final List<InsightsScope> SCOPES = Arrays.asList(
+    InsightsScope.forObject("act_1").withTimeRange(new TimeRange(LocalDate.of(2020, 4, 1), LocalDate.of(2020, 4, 7))),
+    InsightsScope.forObject("act_2").withChildren(ObjectType.Campaign, Arrays.asList("11", "12")));
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testRecordAndReplay() throws IOException {
+    InsightsArchive archive = new InsightsArchive(tmpFolder.getRoot().getAbsolutePath(), new Configuration());
+    try (InsightsArchive.Recorder recorder = archive.record("key", SCOPES)) {
+      recorder.write("act_1", true, "{\"data\":[{\"impressions\":\"1\"}]}");
+      recorder.write("act_2", false, "{\"data\":[]}");
+      recorder.commit();
+    }
+
+    Map<String, List<InsightsScope>> entries = archive.list();
+    Assert.assertEquals(Collections.singletonMap("key", SCOPES), entries);
+    try (InsightsArchive.Replay replay = archive.replay("key")) {
+      Assert.assertEquals(SCOPES, replay.getScopes());
+      InsightsArchive.RecordedPage page = replay.next();
+      Assert.assertEquals("act_1", page.getObjectId());
+      Assert.assertTrue(page.isLast());
+      Assert.assertEquals("{\"data\":[{\"impressions\":\"1\"}]}", page.getJson());
+      page = replay.next();
+      Assert.assertEquals("act_2", page.getObjectId());
+      Assert.assertFalse(page.isLast());
+      Assert.assertEquals("{\"data\":[]}", page.getJson());
+      Assert.assertNull(replay.next());
+    }
+  }
+
+  @Test
+  public void testUncommittedRecording() throws IOException {
+    InsightsArchive archive = new InsightsArchive(tmpFolder.getRoot().getAbsolutePath(), new Configuration());
+    try (InsightsArchive.Recorder recorder = archive.record("key", SCOPES)) {
+      recorder.write("act_1", true, "{\"data\":[]}");
+    }
+
+    Assert.assertTrue(archive.list().isEmpty());
+    Assert.assertEquals(0, tmpFolder.getRoot().list().length);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReplayNotRecorded() throws IOException {
+    new InsightsArchive(tmpFolder.getRoot().getAbsolutePath(), new Configuration()).replay("key");
+  }
+
+  @Test
+  public void testCreateKey() {
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setFields("impressions,spend").setLevel("ad").build();
+    FacebookBatchSourceConfig otherFields = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setFields("impressions").setLevel("ad").build();
+
+    String key = InsightsArchive.createKey(config, SCOPES, null);
+    Assert.assertEquals(key, InsightsArchive.createKey(config, SCOPES, null));
+    Assert.assertNotEquals(key, InsightsArchive.createKey(otherFields, SCOPES, null));
+    Assert.assertNotEquals(key, InsightsArchive.createKey(config, SCOPES, "spend_descending"));
+    Assert.assertNotEquals(key, InsightsArchive.createKey(config, SCOPES.subList(0, 1), null));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+public class InsightsJsonDecoderTest {
+  private static final Schema SCHEMA = SchemaHelper.buildAdsInsightsSchema(Arrays.asList("ad_id", "actions"), null);
+
+  @Test
+  public void testDecodePage() throws IOException {
+    String json = "{\"data\":[{\"ad_id\":\"1\",\"unknown\":{\"a\":1},\"actions\":[{\"action_type\":\"like\","
+      + "\"value\":\"3\",\"7d_view\":\"2\"}]},{\"ad_id\":\"2\"}],"
+      + "\"paging\":{\"cursors\":{\"before\":\"b\",\"after\":\"a\"},\"next\":\"https://graph.facebook.com/next\"}}";
+    InsightsJsonDecoder.Page page = new InsightsJsonDecoder(SCHEMA, null)
+      .decodePage(new JsonReader(new StringReader(json)), "act_1");
+
+    Assert.assertEquals("a", page.getAfter());
+    Assert.assertEquals(2, page.getRecords().size());
+    StructuredRecord first = page.getRecords().get(0);
+    Assert.assertEquals("1", first.get("ad_id"));
+    List<StructuredRecord> actions = first.get("actions");
+    Assert.assertEquals(1, actions.size());
+    Assert.assertEquals("like", actions.get(0).get("action_type"));
+    Assert.assertEquals("3", actions.get(0).get("value"));
+    Assert.assertEquals("2", actions.get(0).get("view_7d"));
+    Assert.assertEquals("2", page.getRecords().get(1).get("ad_id"));
+    Assert.assertNull(page.getRecords().get(1).get("actions"));
+  }
+
+  @Test
+  public void testDecodeLastPage() throws IOException {
+    String json = "{\"data\":[],\"paging\":{\"cursors\":{\"before\":\"b\",\"after\":\"a\"}}}";
+    InsightsJsonDecoder.Page page = new InsightsJsonDecoder(SCHEMA, null)
+      .decodePage(new JsonReader(new StringReader(json)), "act_1");
+
+    Assert.assertNull(page.getAfter());
+    Assert.assertTrue(page.getRecords().isEmpty());
+  }
+
+  @Test
+  public void testDecodeObjectId() throws IOException {
+    Schema schema = Schema.recordOf(
+      "insights",
+      Schema.Field.of("ad_id", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("object_id", Schema.of(Schema.Type.STRING)));
+    String json = "{\"data\":[{\"ad_id\":\"1\"}]}";
+    InsightsJsonDecoder.Page page = new InsightsJsonDecoder(schema, "object_id")
+      .decodePage(new JsonReader(new StringReader(json)), "act_1");
+
+    Assert.assertNull(page.getAfter());
+    Assert.assertEquals("act_1", page.getRecords().get(0).get("object_id"));
+  }
+}
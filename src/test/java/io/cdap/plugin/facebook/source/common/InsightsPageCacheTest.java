@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import io.cdap.plugin.facebook.source.batch.FacebookBatchSourceConfig;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class InsightsPageCacheTest {
+  private static final LocalDate TODAY = LocalDate.of(2020, 5, 13);
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testPutAndGet() throws IOException {
+    InsightsPageCache cache = new InsightsPageCache(tmpFolder.getRoot().getAbsolutePath(), new Configuration(),
+                                                    10, 1);
+    List<String> pages = Arrays.asList("{\"data\":[{\"impressions\":\"1\"}]}", "{\"data\":[]}");
+    cache.put("key", pages);
+
+    Assert.assertEquals(pages, cache.get("key"));
+    Assert.assertNull(cache.get("other"));
+  }
+
+  @Test
+  public void testEvictBySize() throws IOException {
+    InsightsPageCache cache = new InsightsPageCache(tmpFolder.getRoot().getAbsolutePath(), new Configuration(),
+                                                    0, 1);
+    cache.put("key", Collections.singletonList("{\"data\":[]}"));
+    cache.evict();
+
+    Assert.assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void testReadDoesNotExtendTtl() throws IOException {
+    File dir = tmpFolder.getRoot();
+    InsightsPageCache cache = new InsightsPageCache(dir.getAbsolutePath(), new Configuration(), 10, 1);
+    cache.put("key", Collections.singletonList("{\"data\":[]}"));
+    File entry = new File(dir, "key.json.gz");
+    long writtenAt = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(23);
+    Assert.assertTrue(entry.setLastModified(writtenAt));
+
+    Assert.assertNotNull(cache.get("key"));
+    Assert.assertEquals(writtenAt / 1000, entry.lastModified() / 1000);
+
+    Assert.assertTrue(entry.setLastModified(writtenAt - TimeUnit.HOURS.toMillis(2)));
+    Assert.assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() throws IOException {
+    File dir = tmpFolder.getRoot();
+    InsightsPageCache cache = new InsightsPageCache(dir.getAbsolutePath(), new Configuration(), 1, 1);
+    // random pages barely compress, so two entries exceed the maximum size
+    cache.put("older", Collections.singletonList(createRandomPage(1000 * 1024)));
+    cache.put("newer", Collections.singletonList(createRandomPage(1000 * 1024)));
+    long now = System.currentTimeMillis();
+    Assert.assertTrue(new File(dir, "older.json.gz").setLastModified(now - TimeUnit.HOURS.toMillis(2)));
+    Assert.assertTrue(new File(dir, "newer.json.gz").setLastModified(now - TimeUnit.HOURS.toMillis(1)));
+
+    // older entry is used recently, so the newer one is evicted
+    Assert.assertNotNull(cache.get("older"));
+    cache.evict();
+
+    Assert.assertNotNull(cache.get("older"));
+    Assert.assertNull(cache.get("newer"));
+  }
+
+  @Test
+  public void testKeyCoversAccessToken() {
+    InsightsScope scope = InsightsScope.forObject("act_1");
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("act_1").setFields("impressions").build();
+    FacebookBatchSourceConfig otherConfig = FacebookBatchSourceConfig.builder()
+      .setAccessToken("other").setObjectType("Account").setAccountId("act_1").setFields("impressions").build();
+
+    String key = InsightsPageCache.createKey(config, scope, null);
+    Assert.assertEquals(key, InsightsPageCache.createKey(config, scope, null));
+    Assert.assertNotEquals(key, InsightsPageCache.createKey(otherConfig, scope, null));
+    Assert.assertFalse(key.contains("token"));
+  }
+
+  @Test
+  public void testDayKeysAreSharedBySlices() {
+    InsightsScope scope = InsightsScope.forObject("act_1");
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("act_1").setFields("impressions").build();
+    LocalDate day = LocalDate.of(2020, 4, 2);
+
+    Map<LocalDate, String> weekKeys = InsightsPageCache.createDayKeys(
+      config, scope.withTimeRange(new TimeRange(LocalDate.of(2020, 4, 1), LocalDate.of(2020, 4, 7))), null);
+    Map<LocalDate, String> dayKeys = InsightsPageCache.createDayKeys(
+      config, scope.withTimeRange(new TimeRange(day, day)), null);
+
+    Assert.assertEquals(7, weekKeys.size());
+    Assert.assertEquals(LocalDate.of(2020, 4, 1), weekKeys.keySet().iterator().next());
+    Assert.assertEquals(dayKeys.get(day), weekKeys.get(day));
+  }
+
+  @Test
+  public void testIsFinalized() {
+    InsightsScope scope = InsightsScope.forObject("act_1");
+
+    Assert.assertFalse(InsightsPageCache.isFinalized(scope, 28, TODAY));
+    Assert.assertTrue(InsightsPageCache.isFinalized(
+      scope.withTimeRange(new TimeRange(LocalDate.of(2020, 4, 1), LocalDate.of(2020, 4, 13))), 28, TODAY));
+    Assert.assertFalse(InsightsPageCache.isFinalized(
+      scope.withTimeRange(new TimeRange(LocalDate.of(2020, 4, 1), LocalDate.of(2020, 4, 14))), 28, TODAY));
+  }
+
+  private static String createRandomPage(int length) {
+    Random random = new Random(length);
+    StringBuilder page = new StringBuilder("{\"data\":[{\"ad_name\":\"");
+    for (int i = 0; i < length; i++) {
+      page.append((char) ('a' + random.nextInt(26)));
+    }
+    return page.append("\"}]}").toString();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.plugin.facebook.source.common.metrics.ReaderMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+public class InsightsTransformPlanTest {
+
+  @Test
+  public void testCompile() {
+    Schema schema = SchemaHelper.buildAdsInsightsSchema(Arrays.asList("ad_id", "actions", "website_ctr"), null);
+    InsightsTransformPlan plan = InsightsTransformPlan.compile(schema);
+
+    Assert.assertSame(schema, plan.getSchema());
+    Assert.assertEquals(InsightsTransformPlan.Kind.STRING, plan.getSlot("ad_id").getKind());
+    Assert.assertNull(plan.getSlot("unknown"));
+    // nested fields are not renamed at top level
+    Assert.assertNull(plan.getSlot("7d_view"));
+
+    InsightsTransformPlan.Slot actions = plan.getSlot("actions");
+    Assert.assertEquals(InsightsTransformPlan.Kind.ARRAY, actions.getKind());
+    InsightsTransformPlan.Slot action = actions.getComponent();
+    Assert.assertEquals(InsightsTransformPlan.Kind.RECORD, action.getKind());
+    Assert.assertEquals("view_7d", action.getRecordPlan().getSlot("7d_view").getName());
+    Assert.assertEquals("view_7d", action.getRecordPlan().getSlot("view_7d").getName());
+    Assert.assertEquals("action_type", action.getRecordPlan().getSlot("action_type").getName());
+  }
+
+  @Test
+  public void testCompileSkipsFieldsWithoutTransformation() {
+    Schema schema = Schema.recordOf(
+      "insights",
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("bytes", Schema.nullableOf(Schema.of(Schema.Type.BYTES))));
+    InsightsTransformPlan plan = InsightsTransformPlan.compile(schema);
+
+    Assert.assertNotNull(plan.getSlot("name"));
+    Assert.assertNull(plan.getSlot("bytes"));
+  }
+
+  @Test
+  public void testCompileTyped() {
+    Schema schema = SchemaHelper.buildAdsInsightsSchema(
+      Arrays.asList("ad_id", "impressions", "ctr", "spend", "date_start", "actions"), null, true);
+    InsightsTransformPlan plan = InsightsTransformPlan.compile(schema);
+
+    Assert.assertEquals(InsightsTransformPlan.Kind.STRING, plan.getSlot("ad_id").getKind());
+    Assert.assertEquals(InsightsTransformPlan.Kind.LONG, plan.getSlot("impressions").getKind());
+    Assert.assertEquals(InsightsTransformPlan.Kind.DOUBLE, plan.getSlot("ctr").getKind());
+    Assert.assertEquals(InsightsTransformPlan.Kind.DECIMAL, plan.getSlot("spend").getKind());
+    Assert.assertEquals(InsightsTransformPlan.Kind.DATE, plan.getSlot("date_start").getKind());
+    InsightsTransformPlan actionPlan = plan.getSlot("actions").getComponent().getRecordPlan();
+    Assert.assertEquals(InsightsTransformPlan.Kind.DOUBLE, actionPlan.getSlot("value").getKind());
+    Assert.assertEquals(InsightsTransformPlan.Kind.STRING, actionPlan.getSlot("action_type").getKind());
+  }
+
+  @Test
+  public void testParse() {
+    Schema schema = SchemaHelper.buildAdsInsightsSchema(
+      Arrays.asList("impressions", "ctr", "spend", "date_start"), null, true);
+    InsightsTransformPlan plan = InsightsTransformPlan.compile(schema);
+
+    Assert.assertEquals(1234L, plan.getSlot("impressions").parse("1234"));
+    Assert.assertEquals(0.5123, (Double) plan.getSlot("ctr").parse("0.5123"), 0.0);
+    ByteBuffer spend = (ByteBuffer) plan.getSlot("spend").parse("12.345");
+    Assert.assertEquals(new BigDecimal("12.345000"),
+                        new BigDecimal(new BigInteger(Bytes.toBytes(spend)), SchemaHelper.DECIMAL_SCALE));
+    Assert.assertEquals((int) LocalDate.of(2020, 3, 5).toEpochDay(), plan.getSlot("date_start").parse("2020-03-05"));
+  }
+
+  @Test
+  public void testParseInvalidValues() {
+    Schema schema = SchemaHelper.buildAdsInsightsSchema(
+      Arrays.asList("impressions", "ctr", "spend", "date_start"), null, true);
+    InsightsTransformPlan plan = InsightsTransformPlan.compile(schema);
+    // drop values counted by other tests
+    ReaderMetrics.getInstance().emit(Mockito.mock(StageMetrics.class));
+
+    Assert.assertNull(plan.getSlot("impressions").parse(""));
+    Assert.assertNull(plan.getSlot("ctr").parse(""));
+    Assert.assertNull(plan.getSlot("spend").parse("n/a"));
+    Assert.assertNull(plan.getSlot("date_start").parse("2020-0a-05"));
+
+    StageMetrics metrics = Mockito.mock(StageMetrics.class);
+    ReaderMetrics.getInstance().emit(metrics);
+    Mockito.verify(metrics).count(ReaderMetrics.INVALID_VALUES, 4);
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void testParseInvalidValueOfNonNullableField() {
+    Schema schema = Schema.recordOf("insights", Schema.Field.of("date_start", Schema.of(Schema.LogicalType.DATE)));
+    InsightsTransformPlan.compile(schema).getSlot("date_start").parse("2020-0a-05");
+  }
+}
@@ -31,4 +31,14 @@ public class ObjectTypeTest {
   public void fromStringInvalidValue() {
     Assert.assertEquals(ObjectType.Campaign, ObjectType.fromString("invalid"));
   }
+
+  @Test
+  public void hierarchy() {
+    Assert.assertTrue(ObjectType.Account.isParentOf(ObjectType.AdSet));
+    Assert.assertTrue(ObjectType.Business.isParentOf(ObjectType.Campaign));
+    Assert.assertFalse(ObjectType.AdSet.isParentOf(ObjectType.Campaign));
+    Assert.assertFalse(ObjectType.Account.isParentOf(ObjectType.Page));
+    Assert.assertEquals(ObjectType.Account, ObjectType.Business.getInsightsObjectType());
+    Assert.assertEquals(ObjectType.AdSet, ObjectType.fromLevel("adset"));
+  }
 }
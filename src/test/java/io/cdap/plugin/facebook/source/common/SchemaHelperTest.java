@@ -22,7 +22,9 @@ import io.cdap.plugin.facebook.source.common.exceptions.IllegalInsightsFieldExce
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
 public class SchemaHelperTest {
 
@@ -36,7 +38,7 @@ public class SchemaHelperTest {
       Schema.Field.of("actions_results", Schema.nullableOf(SchemaHelper.createAddActionStatsSchema())),
       Schema.Field.of("actions", Schema.nullableOf(Schema.arrayOf(SchemaHelper.createAddActionStatsSchema()))));
 
-    Schema resultingSchema = SchemaHelper.buildSchema(
+    Schema resultingSchema = SchemaHelper.buildAdsInsightsSchema(
       Arrays.asList("ad_id", "actions_results", "actions"), // age and gender will be added from breakdown
       SourceConfigHelper.parseBreakdowns("age, gender *")
     );
@@ -44,9 +46,33 @@ public class SchemaHelperTest {
     Assert.assertTrue(expectedSchema.isCompatible(resultingSchema));
   }
 
+  @Test
+  public void buildSchemaDeterministic() throws IOException {
+    Schema schema = SchemaHelper.buildAdsInsightsSchema(Arrays.asList("ad_id", "actions", "action_values"),
+                                                        SourceConfigHelper.parseBreakdowns("age, gender *"), true);
+
+    Assert.assertSame(schema, SchemaHelper.buildAdsInsightsSchema(
+      Arrays.asList("ad_id", "actions", "action_values"), SourceConfigHelper.parseBreakdowns("age, gender *"), true));
+    Assert.assertEquals("FacebookAdsTypedActionStats", SchemaHelper.createAddActionStatsSchema(true).getRecordName());
+    Assert.assertNotEquals(schema, SchemaHelper.buildAdsInsightsSchema(
+      Arrays.asList("ad_id", "actions", "action_values"), SourceConfigHelper.parseBreakdowns("age, gender *"), false));
+    // schemas with repeated action records survive serialization
+    Assert.assertEquals(schema, Schema.parseJson(schema.toString()));
+  }
+
+  @Test
+  public void buildSchemaWithObjectIdField() {
+    List<String> fields = Arrays.asList("ad_id", "impressions");
+    Schema schema = SchemaHelper.buildAdsInsightsSchema(fields, null, false, "object_id");
+
+    Assert.assertSame(schema, SchemaHelper.buildAdsInsightsSchema(fields, null, false, "object_id"));
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), schema.getField("object_id").getSchema());
+    Assert.assertNull(SchemaHelper.buildAdsInsightsSchema(fields, null, false).getField("object_id"));
+  }
+
   @Test(expected = IllegalInsightsFieldException.class)
   public void buildSchemaInvalidField() {
-    SchemaHelper.buildSchema(Arrays.asList("ad_id", "actions_results", "actions", "invalid"), null);
+    SchemaHelper.buildAdsInsightsSchema(Arrays.asList("ad_id", "actions_results", "actions", "invalid"), null);
   }
 
   @Test
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common;
+
+import io.cdap.plugin.facebook.source.common.config.SourceConfigHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+public class TimeRangeTest {
+  private static final LocalDate TODAY = LocalDate.of(2020, 5, 13); // Wednesday
+
+  @Test
+  public void testSlice() {
+    TimeRange range = new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 10));
+    List<TimeRange> slices = range.slice(4);
+
+    Assert.assertEquals(Arrays.asList(
+      new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 4)),
+      new TimeRange(LocalDate.of(2020, 1, 5), LocalDate.of(2020, 1, 8)),
+      new TimeRange(LocalDate.of(2020, 1, 9), LocalDate.of(2020, 1, 10))
+    ), slices);
+    Assert.assertEquals(10, range.getDays());
+  }
+
+  @Test
+  public void testSliceSingleDay() {
+    TimeRange range = new TimeRange(TODAY, TODAY);
+    Assert.assertEquals(1, range.slice(1).size());
+    Assert.assertEquals(1, range.slice(7).size());
+  }
+
+  @Test
+  public void testResolveDatePreset() {
+    Assert.assertEquals(new TimeRange(TODAY, TODAY), SourceConfigHelper.resolveDatePreset("today", TODAY));
+    Assert.assertEquals(new TimeRange(LocalDate.of(2020, 5, 6), LocalDate.of(2020, 5, 12)),
+                        SourceConfigHelper.resolveDatePreset("last_7d", TODAY));
+    Assert.assertEquals(new TimeRange(LocalDate.of(2020, 5, 11), TODAY),
+                        SourceConfigHelper.resolveDatePreset("this_week_mon_today", TODAY));
+    Assert.assertEquals(new TimeRange(LocalDate.of(2020, 5, 3), LocalDate.of(2020, 5, 9)),
+                        SourceConfigHelper.resolveDatePreset("last_week_sun_sat", TODAY));
+    Assert.assertEquals(new TimeRange(LocalDate.of(2020, 4, 1), LocalDate.of(2020, 4, 30)),
+                        SourceConfigHelper.resolveDatePreset("last_month", TODAY));
+    Assert.assertEquals(new TimeRange(LocalDate.of(2020, 4, 1), TODAY),
+                        SourceConfigHelper.resolveDatePreset("this_quarter", TODAY));
+    Assert.assertNull(SourceConfigHelper.resolveDatePreset("lifetime", TODAY));
+  }
+}
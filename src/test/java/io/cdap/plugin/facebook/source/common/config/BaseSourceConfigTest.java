@@ -23,6 +23,8 @@ import io.cdap.plugin.facebook.source.batch.FacebookBatchSourceConfig;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 public class BaseSourceConfigTest extends BaseFacebookValidationTest {
   @Test
   public void testValidateObjectIdEmptyId() {
@@ -45,6 +47,45 @@ public class BaseSourceConfigTest extends BaseFacebookValidationTest {
     Assert.assertEquals("adId", config.getObjectId());
   }
 
+  @Test
+  public void testValidateObjectIdEmptyBusinessId() {
+    BaseSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setBusinessId("").setObjectType("Business").build();
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    config.validateObjectId(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_BUSINESS_ID);
+  }
+
+  @Test
+  public void testGetObjectIds() {
+    BaseSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccountId("act_1, act_2,,act_3\nact_4").setObjectType("Account").build();
+
+    Assert.assertEquals(Arrays.asList("act_1", "act_2", "act_3", "act_4"), config.getObjectIds());
+  }
+
+  @Test
+  public void testValidateObjectIdField() {
+    BaseSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setFields("date_start,impressions").setObjectIdField("object_id").build();
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    config.validateObjectIdField(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertNotNull(config.getSchema().getField("object_id"));
+  }
+
+  @Test
+  public void testValidateObjectIdFieldDuplicate() {
+    BaseSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setObjectType("Account").setFields("date_start,impressions").setObjectIdField("impressions").build();
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    config.validateObjectIdField(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, FacebookBatchSourceConfig.PROPERTY_OBJECT_ID_FIELD);
+  }
+
   @Test
   public void testValidateFields() {
     BaseSourceConfig config = FacebookBatchSourceConfig.builder()
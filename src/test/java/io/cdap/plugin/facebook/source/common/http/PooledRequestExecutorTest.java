@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.AdsInsights;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class PooledRequestExecutorTest {
+  private static final String BODY = "{\"data\":[{\"impressions\":\"100\"}]}";
+
+  @Test
+  public void testDecodeGzip() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(BODY.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Assert.assertEquals(BODY, PooledRequestExecutor.decode(createResponse("gzip", compressed.toByteArray())));
+  }
+
+  @Test
+  public void testDecodeDeflate() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream out = new DeflaterOutputStream(compressed)) {
+      out.write(BODY.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Assert.assertEquals(BODY, PooledRequestExecutor.decode(createResponse("deflate", compressed.toByteArray())));
+  }
+
+  @Test
+  public void testDecodeIdentity() throws IOException {
+    Response response = createResponse(null, BODY.getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals(BODY, PooledRequestExecutor.decode(response));
+  }
+
+  @Test
+  public void testParamValue() {
+    Assert.assertEquals("account", PooledRequestExecutor.toParamValue("account"));
+    Assert.assertEquals("500", PooledRequestExecutor.toParamValue(500));
+    Assert.assertEquals("age", PooledRequestExecutor.toParamValue(AdsInsights.EnumBreakdowns.VALUE_AGE));
+    Assert.assertEquals("[\"impressions\",\"clicks\"]",
+                        PooledRequestExecutor.toParamValue(Arrays.asList("impressions", "clicks")));
+  }
+
+  @Test
+  public void testSharedInstances() {
+    Assert.assertSame(PooledRequestExecutor.getInstance(30, 300), PooledRequestExecutor.getInstance(30, 300));
+    Assert.assertNotSame(PooledRequestExecutor.getInstance(30, 300), PooledRequestExecutor.getInstance(30, 60));
+  }
+
+  private static Response createResponse(String encoding, byte[] body) {
+    Response.Builder builder = new Response.Builder()
+      .request(new Request.Builder().url("https://graph.facebook.com/").build())
+      .protocol(Protocol.HTTP_1_1)
+      .code(200)
+      .message("OK")
+      .body(ResponseBody.create(body, null));
+    if (encoding != null) {
+      builder.header("Content-Encoding", encoding);
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import com.facebook.ads.sdk.APIException;
+import com.google.gson.stream.MalformedJsonException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryPolicyTest {
+  private static final String THROTTLED = "{\"error\":{\"message\":\"User request limit reached\",\"code\":17}}";
+  private static final String INVALID_PARAMETER = "{\"error\":{\"message\":\"Invalid parameter\",\"code\":100}}";
+
+  @Test
+  public void testRetriesTransientErrors() throws APIException {
+    AtomicInteger calls = new AtomicInteger();
+    String result = new RetryPolicy(3, 1).call("test", () -> {
+      if (calls.incrementAndGet() < 3) {
+        throw new APIException(THROTTLED);
+      }
+      return "page";
+    });
+
+    Assert.assertEquals("page", result);
+    Assert.assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testDoesNotRetryPermanentErrors() {
+    AtomicInteger calls = new AtomicInteger();
+    try {
+      new RetryPolicy(3, 1).call("test", () -> {
+        calls.incrementAndGet();
+        throw new APIException(INVALID_PARAMETER);
+      });
+      Assert.fail("Permanent error is expected to be thrown");
+    } catch (APIException e) {
+      Assert.assertEquals(1, calls.get());
+    }
+  }
+
+  @Test
+  public void testGivesUpAfterMaxRetries() {
+    AtomicInteger calls = new AtomicInteger();
+    try {
+      new RetryPolicy(2, 1).call("test", () -> {
+        calls.incrementAndGet();
+        throw new APIException(THROTTLED);
+      });
+      Assert.fail("Error is expected to be thrown after retries");
+    } catch (APIException e) {
+      Assert.assertEquals(3, calls.get());
+    }
+  }
+
+  @Test
+  public void testTransientErrors() {
+    Assert.assertTrue(GraphApiErrors.isTransient(new APIException(THROTTLED)));
+    Assert.assertTrue(GraphApiErrors.isTransient(new HttpStatusException(503, "<html>Service Unavailable</html>")));
+    Assert.assertTrue(GraphApiErrors.isTransient(
+      new APIException.FailedRequestException(new SocketTimeoutException("Read timed out"))));
+    // the default executor of the SDK reports status only in the message of the cause
+    Assert.assertTrue(GraphApiErrors.isTransient(new APIException.FailedRequestException(
+      "<html>Bad Gateway</html>", new IOException("Server returned HTTP response code: 502 for URL: x"))));
+
+    Assert.assertFalse(GraphApiErrors.isTransient(new APIException(INVALID_PARAMETER)));
+    Assert.assertFalse(GraphApiErrors.isTransient(new HttpStatusException(400, INVALID_PARAMETER)));
+    Assert.assertFalse(GraphApiErrors.isTransient(new HttpStatusException(404, "<html>Not Found</html>")));
+    Assert.assertFalse(GraphApiErrors.isTransient(new APIException.FailedRequestException(
+      "<html>Forbidden</html>", new IOException("Server returned HTTP response code: 403 for URL: x"))));
+  }
+
+  @Test
+  public void testPluginErrorsAreNotTransient() {
+    Assert.assertFalse(GraphApiErrors.isTransient(
+      new APIException("Report run '1' finished with status 'Job Failed'.")));
+    Assert.assertFalse(GraphApiErrors.isTransient(
+      new APIException("Failed to read insights of act_1", new MalformedJsonException("Unterminated object"))));
+    Assert.assertFalse(GraphApiErrors.isTransient(
+      new APIException("Interrupted", new InterruptedException())));
+  }
+
+  @Test
+  public void testDelayGrowsExponentiallyWithJitter() {
+    RetryPolicy retryPolicy = new RetryPolicy(10);
+    for (int attempt = 0; attempt < 10; attempt++) {
+      long delay = Math.min(RetryPolicy.MAX_DELAY_MILLIS, RetryPolicy.INITIAL_DELAY_MILLIS << attempt);
+      long actual = retryPolicy.getDelayMillis(attempt);
+      Assert.assertTrue(actual >= delay / 2 && actual <= delay);
+    }
+  }
+}
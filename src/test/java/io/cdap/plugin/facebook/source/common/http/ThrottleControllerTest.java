@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ThrottleControllerTest {
+  private static final String KEY = "act_1";
+
+  @Test
+  public void testNoDelayBelowThreshold() {
+    ThrottleController controller = new ThrottleController(75);
+    controller.update(KEY, new UsageHeaders.Usage(74, 0), 0);
+
+    Assert.assertEquals(0, controller.getDelayMillis(KEY, 0));
+  }
+
+  @Test
+  public void testDelayGrowsAboveThreshold() {
+    ThrottleController controller = new ThrottleController(50);
+    controller.update(KEY, new UsageHeaders.Usage(75, 0), 0);
+    Assert.assertEquals(ThrottleController.MAX_DELAY_MILLIS / 2, controller.getDelayMillis(KEY, 0));
+
+    controller.update(KEY, new UsageHeaders.Usage(120, 0), 0);
+    Assert.assertEquals(ThrottleController.MAX_DELAY_MILLIS, controller.getDelayMillis(KEY, 0));
+  }
+
+  @Test
+  public void testWaitForRegainedAccess() {
+    ThrottleController controller = new ThrottleController(100);
+    controller.update(KEY, new UsageHeaders.Usage(100, 300), 1000);
+
+    Assert.assertEquals(300000, controller.getDelayMillis(KEY, 1000));
+    Assert.assertEquals(100000, controller.getDelayMillis(KEY, 201000));
+    // later response without blocking doesn't shorten the wait
+    controller.update(KEY, new UsageHeaders.Usage(10, 0), 201000);
+    Assert.assertEquals(100000, controller.getDelayMillis(KEY, 201000));
+    Assert.assertEquals(0, controller.getDelayMillis(KEY, 301000));
+  }
+
+  @Test
+  public void testThrottledWithoutHeaders() {
+    ThrottleController controller = new ThrottleController(75);
+    controller.throttled(KEY, 0);
+
+    Assert.assertEquals(ThrottleController.THROTTLED_BACKOFF_MILLIS, controller.getDelayMillis(KEY, 0));
+  }
+
+  @Test
+  public void testThrottledUsageExpires() {
+    ThrottleController controller = new ThrottleController(75);
+    controller.update(KEY, new UsageHeaders.Usage(10, 0), 0);
+    controller.throttled(KEY, 0);
+
+    long unblockedMillis = ThrottleController.THROTTLED_BACKOFF_MILLIS;
+    Assert.assertEquals(ThrottleController.MAX_DELAY_MILLIS,
+                        controller.getDelayMillis(KEY, unblockedMillis - ThrottleController.MAX_DELAY_MILLIS));
+    // once access is regained, usage reported before is in effect again
+    Assert.assertEquals(0, controller.getDelayMillis(KEY, unblockedMillis));
+  }
+
+  @Test
+  public void testUsageIsTrackedPerAccount() {
+    ThrottleController controller = new ThrottleController(50);
+    controller.update("act_1", new UsageHeaders.Usage(100, 300), 0);
+    controller.update("act_2", new UsageHeaders.Usage(10, 0), 0);
+
+    Assert.assertEquals(300000, controller.getDelayMillis("act_1", 0));
+    Assert.assertEquals(0, controller.getDelayMillis("act_2", 0));
+    Assert.assertEquals(0, controller.getDelayMillis("act_3", 0));
+  }
+
+  @Test
+  public void testAppUsageIsSharedByAccounts() {
+    ThrottleController controller = new ThrottleController(50);
+    ThrottleController.UsageKey firstKey = ThrottleController.getUsageKey(
+      "https://graph.facebook.com/v9.0/act_1/insights", "token");
+    ThrottleController.UsageKey secondKey = ThrottleController.getUsageKey(
+      "https://graph.facebook.com/v9.0/act_2/insights", "token");
+    controller.update(firstKey, "X-App-Usage: {\"call_count\":75}\nX-Ad-Account-Usage: {\"acc_id_util_pct\":10}", 0);
+
+    // app usage is not recorded as usage of the account
+    Assert.assertEquals(0, controller.getDelayMillis(firstKey.getAccount(), 0));
+    Assert.assertEquals(ThrottleController.MAX_DELAY_MILLIS / 2, controller.getDelayMillis(secondKey.getApp(), 0));
+    Assert.assertEquals(firstKey.getApp(), secondKey.getApp());
+  }
+
+  @Test
+  public void testUsageKey() {
+    Assert.assertEquals("act_1", ThrottleController.getUsageKey("https://graph.facebook.com/v9.0/act_1/insights",
+                                                                "token").getAccount());
+    Assert.assertEquals("act_1", ThrottleController.getUsageKey("https://graph.facebook.com/v9.0/act_1", "token")
+      .getAccount());
+    ThrottleController.UsageKey userKey = ThrottleController.getUsageKey(
+      "https://graph.facebook.com/v9.0/123/insights", "token");
+    Assert.assertEquals(userKey.getAccount(), ThrottleController.getUsageKey("https://graph.facebook.com/", "token")
+      .getAccount());
+    Assert.assertNotEquals(userKey.getAccount(), ThrottleController.getUsageKey("https://graph.facebook.com/", "other")
+      .getAccount());
+    Assert.assertFalse(userKey.getAccount().contains("token"));
+    Assert.assertNotEquals(userKey.getAccount(), userKey.getApp());
+  }
+}
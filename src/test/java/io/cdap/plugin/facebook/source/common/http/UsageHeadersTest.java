@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UsageHeadersTest {
+
+  @Test
+  public void testAppUsage() {
+    UsageHeaders.Usage usage = UsageHeaders.parseAppUsage(
+      "{X-App-Usage=[{\"call_count\":28,\"total_time\":41,\"total_cputime\":25}], Content-Type=[application/json]}");
+
+    Assert.assertNotNull(usage);
+    Assert.assertEquals(41, usage.getPercent(), 0.001);
+    Assert.assertEquals(0, usage.getRegainAccessSeconds());
+  }
+
+  @Test
+  public void testBusinessUseCaseUsageInJsonString() {
+    UsageHeaders.Usage usage = UsageHeaders.parseAccountUsage(
+      "{\"x-business-use-case-usage\":[\"{\\\"123\\\":[{\\\"type\\\":\\\"ads_insights\\\",\\\"call_count\\\":100,"
+        + "\\\"total_cputime\\\":20,\\\"total_time\\\":20,\\\"estimated_time_to_regain_access\\\":5}]}\"]}");
+
+    Assert.assertNotNull(usage);
+    Assert.assertEquals(100, usage.getPercent(), 0.001);
+    Assert.assertEquals(300, usage.getRegainAccessSeconds());
+  }
+
+  @Test
+  public void testAppUsageIsParsedSeparately() {
+    String headers = "X-App-Usage: {\"call_count\":90}\n"
+      + "X-Ad-Account-Usage: {\"acc_id_util_pct\":87.5,\"reset_time_duration\":120}\n";
+    UsageHeaders.Usage usage = UsageHeaders.parseAccountUsage(headers);
+
+    Assert.assertNotNull(usage);
+    Assert.assertEquals(87.5, usage.getPercent(), 0.001);
+    // account is not blocked below 100%
+    Assert.assertEquals(0, usage.getRegainAccessSeconds());
+    Assert.assertEquals(90, UsageHeaders.parseAppUsage(headers).getPercent(), 0.001);
+  }
+
+  @Test
+  public void testNoUsageHeaders() {
+    Assert.assertNull(UsageHeaders.parseAccountUsage("{Content-Type=[application/json]}"));
+    Assert.assertNull(UsageHeaders.parseAppUsage("{Content-Type=[application/json]}"));
+    Assert.assertNull(UsageHeaders.parseAccountUsage(null));
+    Assert.assertNull(UsageHeaders.parseAccountUsage("X-App-Usage: {\"call_count\":10}"));
+  }
+
+  @Test
+  public void testMalformedHeader() {
+    Assert.assertNull(UsageHeaders.parseAppUsage("X-App-Usage: {\"call_count\":"));
+  }
+}
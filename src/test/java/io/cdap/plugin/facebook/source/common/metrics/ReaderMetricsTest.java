@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.metrics;
+
+import io.cdap.cdap.etl.api.StageMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ReaderMetricsTest {
+
+  @Test
+  public void testGetBucket() {
+    Assert.assertEquals(0, ReaderMetrics.getBucket(0));
+    Assert.assertEquals(1, ReaderMetrics.getBucket(1));
+    Assert.assertEquals(2, ReaderMetrics.getBucket(3));
+    Assert.assertEquals(8, ReaderMetrics.getBucket(200));
+    Assert.assertEquals(31, ReaderMetrics.getBucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testGetPercentile() {
+    long[] buckets = new long[32];
+    // 90 requests below 128 ms, 9 below 512 ms and 1 below 4096 ms
+    buckets[7] = 90;
+    buckets[9] = 9;
+    buckets[12] = 1;
+
+    Assert.assertEquals(128, ReaderMetrics.getPercentile(buckets, 100, 0.50));
+    Assert.assertEquals(512, ReaderMetrics.getPercentile(buckets, 100, 0.95));
+    Assert.assertEquals(512, ReaderMetrics.getPercentile(buckets, 100, 0.99));
+    Assert.assertEquals(4096, ReaderMetrics.getPercentile(buckets, 100, 1.0));
+  }
+
+  @Test
+  public void testEmit() {
+    ReaderMetrics readerMetrics = new ReaderMetrics();
+    readerMetrics.apiRequest(100, 2000);
+    readerMetrics.apiRequest(300, 1000);
+    readerMetrics.apiRetry();
+    readerMetrics.pageRead(25);
+    readerMetrics.usage(42.4);
+    readerMetrics.invalidValue();
+
+    StageMetrics metrics = Mockito.mock(StageMetrics.class);
+    readerMetrics.emit(metrics);
+
+    Mockito.verify(metrics).count(ReaderMetrics.API_REQUESTS, 2);
+    Mockito.verify(metrics).count(ReaderMetrics.API_RETRIES, 1);
+    Mockito.verify(metrics).count(ReaderMetrics.API_LATENCY_MS, 400);
+    Mockito.verify(metrics).count(ReaderMetrics.BYTES_RECEIVED, 3000);
+    Mockito.verify(metrics).count(ReaderMetrics.PAGES_READ, 1);
+    Mockito.verify(metrics).count(ReaderMetrics.ROWS_READ, 25);
+    Mockito.verify(metrics).count(ReaderMetrics.INVALID_VALUES, 1);
+    Mockito.verify(metrics).gauge(ReaderMetrics.API_LATENCY_P50_MS, 128);
+    Mockito.verify(metrics).gauge(ReaderMetrics.API_LATENCY_P99_MS, 512);
+    Mockito.verify(metrics).gauge(ReaderMetrics.USAGE_PERCENT, 42);
+
+    // metrics are reset after they are emitted
+    StageMetrics next = Mockito.mock(StageMetrics.class);
+    readerMetrics.emit(next);
+    Mockito.verify(next, Mockito.never()).count(Mockito.eq(ReaderMetrics.API_REQUESTS), Mockito.anyInt());
+    Mockito.verify(next, Mockito.never()).gauge(Mockito.eq(ReaderMetrics.API_LATENCY_P50_MS), Mockito.anyLong());
+  }
+
+  @Test
+  public void testCountExceedingInt() {
+    StageMetrics metrics = Mockito.mock(StageMetrics.class);
+    ReaderMetrics.count(metrics, ReaderMetrics.BYTES_RECEIVED, Integer.MAX_VALUE + 10L);
+
+    Mockito.verify(metrics).count(ReaderMetrics.BYTES_RECEIVED, Integer.MAX_VALUE);
+    Mockito.verify(metrics).count(ReaderMetrics.BYTES_RECEIVED, 10);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.AdAccount;
+import io.cdap.plugin.facebook.testing.FakeGraphApiServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdReportRunRequestWrapperTest {
+
+  @Test
+  public void testPollIntervalFollowsProgress() {
+    // 20% done in 10 seconds, 40 seconds expected to remain
+    Assert.assertEquals(20000, AdReportRunRequestWrapper.nextPollInterval(10000, 1000, 0, 20));
+    // 90% done in 90 seconds, 10 seconds expected to remain
+    Assert.assertEquals(5000, AdReportRunRequestWrapper.nextPollInterval(90000, 20000, 20, 90));
+  }
+
+  @Test
+  public void testPollIntervalBacksOffWithoutProgress() {
+    Assert.assertEquals(2000, AdReportRunRequestWrapper.nextPollInterval(1000, 1000, 0, 0));
+    Assert.assertEquals(AdReportRunRequestWrapper.MAX_POLL_INTERVAL_MILLIS,
+                        AdReportRunRequestWrapper.nextPollInterval(60000, 20000, 50, 50));
+  }
+
+  @Test
+  public void testPollIntervalBounds() {
+    Assert.assertEquals(AdReportRunRequestWrapper.MIN_POLL_INTERVAL_MILLIS,
+                        AdReportRunRequestWrapper.nextPollInterval(1000, 1000, 50, 99));
+    Assert.assertEquals(AdReportRunRequestWrapper.MAX_POLL_INTERVAL_MILLIS,
+                        AdReportRunRequestWrapper.nextPollInterval(600000, 1000, 0, 1));
+  }
+
+  @Test
+  public void testWaitIsLimited() throws Exception {
+    try (FakeGraphApiServer server = FakeGraphApiServer.start().setReportRunPolls(10)) {
+      APIContext context = InsightsRequestFactory.createContext("token");
+      AdReportRunRequestWrapper request = new AdReportRunRequestWrapper(
+        new AdAccount("act_1", context).getInsightsAsync(), context, 1, 0);
+      try {
+        request.execute();
+        Assert.fail("Wait for the report run is expected to time out");
+      } catch (APIException e) {
+        Assert.assertTrue(e.getMessage(), e.getMessage().contains("'1000001'"));
+      }
+      Assert.assertEquals(1, server.getReportRunCount());
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchPageSourceTest {
+
+  @Test
+  public void testNextCursor() {
+    JsonObject response = new JsonParser().parse(
+      "{\"data\":[],\"paging\":{\"cursors\":{\"before\":\"MA\",\"after\":\"MjQZD\"},"
+        + "\"next\":\"https://graph.facebook.com/v9.0/act_1/insights?after=MjQZD\"}}").getAsJsonObject();
+
+    Assert.assertEquals("MjQZD", BatchPageSource.getNextCursor(response));
+  }
+
+  @Test
+  public void testNoNextCursorOnLastPage() {
+    JsonObject response = new JsonParser().parse(
+      "{\"data\":[],\"paging\":{\"cursors\":{\"before\":\"MA\",\"after\":\"MjQZD\"}}}").getAsJsonObject();
+
+    Assert.assertNull(BatchPageSource.getNextCursor(response));
+  }
+
+  @Test
+  public void testNoPaging() {
+    Assert.assertNull(BatchPageSource.getNextCursor(new JsonParser().parse("{\"data\":[]}").getAsJsonObject()));
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIContext;
+import com.facebook.ads.sdk.APIException;
+import io.cdap.plugin.facebook.source.common.InsightsPageCache;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CachingPageSourceTest {
+  private static final APIContext CONTEXT = new APIContext("token");
+  private static final LocalDate DAY = LocalDate.of(2020, 1, 1);
+  private static final String PAGE = page(DAY);
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testPagesOfSeveralObjectsAreCached() throws APIException, IOException {
+    InsightsPageCache cache = createCache();
+    // pages of several objects are read by a single source, as they are by batch requests
+    InsightsPageSource delegate = new SequentialPageSource(Arrays.asList(
+      new CachedPageSource("act_1", Arrays.asList(PAGE, PAGE), CONTEXT),
+      new CachedPageSource("act_2", Collections.singletonList(PAGE), CONTEXT),
+      new CachedPageSource("act_3", Collections.singletonList(PAGE), CONTEXT)));
+    Map<String, Map<LocalDate, String>> keys = new HashMap<>();
+    keys.put("act_1", Collections.singletonMap(DAY, "key1"));
+    keys.put("act_2", Collections.singletonMap(DAY, "key2"));
+
+    InsightsPageSource pages = new CachingPageSource(delegate, cache, keys);
+    Assert.assertEquals("act_1", pages.next().getObjectId());
+    // entry is visible only once all pages of the object are read
+    Assert.assertNull(cache.get("key1"));
+    int count = 1;
+    while (pages.next() != null) {
+      count++;
+    }
+    pages.close();
+
+    Assert.assertEquals(4, count);
+    Assert.assertEquals(2, cache.get("key1").size());
+    Assert.assertEquals(1, cache.get("key2").size());
+  }
+
+  @Test
+  public void testRowsAreCachedByDay() throws APIException, IOException {
+    InsightsPageCache cache = createCache();
+    LocalDate nextDay = DAY.plusDays(1);
+    LocalDate emptyDay = DAY.plusDays(2);
+    Map<LocalDate, String> dayKeys = new LinkedHashMap<>();
+    dayKeys.put(DAY, "day1");
+    dayKeys.put(nextDay, "day2");
+    dayKeys.put(emptyDay, "day3");
+    String twoDays = "{\"data\":[" + row(DAY) + "," + row(nextDay) + "]}";
+
+    InsightsPageSource pages = new CachingPageSource(
+      new CachedPageSource("act_1", Arrays.asList(twoDays, page(nextDay)), CONTEXT),
+      cache, Collections.singletonMap("act_1", dayKeys));
+    while (pages.next() != null) {
+      // read all pages
+    }
+    pages.close();
+
+    Assert.assertEquals(Collections.singletonList(PAGE), cache.get("day1"));
+    Assert.assertEquals(Arrays.asList(page(nextDay), page(nextDay)), cache.get("day2"));
+    // days without rows are cached, so they are not read again
+    Assert.assertEquals(Collections.singletonList("{\"data\":[]}"), cache.get("day3"));
+  }
+
+  @Test
+  public void testAggregatedRowsAreNotCached() throws APIException, IOException {
+    InsightsPageCache cache = createCache();
+    String aggregated = "{\"data\":[{\"ad_id\":\"1\",\"date_start\":\"2020-01-01\",\"date_stop\":\"2020-01-07\"}]}";
+
+    InsightsPageSource pages = new CachingPageSource(
+      new CachedPageSource("act_1", Arrays.asList(PAGE, aggregated), CONTEXT),
+      cache, Collections.singletonMap("act_1", Collections.singletonMap(DAY, "key1")));
+    Assert.assertNotNull(pages.next());
+    Assert.assertNotNull(pages.next());
+    Assert.assertNull(pages.next());
+    pages.close();
+
+    Assert.assertNull(cache.get("key1"));
+  }
+
+  @Test
+  public void testPartiallyReadObjectIsNotCached() throws APIException, IOException {
+    InsightsPageCache cache = createCache();
+    InsightsPageSource pages = new CachingPageSource(new CachedPageSource("act_1", Arrays.asList(PAGE, PAGE), CONTEXT),
+                                                     cache, Collections.singletonMap(
+                                                       "act_1", Collections.singletonMap(DAY, "key1")));
+    Assert.assertNotNull(pages.next());
+    pages.close();
+
+    Assert.assertNull(cache.get("key1"));
+    // temporary file of the discarded entry is deleted
+    List<String> files = Arrays.asList(tmpFolder.getRoot().list());
+    Assert.assertTrue(files.toString(), files.isEmpty());
+  }
+
+  private InsightsPageCache createCache() throws IOException {
+    return new InsightsPageCache(tmpFolder.getRoot().getAbsolutePath(), new Configuration(), 10, 1);
+  }
+
+  private static String page(LocalDate day) {
+    return "{\"data\":[" + row(day) + "]}";
+  }
+
+  private static String row(LocalDate day) {
+    return String.format("{\"ad_id\":\"1\",\"date_start\":\"%s\",\"date_stop\":\"%s\"}", day, day);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.AdsInsights;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.facebook.source.batch.FacebookBatchSourceConfig;
+import io.cdap.plugin.facebook.source.common.AdsInsightsTransformer;
+import io.cdap.plugin.facebook.source.common.InsightsType;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.http.RetryPolicy;
+import io.cdap.plugin.facebook.testing.FakeGraphApiServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+public class InsightsRequestFactoryTest {
+  private static final InsightsScope SCOPE = InsightsScope.forObject("act_1")
+    .withTimeRange(new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 10)));
+
+  @Test
+  public void testBreakdownsAreRequested() throws Exception {
+    // batch reads used to leave breakdown fields of the schema empty, since breakdowns were not sent
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("act_1").setFields("ad_id,impressions")
+      .setLevel("ad").setBreakdown("age, gender *").build();
+
+    try (FakeGraphApiServer server = FakeGraphApiServer.start().setRows("act_1", 10)) {
+      InsightsPageSource pages = new RequestPageSource("act_1", InsightsRequestFactory.createRequest(config, SCOPE),
+                                                       new RetryPolicy(0));
+      int rows = 0;
+      for (InsightsPage page = pages.next(); page != null; page = pages.next()) {
+        for (Object row : page.getRows()) {
+          StructuredRecord record = AdsInsightsTransformer.transform(
+            new InsightsType((AdsInsights) row), config.getSchema());
+          Assert.assertNotNull(record.get("age"));
+          Assert.assertNotNull(record.get("gender"));
+          rows++;
+        }
+      }
+      Assert.assertEquals(10, rows);
+    }
+  }
+
+  @Test
+  public void testDirectRequestOfAccountWithoutPrefix() {
+    FacebookBatchSourceConfig config = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("1").setFields("ad_id,impressions")
+      .setLevel("ad").setBreakdown("age").build();
+
+    DirectInsightsRequest request = InsightsRequestFactory.createDirectRequest(config, InsightsScope.forObject("1"));
+
+    Assert.assertTrue(request.getUrl(), request.getUrl().endsWith("/act_1/insights"));
+    Map<String, Object> params = request.getParams();
+    Assert.assertTrue(params.get("fields").toString().contains("impressions"));
+    Assert.assertEquals(Collections.singletonList(AdsInsights.EnumBreakdowns.VALUE_AGE), params.get("breakdowns"));
+    Assert.assertEquals("ad", params.get("level"));
+    Assert.assertEquals("token", params.get("access_token"));
+  }
+
+  @Test
+  public void testIncrementalReadIsDaily() {
+    // restated days are read again, so rows must not be aggregated across days
+    FacebookBatchSourceConfig.Builder builder = FacebookBatchSourceConfig.builder()
+      .setAccessToken("token").setObjectType("Account").setAccountId("act_1").setFields("ad_id,impressions");
+
+    Assert.assertFalse(InsightsRequestFactory.createDirectRequest(builder.build(), SCOPE).getParams()
+                         .containsKey("time_increment"));
+    Map<String, Object> params = InsightsRequestFactory.createDirectRequest(
+      builder.setWatermarkPath("/tmp/watermarks").build(), SCOPE).getParams();
+    Assert.assertEquals(1, params.get("time_increment"));
+  }
+}
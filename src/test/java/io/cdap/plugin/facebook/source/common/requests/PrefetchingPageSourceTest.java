@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.common.requests;
+
+import com.facebook.ads.sdk.APIException;
+import com.facebook.ads.sdk.APINodeList;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PrefetchingPageSourceTest {
+
+  @Test
+  public void testReadsAllPagesInOrder() throws APIException {
+    InsightsPage first = new InsightsPage("1", Mockito.mock(APINodeList.class));
+    InsightsPage second = new InsightsPage("1", Mockito.mock(APINodeList.class));
+
+    try (PrefetchingPageSource source = new PrefetchingPageSource(new FixedPageSource(first, second), 1)) {
+      Assert.assertSame(first, source.next());
+      Assert.assertSame(second, source.next());
+      Assert.assertNull(source.next());
+      Assert.assertNull(source.next());
+    }
+  }
+
+  @Test
+  public void testFailureIsRethrownAfterPrecedingPages() throws APIException {
+    InsightsPage first = new InsightsPage("1", Mockito.mock(APINodeList.class));
+
+    try (PrefetchingPageSource source = new PrefetchingPageSource(new FixedPageSource(first, null), 2)) {
+      Assert.assertSame(first, source.next());
+      try {
+        source.next();
+        Assert.fail("Failure of the background read is expected");
+      } catch (APIException e) {
+        Assert.assertEquals("page failed", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testErrorIsRethrown() {
+    InsightsPageSource failing = new InsightsPageSource() {
+      @Override
+      public InsightsPage next() {
+        throw new NoClassDefFoundError("com/facebook/ads/sdk/AdsInsights");
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    try (PrefetchingPageSource source = new PrefetchingPageSource(failing, 1)) {
+      source.next();
+      Assert.fail("Error of the background read is expected");
+    } catch (APIException e) {
+      Assert.assertTrue(e.getCause() instanceof NoClassDefFoundError);
+    }
+  }
+
+  @Test
+  public void testDelegateIsClosedAfterBackgroundRead() throws Exception {
+    CountDownLatch reading = new CountDownLatch(1);
+    AtomicBoolean readingWhenClosed = new AtomicBoolean();
+    AtomicBoolean stillReading = new AtomicBoolean();
+    InsightsPageSource slow = new InsightsPageSource() {
+      @Override
+      public InsightsPage next() throws APIException {
+        stillReading.set(true);
+        reading.countDown();
+        try {
+          Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+          throw new APIException("Interrupted", e);
+        } finally {
+          stillReading.set(false);
+        }
+        return null;
+      }
+
+      @Override
+      public void close() {
+        readingWhenClosed.set(stillReading.get());
+      }
+    };
+
+    PrefetchingPageSource source = new PrefetchingPageSource(slow, 1);
+    Assert.assertTrue(reading.await(10, TimeUnit.SECONDS));
+    source.close();
+
+    Assert.assertFalse(readingWhenClosed.get());
+  }
+
+  /**
+   * Returns given pages, null page stands for a failure.
+   */
+  private static class FixedPageSource implements InsightsPageSource {
+    private final Deque<InsightsPage> pages;
+    private final int failAt;
+    private int index;
+
+    FixedPageSource(InsightsPage... pages) {
+      this.failAt = Arrays.asList(pages).indexOf(null);
+      this.pages = new ArrayDeque<>();
+      Arrays.stream(pages).filter(page -> page != null).forEach(this.pages::add);
+    }
+
+    @Override
+    public InsightsPage next() throws APIException {
+      if (index++ == failAt) {
+        throw new APIException("page failed");
+      }
+      return pages.poll();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
+import io.cdap.plugin.facebook.source.BaseFacebookValidationTest;
+import io.cdap.plugin.facebook.source.common.config.BaseSourceConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FacebookStreamingSourceConfigTest extends BaseFacebookValidationTest {
+
+  @Test
+  public void testObjectType() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookStreamingSourceConfig config = FacebookStreamingSourceConfig.builder().setObjectType("Account").build();
+    config.validateObjectType(failureCollector);
+
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+  }
+
+  @Test
+  public void testObjectTypePage() {
+    MockFailureCollector failureCollector = new MockFailureCollector();
+    FacebookStreamingSourceConfig config = FacebookStreamingSourceConfig.builder().setObjectType("Page").build();
+    config.validateObjectType(failureCollector);
+
+    assertSingleFieldValidationFailed(failureCollector, BaseSourceConfig.PROPERTY_OBJECT_TYPE);
+  }
+
+  @Test
+  public void testPollIntervalDefault() {
+    FacebookStreamingSourceConfig config = FacebookStreamingSourceConfig.builder().build();
+
+    Assert.assertEquals(15 * 60 * 1000L, config.getPollIntervalMillis());
+  }
+}
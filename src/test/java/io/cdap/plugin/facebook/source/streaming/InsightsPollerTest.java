@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.source.streaming;
+
+import com.facebook.ads.sdk.AdsInsights;
+import com.google.gson.JsonObject;
+import io.cdap.plugin.facebook.source.common.config.Breakdowns;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class InsightsPollerTest {
+
+  @Test
+  public void testRowKeyOfHourlyBreakdown() {
+    Breakdowns hourly = new Breakdowns(
+      Collections.singletonList(AdsInsights.EnumBreakdowns.VALUE_HOURLY_STATS_AGGREGATED_BY_ADVERTISER_TIME_ZONE),
+      Collections.emptyList(), false);
+    List<String> keyFields = InsightsPoller.getKeyFields("ad_id", hourly);
+    Assert.assertEquals(
+      Arrays.asList("date_start", "ad_id", "hourly_stats_aggregated_by_advertiser_time_zone"), keyFields);
+
+    JsonObject row = new JsonObject();
+    row.addProperty("date_start", "2020-05-01");
+    row.addProperty("ad_id", "42");
+    row.addProperty("hourly_stats_aggregated_by_advertiser_time_zone", "13:00:00 - 13:59:59");
+    row.addProperty("impressions", "100");
+
+    Assert.assertEquals("act_1|2020-05-01|42|13:00:00 - 13:59:59", InsightsPoller.getRowKey("act_1", row, keyFields));
+  }
+
+  @Test
+  public void testRowKeyMissingField() {
+    List<String> keyFields = InsightsPoller.getKeyFields("campaign_id", null);
+    JsonObject row = new JsonObject();
+    row.addProperty("date_start", "2020-05-01");
+
+    Assert.assertEquals("act_1|2020-05-01|", InsightsPoller.getRowKey("act_1", row, keyFields));
+  }
+}
@@ -0,0 +1,654 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.testing;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.cdap.plugin.facebook.source.common.requests.InsightsRequestFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Embeddable fake of Graph API, which serves insights generated by {@link FakeInsightsData} on a local port, so
+ * reading can be tested without network and access token.
+ * <p>
+ * Supported requests are:
+ * <ul>
+ *   <li>GET {object}/insights - insights of the object, paged by 'limit' and 'after' cursor</li>
+ *   <li>POST {object}/insights - asynchronous report run, completed after configured number of status polls</li>
+ *   <li>GET {report run} - status of the report run</li>
+ *   <li>GET {report run}/insights - results of the report run</li>
+ *   <li>GET {object}/campaigns, adsets, ads - child objects along with 'total_count' summary</li>
+ *   <li>GET {object} - the object with requested fields</li>
+ *   <li>POST / with 'batch' parameter - batch of any of the requests above</li>
+ * </ul>
+ * Every response reports configured usage in rate limit headers. Throttling and errors are injected on demand for
+ * the following requests, batched requests are counted one by one.
+ * <p>
+ * The source sends requests to the server while {@link InsightsRequestFactory#GRAPH_ENDPOINT_PROPERTY} system
+ * property is set to {@link #getEndpoint()}, which {@link #start()} does.
+ */
+public class FakeGraphApiServer implements Closeable {
+  public static final int DEFAULT_ROWS = 100;
+  public static final int DEFAULT_CHILDREN = 10;
+  // page size of Insights API, if request doesn't set a limit
+  public static final int DEFAULT_PAGE_SIZE = 25;
+  private static final Pattern VERSION = Pattern.compile("v\\d+\\.\\d+");
+  private static final LocalDate DEFAULT_DATE = LocalDate.of(2020, 1, 1);
+  private static final String STATUS_RUNNING = "Job Running";
+  private static final String STATUS_COMPLETED = "Job Completed";
+  private static final int THROTTLING_ERROR_CODE = 17;
+  private static final int SERVER_ERROR_CODE = 2;
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final String endpoint;
+  private final Map<String, Integer> rowsByObject = new ConcurrentHashMap<>();
+  private final Map<String, ReportRun> reportRuns = new ConcurrentHashMap<>();
+  private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final AtomicInteger maxActiveRequests = new AtomicInteger();
+  private final AtomicInteger reportRunIds = new AtomicInteger();
+  private final AtomicInteger failingPolls = new AtomicInteger();
+  private final AtomicLong rowsServed = new AtomicLong();
+  private volatile int defaultRows = DEFAULT_ROWS;
+  private volatile int children = DEFAULT_CHILDREN;
+  private volatile int pageSize = DEFAULT_PAGE_SIZE;
+  private volatile int reportRunPolls;
+  private volatile int usagePercent;
+  private volatile long latencyMillis;
+
+  private FakeGraphApiServer(HttpServer server, ExecutorService executor) {
+    this.server = server;
+    this.executor = executor;
+    this.endpoint = String.format("http://%s:%d", server.getAddress().getHostString(),
+                                  server.getAddress().getPort());
+  }
+
+  /**
+   * Starts server on a free local port and directs requests of the source to it.
+   */
+  public static FakeGraphApiServer start() throws IOException {
+    HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    ExecutorService executor = Executors.newCachedThreadPool();
+    FakeGraphApiServer fakeServer = new FakeGraphApiServer(httpServer, executor);
+    httpServer.createContext("/", fakeServer::handle);
+    httpServer.setExecutor(executor);
+    httpServer.start();
+    System.setProperty(InsightsRequestFactory.GRAPH_ENDPOINT_PROPERTY, fakeServer.endpoint);
+    return fakeServer;
+  }
+
+  /**
+   * Returns base url of the server.
+   */
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * Sets number of insights rows of objects without own number of rows.
+   */
+  public FakeGraphApiServer setDefaultRows(int rows) {
+    this.defaultRows = rows;
+    return this;
+  }
+
+  /**
+   * Sets number of insights rows of given object. Rows of the object are spread over the requested time range.
+   */
+  public FakeGraphApiServer setRows(String objectId, int rows) {
+    rowsByObject.put(objectId, rows);
+    return this;
+  }
+
+  /**
+   * Sets number of rows per page of requests, which don't set a limit.
+   */
+  public FakeGraphApiServer setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  /**
+   * Sets number of child objects of every object.
+   */
+  public FakeGraphApiServer setChildren(int children) {
+    this.children = children;
+    return this;
+  }
+
+  /**
+   * Sets number of status polls report runs stay running for.
+   */
+  public FakeGraphApiServer setReportRunPolls(int polls) {
+    this.reportRunPolls = polls;
+    return this;
+  }
+
+  /**
+   * Responds to given number of the following status polls of report runs with transient server error.
+   */
+  public FakeGraphApiServer failReportRunPolls(int count) {
+    failingPolls.addAndGet(count);
+    return this;
+  }
+
+  /**
+   * Sets usage percent reported in rate limit headers.
+   */
+  public FakeGraphApiServer setUsagePercent(int usagePercent) {
+    this.usagePercent = usagePercent;
+    return this;
+  }
+
+  /**
+   * Sets delay before every response.
+   */
+  public FakeGraphApiServer setLatency(long latency, TimeUnit unit) {
+    this.latencyMillis = unit.toMillis(latency);
+    return this;
+  }
+
+  /**
+   * Responds to given number of the following requests with throttling error and full usage.
+   */
+  public FakeGraphApiServer throttleNext(int count) {
+    for (int i = 0; i < count; i++) {
+      failures.add(new Failure(400, THROTTLING_ERROR_CODE, "(#17) User request limit reached", true));
+    }
+    return this;
+  }
+
+  /**
+   * Responds to given number of the following requests with transient server error.
+   */
+  public FakeGraphApiServer failNext(int count) {
+    return failNext(count, 500, SERVER_ERROR_CODE, "Service temporarily unavailable");
+  }
+
+  /**
+   * Responds to given number of the following requests with given error.
+   *
+   * @param count The number of requests to fail
+   * @param status The HTTP status of responses
+   * @param errorCode The Graph API error code
+   * @param message The error message
+   */
+  public FakeGraphApiServer failNext(int count, int status, int errorCode, String message) {
+    for (int i = 0; i < count; i++) {
+      failures.add(new Failure(status, errorCode, message, false));
+    }
+    return this;
+  }
+
+  /**
+   * Returns number of requests served, batched requests are counted one by one.
+   */
+  public int getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * Returns number of report runs submitted.
+   */
+  public int getReportRunCount() {
+    return reportRunIds.get();
+  }
+
+  /**
+   * Returns number of insights rows served, rows of repeated pages are counted again.
+   */
+  public long getRowsServed() {
+    return rowsServed.get();
+  }
+
+  /**
+   * Returns the highest number of HTTP requests served at the same time.
+   */
+  public int getMaxConcurrentRequests() {
+    return maxActiveRequests.get();
+  }
+
+  @Override
+  public void close() {
+    System.clearProperty(InsightsRequestFactory.GRAPH_ENDPOINT_PROPERTY);
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+    try {
+      Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+      if ("POST".equals(exchange.getRequestMethod())) {
+        byte[] body = ByteStreams.toByteArray(exchange.getRequestBody());
+        params.putAll(parseBody(exchange.getRequestHeaders().getFirst("Content-Type"), body));
+      }
+      String path = exchange.getRequestURI().getPath();
+      Response response = isRoot(path) && params.containsKey("batch")
+        ? serveBatch(params.get("batch"))
+        : serve(exchange.getRequestMethod(), path, params);
+      if (latencyMillis > 0) {
+        Thread.sleep(latencyMillis);
+      }
+      byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+      response.headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+      exchange.sendResponseHeaders(response.status, bytes.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(bytes);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      activeRequests.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  private Response serveBatch(String batch) {
+    JsonArray results = new JsonArray();
+    for (JsonElement element : new JsonParser().parse(batch).getAsJsonArray()) {
+      JsonObject request = element.getAsJsonObject();
+      String method = request.has("method") ? request.get("method").getAsString() : "GET";
+      String relativeUrl = request.get("relative_url").getAsString();
+      int queryStart = relativeUrl.indexOf('?');
+      String path = queryStart < 0 ? relativeUrl : relativeUrl.substring(0, queryStart);
+      Map<String, String> params = parseQuery(queryStart < 0 ? null : relativeUrl.substring(queryStart + 1));
+      if (request.has("body")) {
+        params.putAll(parseQuery(request.get("body").getAsString()));
+      }
+      Response response = serve(method, path, params);
+
+      JsonArray headers = new JsonArray();
+      response.headers.forEach((name, value) -> {
+        JsonObject header = new JsonObject();
+        header.addProperty("name", name);
+        header.addProperty("value", value);
+        headers.add(header);
+      });
+      JsonObject result = new JsonObject();
+      result.addProperty("code", response.status);
+      result.add("headers", headers);
+      result.addProperty("body", response.body);
+      results.add(result);
+    }
+    return new Response(200, results.toString(), usageHeaders(usagePercent));
+  }
+
+  private Response serve(String method, String path, Map<String, String> params) {
+    requests.incrementAndGet();
+    Failure failure = failures.poll();
+    if (failure != null) {
+      return error(failure.status, failure.code, failure.message, failure.throttling ? 100 : usagePercent);
+    }
+
+    List<String> segments = new ArrayList<>();
+    for (String segment : Splitter.on('/').omitEmptyStrings().split(path)) {
+      if (segments.isEmpty() && VERSION.matcher(segment).matches()) {
+        continue;
+      }
+      segments.add(segment);
+    }
+    if (segments.size() == 1 && "GET".equals(method)) {
+      ReportRun reportRun = reportRuns.get(segments.get(0));
+      if (reportRun != null && failingPolls.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+        return error(500, SERVER_ERROR_CODE, "Service temporarily unavailable", usagePercent);
+      }
+      return reportRun == null ? ok(node(segments.get(0), params)) : ok(reportRun.poll());
+    }
+    if (segments.size() == 2 && "insights".equals(segments.get(1))) {
+      String objectId = segments.get(0);
+      if ("POST".equals(method)) {
+        String reportRunId = String.valueOf(1000000 + reportRunIds.incrementAndGet());
+        reportRuns.put(reportRunId, new ReportRun(reportRunId, objectId, params, reportRunPolls));
+        JsonObject json = new JsonObject();
+        json.addProperty("report_run_id", reportRunId);
+        return ok(json);
+      }
+      ReportRun reportRun = reportRuns.get(objectId);
+      if (reportRun == null) {
+        return ok(insights(objectId, path, params, params));
+      }
+      if (!reportRun.isCompleted()) {
+        return error(400, 100, String.format("Report run '%s' is not completed", objectId), usagePercent);
+      }
+      return ok(insights(reportRun.objectId, path, reportRun.params, params));
+    }
+    if (segments.size() == 2 && "GET".equals(method)) {
+      return ok(children(segments.get(0), segments.get(1), params));
+    }
+    return error(400, 100, String.format("Unsupported request '%s %s'", method, path), usagePercent);
+  }
+
+  /**
+   * Returns page of insights.
+   *
+   * @param objectId The object to generate rows for
+   * @param path The path of the request, for the link to the next page
+   * @param queryParams The parameters defining rows
+   * @param pageParams The parameters defining page of the rows
+   */
+  private JsonObject insights(String objectId, String path, Map<String, String> queryParams,
+                              Map<String, String> pageParams) {
+    int totalRows = rowsByObject.getOrDefault(objectId, defaultRows);
+    List<String> fields = new ArrayList<>(Arrays.asList("date_start", "date_stop"));
+    for (String field : splitList(queryParams.get("fields"))) {
+      if (!fields.contains(field)) {
+        fields.add(field);
+      }
+    }
+    List<String> breakdowns = splitList(queryParams.get("breakdowns"));
+    LocalDate since = DEFAULT_DATE;
+    long days = 1;
+    if (queryParams.containsKey("time_range")) {
+      JsonObject timeRange = new JsonParser().parse(queryParams.get("time_range")).getAsJsonObject();
+      since = LocalDate.parse(timeRange.get("since").getAsString());
+      days = LocalDate.parse(timeRange.get("until").getAsString()).toEpochDay() - since.toEpochDay() + 1;
+    }
+
+    int offset = pageParams.containsKey("after") ? decodeCursor(pageParams.get("after")) : 0;
+    int limit = pageParams.containsKey("limit") ? Integer.parseInt(pageParams.get("limit")) : pageSize;
+    int end = Math.min(totalRows, offset + limit);
+    JsonArray data = new JsonArray();
+    for (int row = offset; row < end; row++) {
+      data.add(FakeInsightsData.row(objectId, row, totalRows, fields, breakdowns, since, days));
+    }
+    rowsServed.addAndGet(end - offset);
+
+    JsonObject cursors = new JsonObject();
+    cursors.addProperty("before", encodeCursor(offset));
+    cursors.addProperty("after", encodeCursor(end));
+    JsonObject paging = new JsonObject();
+    paging.add("cursors", cursors);
+    if (end < totalRows) {
+      Map<String, String> nextParams = new LinkedHashMap<>(pageParams);
+      nextParams.put("after", encodeCursor(end));
+      paging.addProperty("next", endpoint + path + "?" + toQuery(nextParams));
+    }
+    JsonObject page = new JsonObject();
+    page.add("data", data);
+    page.add("paging", paging);
+    return page;
+  }
+
+  private JsonObject children(String objectId, String edge, Map<String, String> params) {
+    JsonArray data = new JsonArray();
+    int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+    for (int i = 0; i < Math.min(limit, children); i++) {
+      JsonObject child = new JsonObject();
+      child.addProperty("id", objectId + "_" + edge + "_" + i);
+      data.add(child);
+    }
+    JsonObject summary = new JsonObject();
+    summary.addProperty("total_count", children);
+    JsonObject json = new JsonObject();
+    json.add("data", data);
+    json.add("summary", summary);
+    return json;
+  }
+
+  private static JsonObject node(String objectId, Map<String, String> params) {
+    JsonObject json = new JsonObject();
+    json.addProperty("id", objectId);
+    for (String field : splitList(params.get("fields"))) {
+      switch (field) {
+        case "account_id":
+          json.addProperty(field, objectId.startsWith("act_") ? objectId.substring(4) : "1");
+          break;
+        case "timezone_name":
+          json.addProperty(field, "Etc/UTC");
+          break;
+        case "currency":
+          json.addProperty(field, "USD");
+          break;
+        default:
+          json.addProperty(field, field + " of " + objectId);
+      }
+    }
+    return json;
+  }
+
+  private Response ok(JsonObject json) {
+    return new Response(200, json.toString(), usageHeaders(usagePercent));
+  }
+
+  private static Response error(int status, int code, String message, int usagePercent) {
+    JsonObject error = new JsonObject();
+    error.addProperty("message", message);
+    error.addProperty("type", "OAuthException");
+    error.addProperty("code", code);
+    error.addProperty("is_transient", code == SERVER_ERROR_CODE);
+    error.addProperty("fbtrace_id", "fake");
+    JsonObject json = new JsonObject();
+    json.add("error", error);
+    return new Response(status, json.toString(), usageHeaders(usagePercent));
+  }
+
+  private static Map<String, String> usageHeaders(int percent) {
+    JsonObject appUsage = new JsonObject();
+    appUsage.addProperty("call_count", percent);
+    appUsage.addProperty("total_time", percent);
+    appUsage.addProperty("total_cputime", percent);
+
+    JsonObject insightsUsage = new JsonObject();
+    insightsUsage.addProperty("type", "ads_insights");
+    insightsUsage.addProperty("call_count", percent);
+    insightsUsage.addProperty("total_time", percent);
+    insightsUsage.addProperty("total_cputime", percent);
+    insightsUsage.addProperty("estimated_time_to_regain_access", 0);
+    JsonArray accountUsage = new JsonArray();
+    accountUsage.add(insightsUsage);
+    JsonObject businessUsage = new JsonObject();
+    businessUsage.add("1", accountUsage);
+
+    Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("X-App-Usage", appUsage.toString());
+    headers.put("X-Business-Use-Case-Usage", businessUsage.toString());
+    return headers;
+  }
+
+  private static boolean isRoot(String path) {
+    String trimmed = path.replace("/", "");
+    return trimmed.isEmpty() || VERSION.matcher(trimmed).matches();
+  }
+
+  /**
+   * Splits list parameter, given either as comma separated values or as JSON array.
+   */
+  private static List<String> splitList(@Nullable String value) {
+    if (value == null || value.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String> values = new ArrayList<>();
+    for (String item : Splitter.on(',').trimResults().omitEmptyStrings().split(value.replaceAll("[\\[\\]\"]", ""))) {
+      values.add(item);
+    }
+    return values;
+  }
+
+  private static String encodeCursor(int offset) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(Integer.toString(offset)
+                                                                    .getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static int decodeCursor(String cursor) {
+    return Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+  }
+
+  private static Map<String, String> parseBody(@Nullable String contentType, byte[] body) {
+    String text = new String(body, StandardCharsets.UTF_8);
+    if (contentType == null || !contentType.startsWith("multipart/form-data")) {
+      return parseQuery(text);
+    }
+    // text parts of multipart form, as sent by the SDK
+    String boundary = "--" + contentType.substring(contentType.indexOf("boundary=") + "boundary=".length())
+      .replace("\"", "");
+    Map<String, String> params = new LinkedHashMap<>();
+    for (String part : Splitter.on(boundary).split(text)) {
+      int nameStart = part.indexOf("name=\"");
+      int valueStart = part.indexOf("\r\n\r\n");
+      if (nameStart < 0 || valueStart < 0) {
+        continue;
+      }
+      nameStart += "name=\"".length();
+      String name = part.substring(nameStart, part.indexOf('"', nameStart));
+      String value = part.substring(valueStart + 4);
+      params.put(name, value.endsWith("\r\n") ? value.substring(0, value.length() - 2) : value);
+    }
+    return params;
+  }
+
+  private static Map<String, String> parseQuery(@Nullable String query) {
+    Map<String, String> params = new LinkedHashMap<>();
+    if (query == null) {
+      return params;
+    }
+    for (String pair : Splitter.on('&').omitEmptyStrings().split(query)) {
+      int separator = pair.indexOf('=');
+      String name = separator < 0 ? pair : pair.substring(0, separator);
+      String value = separator < 0 ? "" : pair.substring(separator + 1);
+      params.put(decode(name), decode(value));
+    }
+    return params;
+  }
+
+  private static String toQuery(Map<String, String> params) {
+    StringBuilder query = new StringBuilder();
+    params.forEach((name, value) -> {
+      if (query.length() > 0) {
+        query.append('&');
+      }
+      query.append(encode(name)).append('=').append(encode(value));
+    });
+    return query.toString();
+  }
+
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Status code, body and headers of a response.
+   */
+  private static class Response {
+    private final int status;
+    private final String body;
+    private final Map<String, String> headers;
+
+    Response(int status, String body, Map<String, String> headers) {
+      this.status = status;
+      this.body = body;
+      this.headers = headers;
+    }
+  }
+
+  /**
+   * Error injected into a response.
+   */
+  private static class Failure {
+    private final int status;
+    private final int code;
+    private final String message;
+    private final boolean throttling;
+
+    Failure(int status, int code, String message, boolean throttling) {
+      this.status = status;
+      this.code = code;
+      this.message = message;
+      this.throttling = throttling;
+    }
+  }
+
+  /**
+   * Asynchronous report run, which completes after given number of status polls.
+   */
+  private static class ReportRun {
+    private final String id;
+    private final String objectId;
+    private final Map<String, String> params;
+    private final int polls;
+    private final AtomicInteger polled = new AtomicInteger();
+
+    ReportRun(String id, String objectId, Map<String, String> params, int polls) {
+      this.id = id;
+      this.objectId = objectId;
+      this.params = params;
+      this.polls = polls;
+    }
+
+    boolean isCompleted() {
+      return polled.get() >= polls;
+    }
+
+    JsonObject poll() {
+      int poll = polled.getAndIncrement();
+      boolean completed = poll >= polls;
+      JsonObject json = new JsonObject();
+      json.addProperty("id", id);
+      json.addProperty("async_status", completed ? STATUS_COMPLETED : STATUS_RUNNING);
+      json.addProperty("async_percent_completion", completed ? 100 : 100 * poll / polls);
+      return json;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.testing;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.facebook.source.batch.FacebookBatchSourceConfig;
+import io.cdap.plugin.facebook.source.common.InsightsJsonDecoder;
+import io.cdap.plugin.facebook.source.common.SchemaHelper;
+import io.cdap.plugin.facebook.source.common.TimeRange;
+import io.cdap.plugin.facebook.source.common.http.HttpTransports;
+import io.cdap.plugin.facebook.source.common.http.PooledRequestExecutor;
+import io.cdap.plugin.facebook.source.common.http.RetryPolicy;
+import io.cdap.plugin.facebook.source.common.requests.BatchPageSource;
+import io.cdap.plugin.facebook.source.common.requests.DirectRecordSource;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPage;
+import io.cdap.plugin.facebook.source.common.requests.InsightsPageSource;
+import io.cdap.plugin.facebook.source.common.requests.InsightsRequestFactory;
+import io.cdap.plugin.facebook.source.common.requests.InsightsScope;
+import io.cdap.plugin.facebook.source.common.requests.RequestPageSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Reads insights from {@link FakeGraphApiServer} by clients of the source.
+ */
+public class FakeGraphApiServerTest {
+  private static final String FIELDS = "ad_id,impressions,spend,ctr,actions";
+  private static final TimeRange TIME_RANGE = new TimeRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 10));
+  private FakeGraphApiServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = FakeGraphApiServer.start()
+      .setRows("act_1", 60)
+      .setRows("act_2", 30);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void testPagedRequest() throws Exception {
+    InsightsPageSource source = new RequestPageSource(
+      "act_1", InsightsRequestFactory.createRequest(createConfig(), scope("act_1")), new RetryPolicy(0));
+
+    Assert.assertEquals(60, countRows(source));
+    Assert.assertEquals(3, server.getRequestCount());
+  }
+
+  @Test
+  public void testRetriedDirectRead() throws Exception {
+    FacebookBatchSourceConfig config = createConfig();
+    DirectRecordSource source = new DirectRecordSource(
+      PooledRequestExecutor.getInstance(HttpTransports.DEFAULT_CONNECT_TIMEOUT, HttpTransports.DEFAULT_READ_TIMEOUT),
+      new RetryPolicy(1),
+      new InsightsJsonDecoder(SchemaHelper.buildAdsInsightsSchema(config.getFields(), null, true), null));
+    source.add("act_1", InsightsRequestFactory.createDirectRequest(config, scope("act_1")));
+    server.failNext(1);
+
+    int rows = 0;
+    for (List<StructuredRecord> page = source.nextPage(); page != null; page = source.nextPage()) {
+      for (StructuredRecord record : page) {
+        Assert.assertNotNull(record.get("impressions"));
+        Assert.assertNotNull(record.get("date_start"));
+        rows++;
+      }
+    }
+    Assert.assertEquals(60, rows);
+    Assert.assertEquals(4, server.getRequestCount());
+  }
+
+  @Test
+  public void testRetriedBatch() throws Exception {
+    BatchPageSource source = new BatchPageSource("token", new RetryPolicy(1));
+    source.add("act_1", InsightsRequestFactory.createRequest(createConfig(), scope("act_1")));
+    source.add("act_2", InsightsRequestFactory.createRequest(createConfig(), scope("act_2")));
+    server.failNext(1);
+
+    Assert.assertEquals(90, countRows(source));
+  }
+
+  @Test
+  public void testReportRun() throws Exception {
+    server.setReportRunPolls(1);
+    InsightsPageSource source = new RequestPageSource(
+      "act_1", InsightsRequestFactory.createAsyncRequest(createConfig(), scope("act_1"), 1, 1), new RetryPolicy(0));
+
+    Assert.assertEquals(60, countRows(source));
+  }
+
+  @Test
+  public void testReportRunIsResumedAfterFailedPoll() throws Exception {
+    server.setReportRunPolls(1).failReportRunPolls(1);
+    InsightsPageSource source = new RequestPageSource(
+      "act_1", InsightsRequestFactory.createAsyncRequest(createConfig(), scope("act_1"), 1, 1), new RetryPolicy(1));
+
+    Assert.assertEquals(60, countRows(source));
+    // the run submitted before the failure is polled again
+    Assert.assertEquals(1, server.getReportRunCount());
+  }
+
+  private static FacebookBatchSourceConfig createConfig() {
+    return FacebookBatchSourceConfig.builder()
+      .setAccessToken("token")
+      .setObjectType("Account")
+      .setAccountId("act_1")
+      .setFields(FIELDS)
+      .setLevel("ad")
+      .build();
+  }
+
+  private static InsightsScope scope(String objectId) {
+    return InsightsScope.forObject(objectId).withTimeRange(TIME_RANGE);
+  }
+
+  private static int countRows(InsightsPageSource source) throws Exception {
+    int rows = 0;
+    for (InsightsPage page = source.next(); page != null; page = source.next()) {
+      rows += page.getRows().size();
+    }
+    source.close();
+    return rows;
+  }
+}
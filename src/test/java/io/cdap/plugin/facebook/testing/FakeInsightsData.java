@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.facebook.testing;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.facebook.source.common.SchemaHelper;
+import io.cdap.plugin.facebook.source.common.exceptions.IllegalInsightsFieldException;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates rows of insights. Rows are deterministic: the same row of the same object always has the same values.
+ * Values are strings, as returned by Insights API, and are valid for types of the typed output schema.
+ */
+class FakeInsightsData {
+  private static final List<String> ACTION_TYPES = Arrays.asList("link_click", "post_engagement", "video_view");
+  private static final List<String> CURRENCY_FIELDS = Arrays.asList("account_currency");
+  // schema of the field in typed output, string for fields not known by the plugin
+  private static final Map<String, Schema> FIELD_SCHEMAS = new ConcurrentHashMap<>();
+  private static final Schema UNKNOWN_FIELD = Schema.of(Schema.Type.STRING);
+
+  /**
+   * Returns row of insights.
+   *
+   * @param objectId The id of the object insights are read for
+   * @param row The index of the row among rows of the object
+   * @param totalRows The number of rows of the object
+   * @param fields The requested fields
+   * @param breakdowns The requested breakdowns
+   * @param since The first day of the time range
+   * @param days The number of days in the time range
+   * @return The row
+   */
+  static JsonObject row(String objectId, int row, int totalRows, List<String> fields, List<String> breakdowns,
+                        LocalDate since, long days) {
+    // rows of daily insights are ordered by days
+    LocalDate date = since.plusDays(days * row / Math.max(1, totalRows));
+    long seed = (long) objectId.hashCode() * 31 + row;
+    JsonObject json = new JsonObject();
+    for (String field : fields) {
+      Schema schema = getSchema(field);
+      long number = Math.floorMod(seed * (field.length() + 7), 100000L);
+      if (schema.getLogicalType() == Schema.LogicalType.DATE) {
+        json.addProperty(field, date.toString());
+      } else if (schema.getLogicalType() == Schema.LogicalType.DECIMAL) {
+        json.addProperty(field, String.format(Locale.ROOT, "%.2f", number / 100.0));
+      } else if (schema.getType() == Schema.Type.ARRAY) {
+        json.add(field, actions(seed));
+      } else if (schema.getType() == Schema.Type.LONG) {
+        json.addProperty(field, Long.toString(number));
+      } else if (schema.getType() == Schema.Type.DOUBLE) {
+        json.addProperty(field, String.format(Locale.ROOT, "%.6f", number / 7000.0));
+      } else {
+        json.addProperty(field, stringValue(field, objectId, row));
+      }
+    }
+    for (String breakdown : breakdowns) {
+      json.addProperty(breakdown, breakdownValue(breakdown, row));
+    }
+    return json;
+  }
+
+  private static Schema getSchema(String field) {
+    return FIELD_SCHEMAS.computeIfAbsent(field, name -> {
+      try {
+        Schema schema = SchemaHelper.fromName(name, true).getSchema();
+        return schema.isNullable() ? schema.getNonNullable() : schema;
+      } catch (IllegalInsightsFieldException e) {
+        return UNKNOWN_FIELD;
+      }
+    });
+  }
+
+  private static JsonArray actions(long seed) {
+    JsonArray actions = new JsonArray();
+    for (String actionType : ACTION_TYPES) {
+      long value = Math.floorMod(seed * actionType.length(), 1000L);
+      JsonObject action = new JsonObject();
+      action.addProperty("action_type", actionType);
+      action.addProperty("value", Long.toString(value));
+      action.addProperty("1d_click", Long.toString(value / 2));
+      action.addProperty("7d_view", Long.toString(value / 3));
+      actions.add(action);
+    }
+    return actions;
+  }
+
+  private static String stringValue(String field, String objectId, int row) {
+    if (CURRENCY_FIELDS.contains(field)) {
+      return "USD";
+    }
+    if ("account_id".equals(field)) {
+      return objectId.startsWith("act_") ? objectId.substring(4) : objectId;
+    }
+    if (field.endsWith("_id")) {
+      return objectId + "_" + field.substring(0, field.length() - 3) + "_" + row;
+    }
+    return field + " " + row;
+  }
+
+  private static String breakdownValue(String breakdown, int row) {
+    switch (breakdown) {
+      case "age":
+        return Arrays.asList("18-24", "25-34", "35-44", "45-54").get(row % 4);
+      case "gender":
+        return row % 2 == 0 ? "female" : "male";
+      case "country":
+        return Arrays.asList("US", "GB", "DE").get(row % 3);
+      case "publisher_platform":
+        return row % 2 == 0 ? "facebook" : "instagram";
+      case "platform_position":
+        return row % 3 == 0 ? "feed" : "story";
+      case "impression_device":
+        return row % 5 == 0 ? "desktop" : "iphone";
+      default:
+        return breakdown + "_" + row % 3;
+    }
+  }
+}